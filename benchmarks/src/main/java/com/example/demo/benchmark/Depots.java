@@ -0,0 +1,31 @@
+package com.example.demo.benchmark;
+
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Dépôts Spring Data simulés pour les benchmarks : proxy de l'interface dont seules les méthodes
+ * fournies répondent (par nom), les autres lèvent UnsupportedOperationException.
+ */
+public final class Depots {
+
+    private Depots() {
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> T simuler(Class<T> type, Map<String, Function<Object[], Object>> methodes) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, methode, args) -> {
+            Function<Object[], Object> impl = methodes.get(methode.getName());
+            if (impl != null) {
+                return impl.apply(args);
+            }
+            return switch (methode.getName()) {
+                case "toString" -> type.getSimpleName() + " simulé";
+                case "hashCode" -> System.identityHashCode(proxy);
+                case "equals" -> proxy == args[0];
+                default -> throw new UnsupportedOperationException(type.getSimpleName() + "." + methode.getName());
+            };
+        });
+    }
+}
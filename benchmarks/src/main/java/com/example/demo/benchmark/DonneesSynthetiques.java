@@ -0,0 +1,140 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.entity.Evenement;
+import com.example.demo.entity.GroupeRunning;
+import com.example.demo.entity.Role;
+import com.example.demo.entity.User;
+import com.example.demo.repository.GroupeRunningRepository;
+import com.example.demo.repository.ParticipationRepository;
+import com.example.demo.repository.SessionCourseRepository;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Jeu de données synthétique reproductible (graine fixe) : adhérents répartis dans des groupes,
+ * sessions de course et participations générées à la demande (triées par adhérent, comme les requêtes de flux).
+ */
+public final class DonneesSynthetiques {
+
+    private static final long GRAINE = 42L;
+    private static final Instant REFERENCE = Instant.parse("2026-01-01T07:00:00Z");
+
+    public final List<User> adherents;
+    public final List<GroupeRunning> groupes;
+    private final int sessionsParAdherent;
+    private final int participationsParAdherent;
+
+    public DonneesSynthetiques(int nbAdherents, int nbGroupes, long nbSessions, int participationsParAdherent) {
+        Random random = new Random(GRAINE);
+        this.sessionsParAdherent = (int) Math.max(1, nbSessions / Math.max(1, nbAdherents));
+        this.participationsParAdherent = participationsParAdherent;
+
+        this.groupes = new ArrayList<>(nbGroupes);
+        String[] niveaux = {"Débutant", "Intermédiaire", "Confirmé"};
+        for (int g = 0; g < nbGroupes; g++) {
+            groupes.add(GroupeRunning.builder()
+                    .id((long) g + 1)
+                    .nom("Groupe " + (g + 1))
+                    .niveau(niveaux[g % niveaux.length])
+                    .build());
+        }
+
+        this.adherents = new ArrayList<>(nbAdherents);
+        for (int i = 0; i < nbAdherents; i++) {
+            User u = User.builder()
+                    .id(new UUID(GRAINE, i))
+                    .nom("adherent" + i)
+                    .prenom("Prénom" + i)
+                    .email("adherent" + i + "@club.tn")
+                    .role(Role.ADHERENT)
+                    .build();
+            adherents.add(u);
+            // Un groupe principal, et un second pour un adhérent sur quatre
+            groupes.get(random.nextInt(nbGroupes)).getMembres().add(u);
+            if (random.nextInt(4) == 0) {
+                GroupeRunning second = groupes.get(random.nextInt(nbGroupes));
+                if (!second.getMembres().contains(u)) second.getMembres().add(u);
+            }
+        }
+        for (GroupeRunning g : groupes) {
+            if (!g.getMembres().isEmpty()) g.setResponsable(g.getMembres().get(0));
+        }
+    }
+
+    public List<GroupeRunningRepository.Appartenance> appartenances() {
+        List<GroupeRunningRepository.Appartenance> liste = new ArrayList<>();
+        for (GroupeRunning g : groupes) {
+            for (User m : g.getMembres()) {
+                Long groupeId = g.getId();
+                UUID adherentId = m.getId();
+                liste.add(new GroupeRunningRepository.Appartenance() {
+                    public Long getGroupeId() { return groupeId; }
+                    public UUID getAdherentId() { return adherentId; }
+                });
+            }
+        }
+        return liste;
+    }
+
+    /** Sessions triées par adhérent : distance 3-21 km, pace 4-8 min/km (déterministe). */
+    public Stream<SessionCourseRepository.EffortSession> efforts() {
+        return IntStream.range(0, adherents.size()).boxed().flatMap(i -> {
+            UUID id = adherents.get(i).getId();
+            return IntStream.range(0, sessionsParAdherent).mapToObj(k -> {
+                double distance = 3 + ((i * 31 + k * 17) % 180) / 10.0;
+                long duree = (long) (distance * (240 + ((i * 7 + k * 13) % 240)));
+                return effort(id, distance, duree);
+            });
+        });
+    }
+
+    public Stream<ParticipationRepository.DateParticipation> datesParticipations() {
+        return IntStream.range(0, adherents.size()).boxed().flatMap(i -> {
+            UUID id = adherents.get(i).getId();
+            return IntStream.range(0, participationsParAdherent).mapToObj(k -> {
+                Instant date = REFERENCE.minus((long) k * (2 + i % 5), ChronoUnit.DAYS);
+                return new ParticipationRepository.DateParticipation() {
+                    public UUID getAdherentId() { return id; }
+                    public Instant getDateEvenement() { return date; }
+                };
+            });
+        });
+    }
+
+    /** Un événement par groupe et par jour sur la période. */
+    public List<Evenement> evenements(int nbJours) {
+        List<Evenement> liste = new ArrayList<>();
+        long id = 1;
+        for (int j = 0; j < nbJours; j++) {
+            for (GroupeRunning g : groupes) {
+                liste.add(Evenement.builder()
+                        .id(id++)
+                        .titre("Sortie " + g.getNom() + " J" + j)
+                        .date(REFERENCE.plus(j, ChronoUnit.DAYS))
+                        .groupe(g)
+                        .build());
+            }
+        }
+        return liste;
+    }
+
+    public int getSessionsParAdherent() {
+        return sessionsParAdherent;
+    }
+
+    public static SessionCourseRepository.EffortSession effort(UUID adherentId, double distanceKm, long dureeSecondes) {
+        return new SessionCourseRepository.EffortSession() {
+            public UUID getAdherentId() { return adherentId; }
+            public Double getDistanceKm() { return distanceKm; }
+            public Long getDurationSeconds() { return dureeSecondes; }
+            public Double getPaceMouvementMinKm() { return null; }
+        };
+    }
+}
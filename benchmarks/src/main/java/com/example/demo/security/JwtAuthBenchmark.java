@@ -0,0 +1,67 @@
+package com.example.demo.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coût de l'authentification JWT par requête (JwtAuthFilter) :
+ * - avant : clé HMAC et parser reconstruits à chaque appel, token parsé deux fois (validation puis sujet) ;
+ * - apres : clé et parser construits une fois, un seul parsing ({@link JwtUtil#verifier}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtAuthBenchmark {
+
+    static final String SECRET = "spFMgu8XZA+SYjLt/k6ReVoh9wwAdGAB20JYt7VrnSEnsyuonV+YXR/Mi43db7MpTGnbm/ZtyNmZscwxPTkF5g==";
+
+    private JwtUtil jwtUtil;
+    private String token;
+
+    @Setup
+    public void setup() {
+        jwtUtil = new JwtUtil(SECRET, 86_400_000L);
+        token = jwtUtil.generateToken("adherent", UUID.randomUUID(), "ADHERENT");
+    }
+
+    @Benchmark
+    public String avant() {
+        // validateToken puis getUsernameFromToken, chacun reconstruisant clé et parser
+        parserAvant(token);
+        return parserAvant(token).getSubject();
+    }
+
+    @Benchmark
+    public String apres() {
+        return jwtUtil.verifier(token).map(Claims::getSubject).orElse(null);
+    }
+
+    @Benchmark
+    public String generation() {
+        return jwtUtil.generateToken("adherent", UUID.randomUUID(), "ADHERENT");
+    }
+
+    private static Claims parserAvant(String jwt) {
+        SecretKey key = Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8));
+        return Jwts.parser().verifyWith(key).build().parseSignedClaims(jwt).getPayload();
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.demo.service;
+
+import com.example.demo.benchmark.Depots;
+import com.example.demo.benchmark.DonneesSynthetiques;
+import com.example.demo.dto.PartnerMatchDto;
+import com.example.demo.entity.Role;
+import com.example.demo.repository.GroupeRunningRepository;
+import com.example.demo.repository.ParticipationRepository;
+import com.example.demo.repository.SessionCourseRepository;
+import com.example.demo.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Matching de partenaires : construction de l'index en mémoire (chargement au démarrage)
+ * et calcul des scores d'un adhérent ({@link MatchingService#findPartners}).
+ * Dépôts simulés, aucune base requise.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MatchingBenchmark {
+
+    @Param({"10000"})
+    public int nbAdherents;
+
+    @Param({"50"})
+    public int nbGroupes;
+
+    @Param({"1000000"})
+    public long nbSessions;
+
+    private DonneesSynthetiques donnees;
+    private MatchingService matchingService;
+    private int prochain;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        donnees = new DonneesSynthetiques(nbAdherents, nbGroupes, nbSessions, 20);
+        MatchingIndex index = nouvelIndex();
+        index.chargerTout();
+        matchingService = new MatchingService(index, null, null, new SimpleMeterRegistry());
+        matchingService.init();
+    }
+
+    @Benchmark
+    public List<PartnerMatchDto> findPartners() {
+        UUID id = donnees.adherents.get(prochain++ % nbAdherents).getId();
+        return matchingService.findPartners(id);
+    }
+
+    /** Chargement complet de l'index (flux de toutes les sessions et participations). */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public MatchingIndex chargementIndex() {
+        MatchingIndex index = nouvelIndex();
+        index.chargerTout();
+        return index;
+    }
+
+    private MatchingIndex nouvelIndex() {
+        UserRepository users = Depots.simuler(UserRepository.class, Map.of(
+                "findByRole", args -> args[0] == Role.ADHERENT ? donnees.adherents : List.of()));
+        GroupeRunningRepository groupes = Depots.simuler(GroupeRunningRepository.class, Map.of(
+                "findAll", args -> donnees.groupes,
+                "findAllAppartenances", args -> donnees.appartenances()));
+        SessionCourseRepository sessions = Depots.simuler(SessionCourseRepository.class, Map.of(
+                "streamAllEfforts", args -> donnees.efforts()));
+        ParticipationRepository participations = Depots.simuler(ParticipationRepository.class, Map.of(
+                "streamAllDates", args -> donnees.datesParticipations()));
+        return new MatchingIndex(users, groupes, sessions, participations, new AppartenanceGroupesCache(groupes));
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.demo.service;
+
+import com.example.demo.benchmark.DonneesSynthetiques;
+import com.example.demo.entity.Evenement;
+import com.example.demo.entity.GroupeRunning;
+import com.example.demo.entity.User;
+import com.example.demo.repository.AppareilPushRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Destinataires des rappels et récaps (EvenementRappelService) :
+ * - messagesRecap : corps des récaps hebdomadaires et regroupement des tokens par corps, à partir des lignes
+ *   agrégées par la requête des destinataires ;
+ * - dedupListe / dedupHashSet : déduplication des tokens d'un groupe, ancienne version (List.contains, O(n²))
+ *   et version actuelle (ensemble).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RecapDestinatairesBenchmark {
+
+    @Param({"10000"})
+    public int nbAdherents;
+
+    @Param({"50"})
+    public int nbGroupes;
+
+    private List<AppareilPushRepository.DestinataireRecap> destinataires;
+    private List<String> tokensGroupe;
+
+    @Setup
+    public void setup() {
+        DonneesSynthetiques donnees = new DonneesSynthetiques(nbAdherents, nbGroupes, nbAdherents, 0);
+        destinataires = destinataires(donnees.evenements(7));
+        GroupeRunning plusGrand = donnees.groupes.stream()
+                .max((a, b) -> Integer.compare(a.getMembres().size(), b.getMembres().size()))
+                .orElseThrow();
+        tokensGroupe = new ArrayList<>();
+        for (User m : plusGrand.getMembres()) {
+            tokensGroupe.add("token-" + m.getId());
+        }
+        // Quelques doublons (appareil partagé, responsable également membre)
+        tokensGroupe.addAll(tokensGroupe.subList(0, tokensGroupe.size() / 10));
+    }
+
+    @Benchmark
+    public Map<String, Set<String>> messagesRecap() {
+        return EvenementRappelService.messagesRecap(destinataires, "événement(s) cette semaine");
+    }
+
+    @Benchmark
+    public List<String> dedupListe() {
+        List<String> tokens = new ArrayList<>();
+        for (String t : tokensGroupe) {
+            if (t != null && !t.isBlank() && !tokens.contains(t)) tokens.add(t);
+        }
+        return tokens;
+    }
+
+    @Benchmark
+    public Set<String> dedupHashSet() {
+        Set<String> tokens = new LinkedHashSet<>();
+        for (String t : tokensGroupe) {
+            if (t != null && !t.isBlank()) tokens.add(t);
+        }
+        return tokens;
+    }
+
+    record Destinataire(UUID utilisateurId, long nbEvenements, String titres, String tokens)
+            implements AppareilPushRepository.DestinataireRecap {
+
+        @Override
+        public UUID getUtilisateurId() {
+            return utilisateurId;
+        }
+
+        @Override
+        public Long getNbEvenements() {
+            return nbEvenements;
+        }
+
+        @Override
+        public String getTitres() {
+            return titres;
+        }
+
+        @Override
+        public String getTokens() {
+            return tokens;
+        }
+    }
+
+    /** Lignes équivalentes à celles de la requête d'agrégation : un token par destinataire. */
+    private static List<AppareilPushRepository.DestinataireRecap> destinataires(List<Evenement> evenements) {
+        Map<UUID, List<Evenement>> parUtilisateur = new HashMap<>();
+        for (Evenement e : evenements) {
+            GroupeRunning groupe = e.getGroupe();
+            for (User m : groupe.getMembres()) {
+                parUtilisateur.computeIfAbsent(m.getId(), k -> new ArrayList<>()).add(e);
+            }
+            if (groupe.getResponsable() != null) {
+                parUtilisateur.computeIfAbsent(groupe.getResponsable().getId(), k -> new ArrayList<>()).add(e);
+            }
+        }
+        List<AppareilPushRepository.DestinataireRecap> lignes = new ArrayList<>();
+        parUtilisateur.forEach((id, liste) -> lignes.add(new Destinataire(id, liste.size(),
+                liste.stream().sorted(Comparator.comparing(Evenement::getDate).reversed()).map(Evenement::getTitre)
+                        .reduce((a, b) -> a + AppareilPushRepository.SEPARATEUR_RECAP + b).orElse(""),
+                "token-" + id)));
+        return lignes;
+    }
+}
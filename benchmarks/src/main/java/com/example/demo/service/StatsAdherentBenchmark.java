@@ -0,0 +1,103 @@
+package com.example.demo.service;
+
+import com.example.demo.benchmark.Depots;
+import com.example.demo.benchmark.DonneesSynthetiques;
+import com.example.demo.entity.StatsAdherent;
+import com.example.demo.repository.SessionCourseRepository;
+import com.example.demo.repository.StatsAdherentRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Statistiques adhérents :
+ * - ajoutIncremental : mise à jour de l'agrégat à la création d'une session ;
+ * - recalculComplet : recalcul depuis toutes les sessions d'un adhérent (ancien calcul par requête) ;
+ * - reconstructionTotale : fusion des agrégats de tous les adhérents ({@link StatsAdherentService#reconstruireTout}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StatsAdherentBenchmark {
+
+    @Param({"10000"})
+    public int nbAdherents;
+
+    @Param({"1000000"})
+    public long nbSessions;
+
+    private List<SessionCourseRepository.EffortSession> sessionsAdherent;
+    private StatsAdherent agregat;
+    private StatsAdherentService service;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        DonneesSynthetiques donnees = new DonneesSynthetiques(nbAdherents, 50, nbSessions, 0);
+        UUID premier = donnees.adherents.get(0).getId();
+        sessionsAdherent = donnees.efforts().filter(e -> e.getAdherentId().equals(premier)).toList();
+        agregat = StatsAdherent.builder().adherentId(premier).build();
+
+        List<SessionCourseRepository.AgregatSessions> agregats = new ArrayList<>(nbAdherents);
+        for (var u : donnees.adherents) {
+            agregats.add(agregat(u.getId(), donnees.getSessionsParAdherent()));
+        }
+        StatsAdherentRepository statsRepository = Depots.simuler(StatsAdherentRepository.class, Map.of(
+                "findAll", args -> List.of(),
+                "insererSiAbsent", args -> 1,
+                "saveAll", args -> args[0]));
+        SessionCourseRepository sessionRepository = Depots.simuler(SessionCourseRepository.class, Map.of(
+                "aggregateAllByAdherent", args -> agregats));
+        service = new StatsAdherentService(statsRepository, sessionRepository, null, null, null);
+    }
+
+    @Benchmark
+    public StatsAdherent ajoutIncremental() {
+        agregat.ajouterSession(10.0, 3000L);
+        return agregat;
+    }
+
+    @Benchmark
+    public StatsAdherent recalculComplet() {
+        StatsAdherent stats = StatsAdherent.builder().adherentId(agregat.getAdherentId()).build();
+        for (SessionCourseRepository.EffortSession s : sessionsAdherent) {
+            stats.ajouterSession(s.getDistanceKm(), s.getDurationSeconds());
+        }
+        return stats;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void reconstructionTotale() {
+        service.reconstruireTout();
+    }
+
+    private static SessionCourseRepository.AgregatSessions agregat(UUID adherentId, long nb) {
+        return new SessionCourseRepository.AgregatSessions() {
+            public UUID getAdherentId() { return adherentId; }
+            public Long getNbSorties() { return nb; }
+            public Double getTotalDistanceKm() { return nb * 10.0; }
+            public Long getTotalDurationSeconds() { return nb * 3000; }
+            public Long getTotalDureeMouvementSecondes() { return nb * 3000; }
+            public Double getPlusLongueSortieKm() { return 21.1; }
+            public Double getMeilleurPaceMinPerKm() { return 4.5; }
+        };
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.demo.track;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracés GPS : conversion du JSON reçu à l'enregistrement vers le format compact,
+ * et restitution en JSON (GET /api/sessions-course/{id}/track).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TrackCodecBenchmark {
+
+    /** Nombre de points (1 point/s : 3600 ≈ une heure de course). */
+    @Param({"3600", "36000"})
+    public int nbPoints;
+
+    private String json;
+    private byte[] compact;
+
+    @Setup
+    public void setup() {
+        List<TrackPoint> points = new ArrayList<>(nbPoints);
+        double lat = 36.8065;
+        double lng = 10.1815;
+        long t = 1_767_250_800_000L;
+        for (int i = 0; i < nbPoints; i++) {
+            lat += 0.00002 * Math.sin(i / 50.0);
+            lng += 0.00003 * Math.cos(i / 70.0);
+            points.add(new TrackPoint(lat, lng, t + i * 1000L, 10 + 5 * Math.sin(i / 200.0)));
+        }
+        compact = TrackCodec.encode(points);
+        json = TrackCodec.toJson(compact);
+    }
+
+    @Benchmark
+    public byte[] jsonVersCompact() {
+        return TrackCodec.fromJson(json);
+    }
+
+    @Benchmark
+    public String compactVersJson() {
+        return TrackCodec.toJson(compact);
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.demo.repository;
+
+import com.example.demo.entity.AppareilPush;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+public interface AppareilPushRepository extends JpaRepository<AppareilPush, Long> {
+
+    /** Enregistre le token (ou le rattache à l'utilisateur et rafraîchit sa dernière activité s'il existe déjà). */
+    @Modifying
+    @Query(value = "INSERT INTO appareils_push (token, utilisateur_id, date_enregistrement, derniere_activite) "
+            + "VALUES (:token, :utilisateurId, :maintenant, :maintenant) "
+            + "ON CONFLICT (token) DO UPDATE SET utilisateur_id = EXCLUDED.utilisateur_id, "
+            + "derniere_activite = EXCLUDED.derniere_activite", nativeQuery = true)
+    int enregistrer(@Param("token") String token, @Param("utilisateurId") UUID utilisateurId,
+                    @Param("maintenant") Instant maintenant);
+
+    /** Tokens actifs d'un ensemble d'utilisateurs. */
+    @Query("SELECT DISTINCT a.token FROM AppareilPush a WHERE a.utilisateur.id IN :ids AND a.derniereActivite >= :limite")
+    List<String> findTokensActifsByUtilisateurIds(@Param("ids") Collection<UUID> ids, @Param("limite") Instant limite);
+
+    /**
+     * Destinataires d'un récap, en une requête : pour chaque utilisateur ayant un appareil actif et au moins un événement
+     * entre debut (inclus) et fin (exclu) dans l'un de ses groupes (membre ou responsable), le nombre d'événements,
+     * leurs titres (du plus récent au plus ancien) et ses tokens actifs. Titres et tokens sont séparés par
+     * {@link #SEPARATEUR_RECAP}.
+     */
+    @Query(value = "WITH destinataires AS ("
+            + "SELECT ga.adherent_id AS utilisateur_id, e.id AS evenement_id, e.titre, e.date "
+            + "FROM evenements e JOIN groupe_adherents ga ON ga.groupe_id = e.groupe_id "
+            + "WHERE e.date >= :debut AND e.date < :fin "
+            + "UNION "
+            + "SELECT g.responsable_id, e.id, e.titre, e.date "
+            + "FROM evenements e JOIN groupes_running g ON g.id = e.groupe_id "
+            + "WHERE e.date >= :debut AND e.date < :fin AND g.responsable_id IS NOT NULL), "
+            + "tokens AS ("
+            + "SELECT a.utilisateur_id, string_agg(a.token, chr(31)) AS tokens FROM appareils_push a "
+            + "WHERE a.derniere_activite >= :limite "
+            + "AND a.utilisateur_id IN (SELECT utilisateur_id FROM destinataires) GROUP BY a.utilisateur_id) "
+            + "SELECT d.utilisateur_id AS utilisateurId, COUNT(*) AS nbEvenements, "
+            + "string_agg(d.titre, chr(31) ORDER BY d.date DESC) AS titres, t.tokens AS tokens "
+            + "FROM destinataires d JOIN tokens t ON t.utilisateur_id = d.utilisateur_id "
+            + "GROUP BY d.utilisateur_id, t.tokens", nativeQuery = true)
+    List<DestinataireRecap> findDestinatairesRecap(@Param("debut") Instant debut, @Param("fin") Instant fin,
+                                                   @Param("limite") Instant limite);
+
+    boolean existsByUtilisateur_IdAndDerniereActiviteGreaterThanEqual(UUID utilisateurId, Instant limite);
+
+    /** Supprime les appareils dont le token a été rejeté définitivement par FCM. */
+    @Modifying
+    @Query("DELETE FROM AppareilPush a WHERE a.token IN :tokens")
+    int deleteByTokenIn(@Param("tokens") Collection<String> tokens);
+
+    /** Supprime les appareils inactifs depuis la date limite (TTL). */
+    @Modifying
+    @Query("DELETE FROM AppareilPush a WHERE a.derniereActivite < :limite")
+    int deleteInactifs(@Param("limite") Instant limite);
+
+    @Modifying
+    @Query("DELETE FROM AppareilPush a WHERE a.utilisateur.id = :utilisateurId")
+    int deleteByUtilisateurId(@Param("utilisateurId") UUID utilisateurId);
+
+    /** Séparateur des listes agrégées par {@link #findDestinatairesRecap} (caractère de contrôle US, absent des titres). */
+    String SEPARATEUR_RECAP = "\u001F";
+
+    /** Projection : destinataire d'un récap. */
+    interface DestinataireRecap {
+        UUID getUtilisateurId();
+        Long getNbEvenements();
+        String getTitres();
+        String getTokens();
+    }
+}
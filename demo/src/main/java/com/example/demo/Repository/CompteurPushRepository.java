@@ -0,0 +1,38 @@
+package com.example.demo.repository;
+
+import com.example.demo.entity.CompteurPush;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.UUID;
+
+public interface CompteurPushRepository extends JpaRepository<CompteurPush, UUID> {
+
+    /** Ajoute les remises aux utilisateurs possédant ces tokens, un par appareil (insertion ou incrément, en une requête). */
+    @Modifying
+    @Query(value = "INSERT INTO compteurs_push (utilisateur_id, nb_remises, nb_echecs, nb_tokens_invalides, derniere_remise) "
+            + "SELECT a.utilisateur_id, COUNT(*), 0, 0, :maintenant FROM appareils_push a WHERE a.token IN (:tokens) GROUP BY a.utilisateur_id "
+            + "ON CONFLICT (utilisateur_id) DO UPDATE SET nb_remises = compteurs_push.nb_remises + EXCLUDED.nb_remises, "
+            + "derniere_remise = EXCLUDED.derniere_remise", nativeQuery = true)
+    int ajouterRemises(@Param("tokens") Collection<String> tokens, @Param("maintenant") Instant maintenant);
+
+    /** Ajoute les échecs temporaires aux utilisateurs possédant ces tokens. */
+    @Modifying
+    @Query(value = "INSERT INTO compteurs_push (utilisateur_id, nb_remises, nb_echecs, nb_tokens_invalides, dernier_echec) "
+            + "SELECT a.utilisateur_id, 0, COUNT(*), 0, :maintenant FROM appareils_push a WHERE a.token IN (:tokens) GROUP BY a.utilisateur_id "
+            + "ON CONFLICT (utilisateur_id) DO UPDATE SET nb_echecs = compteurs_push.nb_echecs + EXCLUDED.nb_echecs, "
+            + "dernier_echec = EXCLUDED.dernier_echec", nativeQuery = true)
+    int ajouterEchecs(@Param("tokens") Collection<String> tokens, @Param("maintenant") Instant maintenant);
+
+    /** Ajoute les tokens invalides aux utilisateurs qui les possèdent (avant suppression des appareils). */
+    @Modifying
+    @Query(value = "INSERT INTO compteurs_push (utilisateur_id, nb_remises, nb_echecs, nb_tokens_invalides, dernier_echec) "
+            + "SELECT a.utilisateur_id, 0, 0, COUNT(*), :maintenant FROM appareils_push a WHERE a.token IN (:tokens) GROUP BY a.utilisateur_id "
+            + "ON CONFLICT (utilisateur_id) DO UPDATE SET nb_tokens_invalides = compteurs_push.nb_tokens_invalides + EXCLUDED.nb_tokens_invalides, "
+            + "dernier_echec = EXCLUDED.dernier_echec", nativeQuery = true)
+    int ajouterTokensInvalides(@Param("tokens") Collection<String> tokens, @Param("maintenant") Instant maintenant);
+}
@@ -0,0 +1,71 @@
+package com.example.demo.repository;
+
+import com.example.demo.entity.EnvoiSessionCourse;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+public interface EnvoiSessionCourseRepository extends JpaRepository<EnvoiSessionCourse, UUID> {
+
+    /** État d'un envoi de l'adhérent (par nom d'utilisateur), sans le tracé reçu. */
+    @Query("SELECT e.id AS id, e.prochainLot AS prochainLot, e.drapeaux AS drapeaux, e.dernierLat AS dernierLat, " +
+            "e.dernierLng AS dernierLng, e.dernierTemps AS dernierTemps, e.derniereAltitude AS derniereAltitude, " +
+            "e.nbPoints AS nbPoints, e.sessionId AS sessionId " +
+            "FROM EnvoiSessionCourse e WHERE e.id = :id AND e.adherent.nom = :nom")
+    Optional<EtatEnvoi> findEtat(@Param("id") UUID id, @Param("nom") String nom);
+
+    /**
+     * Ajoute un lot : concatène ses octets au tracé et enregistre l'état de l'encodeur, si le lot est bien le prochain
+     * attendu et l'envoi encore ouvert. Retourne 0 sinon (lot reçu en parallèle).
+     */
+    @Modifying
+    @Query(value = "UPDATE envois_session_course SET track_data = track_data || :donnees, " +
+            "prochain_lot = prochain_lot + 1, drapeaux = :drapeaux, dernier_lat = :lat, dernier_lng = :lng, " +
+            "dernier_temps = :temps, derniere_altitude = :altitude, nb_points = :nbPoints, derniere_activite = :maintenant " +
+            "WHERE id = :id AND prochain_lot = :numero AND session_id IS NULL", nativeQuery = true)
+    int ajouterLot(@Param("id") UUID id, @Param("numero") int numero, @Param("donnees") byte[] donnees,
+                   @Param("drapeaux") Integer drapeaux, @Param("lat") long lat, @Param("lng") long lng,
+                   @Param("temps") long temps, @Param("altitude") long altitude, @Param("nbPoints") long nbPoints,
+                   @Param("maintenant") Instant maintenant);
+
+    /** Verrouille l'envoi pour le terminer (fins d'envoi répétées en parallèle). */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT e FROM EnvoiSessionCourse e JOIN FETCH e.adherent WHERE e.id = :id")
+    Optional<EnvoiSessionCourse> findByIdForUpdate(@Param("id") UUID id);
+
+    /** Supprime les envois sans activité depuis la date limite (abandonnés, ou terminés depuis longtemps). */
+    @Modifying
+    @Query("DELETE FROM EnvoiSessionCourse e WHERE e.derniereActivite < :limite")
+    int deleteInactifs(@Param("limite") Instant limite);
+
+    @Modifying
+    @Query("DELETE FROM EnvoiSessionCourse e WHERE e.adherent.id = :adherentId")
+    int deleteByAdherentId(@Param("adherentId") UUID adherentId);
+
+    interface EtatEnvoi {
+        UUID getId();
+
+        int getProchainLot();
+
+        Integer getDrapeaux();
+
+        long getDernierLat();
+
+        long getDernierLng();
+
+        long getDernierTemps();
+
+        long getDerniereAltitude();
+
+        long getNbPoints();
+
+        Long getSessionId();
+    }
+}
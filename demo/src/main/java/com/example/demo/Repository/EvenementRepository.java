@@ -5,9 +5,13 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.time.Instant;
 import java.util.List;
+import java.util.Optional;
 
 public interface EvenementRepository extends JpaRepository<Evenement, Long> {
 
@@ -22,9 +26,121 @@ public interface EvenementRepository extends JpaRepository<Evenement, Long> {
 
     Page<Evenement> findByTypeOrderByDateDesc(String type, Pageable pageable);
 
-    /** Événements dans la plage [debut, fin] n’ayant pas encore reçu le rappel 1h. */
-    List<Evenement> findByDateBetweenAndRappel1hEnvoyeFalseOrderByDateAsc(Instant debut, Instant fin);
+    /**
+     * Réserve le rappel 1h des événements {@code ids} qui ne l'ont pas encore reçu et dont la date est toujours
+     * celle de la planification ({@code dates}, en microsecondes depuis l'époque, au même rang que l'id),
+     * et retourne de quoi construire leur message, en un seul UPDATE ... RETURNING (réservation atomique :
+     * une instance concurrente ne récupère pas les mêmes lignes).
+     */
+    @Query(value = "UPDATE evenements e SET rappel_1h_envoye = true "
+            + "FROM unnest(CAST(:ids AS bigint[]), CAST(:dates AS bigint[])) AS r(id, date_us) "
+            + "WHERE e.id = r.id AND e.date = to_timestamp(0) + r.date_us * INTERVAL '1 microsecond' "
+            + "AND e.rappel_1h_envoye = false "
+            + "RETURNING e.id, e.titre, e.date, e.groupe_id AS groupeId", nativeQuery = true)
+    List<RappelAEnvoyer> reserverRappels1h(@Param("ids") long[] ids, @Param("dates") long[] dates);
 
-    /** Événements dans la plage [debut, fin] n’ayant pas encore reçu le rappel 24h. */
-    List<Evenement> findByDateBetweenAndRappel24hEnvoyeFalseOrderByDateAsc(Instant debut, Instant fin);
+    /** Idem pour le rappel 24h. */
+    @Query(value = "UPDATE evenements e SET rappel_24h_envoye = true "
+            + "FROM unnest(CAST(:ids AS bigint[]), CAST(:dates AS bigint[])) AS r(id, date_us) "
+            + "WHERE e.id = r.id AND e.date = to_timestamp(0) + r.date_us * INTERVAL '1 microsecond' "
+            + "AND e.rappel_24h_envoye = false "
+            + "RETURNING e.id, e.titre, e.date, e.groupe_id AS groupeId", nativeQuery = true)
+    List<RappelAEnvoyer> reserverRappels24h(@Param("ids") long[] ids, @Param("dates") long[] dates);
+
+    /** Événements à venir dont au moins un rappel reste à envoyer (chargement du planificateur de rappels). */
+    @Query("SELECT e.id AS id, e.date AS date, e.rappel1hEnvoye AS rappel1hEnvoye, e.rappel24hEnvoye AS rappel24hEnvoye "
+            + "FROM Evenement e WHERE e.date > :maintenant AND (e.rappel1hEnvoye = false OR e.rappel24hEnvoye = false)")
+    List<EtatRappels> findRappelsAPlanifier(@Param("maintenant") Instant maintenant);
+
+    @Query("SELECT e.id AS id, e.date AS date, e.rappel1hEnvoye AS rappel1hEnvoye, e.rappel24hEnvoye AS rappel24hEnvoye "
+            + "FROM Evenement e WHERE e.id = :id")
+    Optional<EtatRappels> findEtatRappelsById(@Param("id") Long id);
+
+    /**
+     * Événements localisés dans une zone : candidats lus par plages de clés de la grille (index idx_evenements_geo)
+     * couvrant la zone, puis filtre exact sur le rectangle (lngMin > lngMax : zone à cheval sur l'antiméridien).
+     * Les candidats sont matérialisés : sinon le planificateur, qui surestime la sélectivité du filtre exact,
+     * préfère parcourir toute la table.
+     */
+    String DANS_ZONE = "FROM (WITH candidats AS MATERIALIZED (SELECT e.id, e.titre, e.date, e.type, e.lieu, "
+            + "e.latitude, e.longitude, e.groupe_id FROM evenements e "
+            + "JOIN unnest(CAST(:debuts AS bigint[]), CAST(:fins AS bigint[])) AS p(debut, fin) "
+            + "ON e.geo_cle BETWEEN p.debut AND p.fin) SELECT * FROM candidats) e "
+            + "WHERE e.latitude BETWEEN :latMin AND :latMax "
+            + "AND (e.longitude BETWEEN :lngMin AND :lngMax "
+            + "OR (:lngMin > :lngMax AND (e.longitude >= :lngMin OR e.longitude <= :lngMax))) "
+            + "AND (:aVenir = false OR e.date >= :maintenant) ";
+
+    String COLONNES_PROCHE = "SELECT e.id AS id, e.titre AS titre, e.date AS date, e.type AS type, e.lieu AS lieu, "
+            + "e.latitude AS latitude, e.longitude AS longitude, e.groupe_id AS groupeId, ";
+
+    /** Événements à moins de rayonM mètres du point (distance haversine), du plus proche au plus lointain. */
+    @Query(value = "SELECT * FROM (" + COLONNES_PROCHE
+            + "2 * 6371008.8 * asin(least(1, sqrt(power(sin(radians(e.latitude - :lat) / 2), 2) "
+            + "+ cos(radians(:lat)) * cos(radians(e.latitude)) * power(sin(radians(e.longitude - :lng) / 2), 2)))) "
+            + "AS distanceM " + DANS_ZONE + ") c WHERE c.distanceM <= :rayonM ORDER BY c.distanceM LIMIT :limite",
+            nativeQuery = true)
+    List<EvenementProche> findProches(@Param("lat") double lat, @Param("lng") double lng, @Param("rayonM") double rayonM,
+                                      @Param("debuts") long[] debuts, @Param("fins") long[] fins,
+                                      @Param("latMin") double latMin, @Param("latMax") double latMax,
+                                      @Param("lngMin") double lngMin, @Param("lngMax") double lngMax,
+                                      @Param("aVenir") boolean aVenir, @Param("maintenant") Instant maintenant,
+                                      @Param("limite") int limite);
+
+    /** Événements d'une zone rectangulaire (carte affichée), du plus récent au plus ancien. */
+    @Query(value = COLONNES_PROCHE + "CAST(NULL AS double precision) AS distanceM " + DANS_ZONE
+            + "ORDER BY e.date DESC NULLS LAST, e.id LIMIT :limite", nativeQuery = true)
+    List<EvenementProche> findDansZone(@Param("debuts") long[] debuts, @Param("fins") long[] fins,
+                                       @Param("latMin") double latMin, @Param("latMax") double latMax,
+                                       @Param("lngMin") double lngMin, @Param("lngMax") double lngMax,
+                                       @Param("aVenir") boolean aVenir, @Param("maintenant") Instant maintenant,
+                                       @Param("limite") int limite);
+
+    /** Événements localisés dont la clé de grille n'est pas encore calculée (créés avant l'index spatial). */
+    @Query("SELECT e.id AS id, e.latitude AS latitude, e.longitude AS longitude FROM Evenement e "
+            + "WHERE e.geoCle IS NULL AND e.latitude IS NOT NULL AND e.longitude IS NOT NULL")
+    List<PositionAIndexer> findPositionsAIndexer();
+
+    @Modifying
+    @Query("UPDATE Evenement e SET e.geoCle = :geoCle WHERE e.id = :id")
+    int indexerPosition(@Param("id") Long id, @Param("geoCle") Long geoCle);
+
+    @Query("SELECT e.groupe.id FROM Evenement e WHERE e.id = :id")
+    Optional<Long> findGroupeIdById(@Param("id") Long id);
+
+    /** Projection : ce qu'il faut pour rédiger un rappel. */
+    interface RappelAEnvoyer {
+        Long getId();
+        String getTitre();
+        Instant getDate();
+        Long getGroupeId();
+    }
+
+    /** Projection : événement trouvé par une recherche géographique (distanceM null pour une zone rectangulaire). */
+    interface EvenementProche {
+        Long getId();
+        String getTitre();
+        Instant getDate();
+        String getType();
+        String getLieu();
+        Double getLatitude();
+        Double getLongitude();
+        Long getGroupeId();
+        Double getDistanceM();
+    }
+
+    /** Projection : coordonnées d'un événement à indexer. */
+    interface PositionAIndexer {
+        Long getId();
+        Double getLatitude();
+        Double getLongitude();
+    }
+
+    /** Projection : date d'un événement et rappels déjà envoyés. */
+    interface EtatRappels {
+        Long getId();
+        Instant getDate();
+        Boolean getRappel1hEnvoye();
+        Boolean getRappel24hEnvoye();
+    }
 }
@@ -1,5 +1,4 @@
 package com.example.demo.repository;
-import java.util.List;
 
 import com.example.demo.entity.GroupeRunning;
 import org.springframework.data.domain.Page;
@@ -8,15 +7,13 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 public interface GroupeRunningRepository extends JpaRepository<GroupeRunning, Long> {
 
-    /** Charge le groupe avec ses membres (pour les notifications FCM). */
-    @Query("SELECT DISTINCT g FROM GroupeRunning g LEFT JOIN FETCH g.membres WHERE g.id = :id")
-    Optional<GroupeRunning> findByIdWithMembres(@Param("id") Long id);
-
     Page<GroupeRunning> findByOrderByNomAsc(Pageable pageable);
 
     Page<GroupeRunning> findByNiveau(String niveau, Pageable pageable);
@@ -24,10 +21,50 @@ public interface GroupeRunningRepository extends JpaRepository<GroupeRunning, Lo
     @Query("SELECT g FROM GroupeRunning g JOIN g.membres m WHERE m.id = :adherentId")
     Page<GroupeRunning> findByMembreId(UUID adherentId, Pageable pageable);
 
-    @Query("SELECT DISTINCT g FROM GroupeRunning g LEFT JOIN FETCH g.membres WHERE g IN (SELECT g2 FROM GroupeRunning g2 JOIN g2.membres m WHERE m.id = :adherentId)")
-    List<GroupeRunning> findByMembreIdWithMembres(@Param("adherentId") UUID adherentId);
-
     Page<GroupeRunning> findByResponsableIdOrderByNomAsc(UUID responsableId, Pageable pageable);
 
     boolean existsByResponsableId(UUID responsableId);
+
+    @Query("SELECT m.id FROM GroupeRunning g JOIN g.membres m WHERE g.id = :groupeId")
+    List<UUID> findMembreIdsByGroupeId(@Param("groupeId") Long groupeId);
+
+    @Query("SELECT g.id FROM GroupeRunning g JOIN g.membres m WHERE m.id = :adherentId")
+    List<Long> findGroupeIdsByMembreId(@Param("adherentId") UUID adherentId);
+
+    @Query("SELECT g.responsable.id FROM GroupeRunning g WHERE g.id = :id")
+    Optional<UUID> findResponsableIdById(@Param("id") Long id);
+
+    /**
+     * Ajoute au groupe ceux des utilisateurs donnés qui n'en sont pas encore membres, en une seule instruction
+     * (INSERT ... SELECT) ; retourne les ids effectivement ajoutés.
+     */
+    @Query(value = "INSERT INTO groupe_adherents (groupe_id, adherent_id) "
+            + "SELECT :groupeId, u.id FROM users u WHERE u.id IN (:ids) AND NOT EXISTS ("
+            + "SELECT 1 FROM groupe_adherents ga WHERE ga.groupe_id = :groupeId AND ga.adherent_id = u.id) "
+            + "RETURNING adherent_id", nativeQuery = true)
+    List<UUID> ajouterMembres(@Param("groupeId") Long groupeId, @Param("ids") Collection<UUID> ids);
+
+    /** Retire du groupe les adhérents donnés ; retourne les ids effectivement retirés. */
+    @Query(value = "DELETE FROM groupe_adherents WHERE groupe_id = :groupeId AND adherent_id IN (:ids) "
+            + "RETURNING adherent_id", nativeQuery = true)
+    List<UUID> retirerMembres(@Param("groupeId") Long groupeId, @Param("ids") Collection<UUID> ids);
+
+    /** Retire du groupe tous les adhérents sauf ceux donnés (liste non vide) ; retourne les ids retirés. */
+    @Query(value = "DELETE FROM groupe_adherents WHERE groupe_id = :groupeId AND adherent_id NOT IN (:ids) "
+            + "RETURNING adherent_id", nativeQuery = true)
+    List<UUID> retirerMembresSauf(@Param("groupeId") Long groupeId, @Param("ids") Collection<UUID> ids);
+
+    @Query(value = "DELETE FROM groupe_adherents WHERE groupe_id = :groupeId RETURNING adherent_id", nativeQuery = true)
+    List<UUID> retirerTousLesMembres(@Param("groupeId") Long groupeId);
+
+    /** Toutes les lignes de groupe_adherents (chargement initial du matching). */
+    @Query("SELECT g.id AS groupeId, m.id AS adherentId FROM GroupeRunning g JOIN g.membres m")
+    List<Appartenance> findAllAppartenances();
+
+    /** Projection d'une ligne de groupe_adherents. */
+    interface Appartenance {
+        Long getGroupeId();
+
+        UUID getAdherentId();
+    }
 }
@@ -0,0 +1,41 @@
+package com.example.demo.repository;
+
+import com.example.demo.entity.NotificationPush;
+import com.example.demo.entity.StatutNotificationPush;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface NotificationPushRepository extends JpaRepository<NotificationPush, Long> {
+
+    /**
+     * Notifications à envoyer, les plus anciennes échéances d'abord, verrouillées pour réservation
+     * (FOR UPDATE SKIP LOCKED : les lignes déjà verrouillées par le drainage d'une autre instance sont sautées).
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT n FROM NotificationPush n WHERE n.statut = com.example.demo.entity.StatutNotificationPush.EN_ATTENTE "
+            + "AND n.prochainEssai <= :maintenant ORDER BY n.prochainEssai, n.id")
+    List<NotificationPush> findAEnvoyer(@Param("maintenant") Instant maintenant, Pageable pageable);
+
+    /** Remet en attente les notifications réservées par un worker qui ne les a jamais terminées (arrêt brutal). */
+    @Modifying
+    @Query("UPDATE NotificationPush n SET n.statut = com.example.demo.entity.StatutNotificationPush.EN_ATTENTE "
+            + "WHERE n.statut = com.example.demo.entity.StatutNotificationPush.EN_COURS AND n.dateReservation < :limite")
+    int libererReservationsExpirees(@Param("limite") Instant limite);
+
+    @Modifying
+    @Query("DELETE FROM NotificationPush n WHERE n.statut = :statut AND n.dateCreation < :limite")
+    int deleteByStatutAndDateCreationBefore(@Param("statut") StatutNotificationPush statut, @Param("limite") Instant limite);
+
+    long countByStatut(StatutNotificationPush statut);
+}
@@ -5,9 +5,14 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 public interface ParticipationRepository extends JpaRepository<Participation, Long> {
 
@@ -21,4 +26,24 @@ public interface ParticipationRepository extends JpaRepository<Participation, Lo
     Page<Participation> findByAdherentIdOrderByDateInscriptionDesc(UUID adherentId, Pageable pageable);
 
     Page<Participation> findByEvenementId(Long evenementId, Pageable pageable);
+
+    @Query("SELECT p.adherent.id FROM Participation p WHERE p.evenement.id = :evenementId")
+    List<UUID> findAdherentIdsByEvenementId(@Param("evenementId") Long evenementId);
+
+    /** Dates des événements des dernières participations d'un adhérent (jours de sortie habituels). */
+    @Query("SELECT p.adherent.id AS adherentId, e.date AS dateEvenement " +
+            "FROM Participation p JOIN p.evenement e WHERE p.adherent.id = :adherentId ORDER BY p.dateInscription DESC")
+    List<DateParticipation> findDatesByAdherentId(@Param("adherentId") UUID adherentId, Pageable pageable);
+
+    /** Toutes les participations, triées par adhérent puis inscription décroissante : chargement initial du matching. */
+    @Query("SELECT p.adherent.id AS adherentId, e.date AS dateEvenement " +
+            "FROM Participation p JOIN p.evenement e ORDER BY p.adherent.id, p.dateInscription DESC")
+    Stream<DateParticipation> streamAllDates();
+
+    /** Projection légère d'une participation : adhérent et date de l'événement. */
+    interface DateParticipation {
+        UUID getAdherentId();
+
+        Instant getDateEvenement();
+    }
 }
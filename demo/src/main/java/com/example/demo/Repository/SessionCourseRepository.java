@@ -1,19 +1,242 @@
 package com.example.demo.repository;
 
+import com.example.demo.dto.SessionCourseResumeDto;
 import com.example.demo.entity.SessionCourse;
+import com.example.demo.track.TrackAnalyseur;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 public interface SessionCourseRepository extends JpaRepository<SessionCourse, Long> {
 
     List<SessionCourse> findAllByAdherent_IdOrderByStartedAtDesc(UUID adherentId);
 
-    @org.springframework.data.jpa.repository.EntityGraph(attributePaths = {"evenement"})
-    Page<SessionCourse> findByAdherentIdOrderByStartedAtDesc(UUID adherentId, Pageable pageable);
+    /** Résumés des sessions d'un adhérent (sans tracé GPS), avec l'événement lié. */
+    @Query(value = "SELECT new com.example.demo.dto.SessionCourseResumeDto(s.id, s.distanceKm, s.durationSeconds, s.startedAt, " +
+            "e.id, e.titre, e.date, e.type, e.lieu, e.latitude, e.longitude, " +
+            "CASE WHEN s.trackData IS NOT NULL OR s.trackJson IS NOT NULL THEN true ELSE false END) " +
+            "FROM SessionCourse s LEFT JOIN s.evenement e WHERE s.adherent.id = :adherentId ORDER BY s.startedAt DESC",
+            countQuery = "SELECT COUNT(s) FROM SessionCourse s WHERE s.adherent.id = :adherentId")
+    Page<SessionCourseResumeDto> findResumesByAdherentId(@Param("adherentId") UUID adherentId, Pageable pageable);
 
-    Page<SessionCourse> findByEvenementIdOrderByStartedAtDesc(Long evenementId, Pageable pageable);
+    /** Résumés des sessions liées à un événement (sans tracé GPS). */
+    @Query(value = "SELECT new com.example.demo.dto.SessionCourseResumeDto(s.id, s.distanceKm, s.durationSeconds, s.startedAt, " +
+            "e.id, e.titre, e.date, e.type, e.lieu, e.latitude, e.longitude, " +
+            "CASE WHEN s.trackData IS NOT NULL OR s.trackJson IS NOT NULL THEN true ELSE false END) " +
+            "FROM SessionCourse s JOIN s.evenement e WHERE e.id = :evenementId ORDER BY s.startedAt DESC",
+            countQuery = "SELECT COUNT(s) FROM SessionCourse s WHERE s.evenement.id = :evenementId")
+    Page<SessionCourseResumeDto> findResumesByEvenementId(@Param("evenementId") Long evenementId, Pageable pageable);
+
+    /** Tracé seul (format compact et ancien JSON) d'une session, sans le reste de l'entité. */
+    @Query("SELECT s.trackData AS trackData, s.trackJson AS trackJson FROM SessionCourse s WHERE s.id = :id")
+    Optional<TrackBrut> findTrackById(@Param("id") Long id);
+
+    /** Niveaux simplifiés du tracé (vides si la session n'en a pas encore). */
+    @Query("SELECT s.trackApercu FROM SessionCourse s WHERE s.id = :id")
+    Optional<byte[]> findTrackApercuById(@Param("id") Long id);
+
+    @Query("SELECT s.trackMoyen FROM SessionCourse s WHERE s.id = :id")
+    Optional<byte[]> findTrackMoyenById(@Param("id") Long id);
+
+    interface TrackBrut {
+        byte[] getTrackData();
+
+        String getTrackJson();
+    }
+
+    /**
+     * Sessions dont le tracé part d'une zone : candidats lus par plages de clés de la grille
+     * (index idx_sessions_course_depart_geo) couvrant la zone, puis filtre exact sur le rectangle
+     * (lngMin > lngMax : zone à cheval sur l'antiméridien). Voir EvenementRepository.DANS_ZONE.
+     * Sauf si tous = true, seules les sessions des adhérents listés sont retenues.
+     */
+    String DEPART_DANS_ZONE = "FROM (WITH candidats AS MATERIALIZED (SELECT s.id, s.adherent_id, s.evenement_id, "
+            + "s.started_at, s.distance_km, s.duration_seconds, s.denivele_positif_m, s.depart_latitude, "
+            + "s.depart_longitude FROM sessions_course s "
+            + "JOIN unnest(CAST(:debuts AS bigint[]), CAST(:fins AS bigint[])) AS p(debut, fin) "
+            + "ON s.depart_geo_cle BETWEEN p.debut AND p.fin) SELECT * FROM candidats) s "
+            + "WHERE s.depart_latitude BETWEEN :latMin AND :latMax "
+            + "AND (s.depart_longitude BETWEEN :lngMin AND :lngMax "
+            + "OR (:lngMin > :lngMax AND (s.depart_longitude >= :lngMin OR s.depart_longitude <= :lngMax))) "
+            + "AND (:tous = true OR s.adherent_id = ANY(CAST(:adherents AS uuid[]))) ";
+
+    String COLONNES_PROCHE = "SELECT s.id AS id, s.adherent_id AS adherentId, s.evenement_id AS evenementId, "
+            + "s.started_at AS startedAt, s.distance_km AS distanceKm, s.duration_seconds AS durationSeconds, "
+            + "s.denivele_positif_m AS denivelePositifM, s.depart_latitude AS departLatitude, "
+            + "s.depart_longitude AS departLongitude, ";
+
+    /** Sessions parties à moins de rayonM mètres du point (distance haversine), de la plus proche à la plus lointaine. */
+    @Query(value = "SELECT * FROM (" + COLONNES_PROCHE
+            + "2 * 6371008.8 * asin(least(1, sqrt(power(sin(radians(s.depart_latitude - :lat) / 2), 2) "
+            + "+ cos(radians(:lat)) * cos(radians(s.depart_latitude)) "
+            + "* power(sin(radians(s.depart_longitude - :lng) / 2), 2)))) "
+            + "AS distanceM " + DEPART_DANS_ZONE + ") c WHERE c.distanceM <= :rayonM ORDER BY c.distanceM LIMIT :limite",
+            nativeQuery = true)
+    List<SessionProche> findProches(@Param("lat") double lat, @Param("lng") double lng, @Param("rayonM") double rayonM,
+                                    @Param("debuts") long[] debuts, @Param("fins") long[] fins,
+                                    @Param("latMin") double latMin, @Param("latMax") double latMax,
+                                    @Param("lngMin") double lngMin, @Param("lngMax") double lngMax,
+                                    @Param("tous") boolean tous, @Param("adherents") UUID[] adherents,
+                                    @Param("limite") int limite);
+
+    /** Sessions parties d'une zone rectangulaire (carte affichée), de la plus récente à la plus ancienne. */
+    @Query(value = COLONNES_PROCHE + "CAST(NULL AS double precision) AS distanceM " + DEPART_DANS_ZONE
+            + "ORDER BY s.started_at DESC, s.id LIMIT :limite", nativeQuery = true)
+    List<SessionProche> findDansZone(@Param("debuts") long[] debuts, @Param("fins") long[] fins,
+                                     @Param("latMin") double latMin, @Param("latMax") double latMax,
+                                     @Param("lngMin") double lngMin, @Param("lngMax") double lngMax,
+                                     @Param("tous") boolean tous, @Param("adherents") UUID[] adherents,
+                                     @Param("limite") int limite);
+
+    /** Projection : session trouvée par une recherche géographique (distanceM null pour une zone rectangulaire). */
+    interface SessionProche {
+        Long getId();
+
+        UUID getAdherentId();
+
+        Long getEvenementId();
+
+        Instant getStartedAt();
+
+        Double getDistanceKm();
+
+        Long getDurationSeconds();
+
+        Double getDenivelePositifM();
+
+        Double getDepartLatitude();
+
+        Double getDepartLongitude();
+
+        Double getDistanceM();
+    }
+
+    /** Distance / durée des dernières sessions d'un adhérent, sans charger le tracé GPS. */
+    @Query("SELECT s.adherent.id AS adherentId, s.distanceKm AS distanceKm, s.durationSeconds AS durationSeconds, " +
+            "s.paceMouvementMinKm AS paceMouvementMinKm " +
+            "FROM SessionCourse s WHERE s.adherent.id = :adherentId ORDER BY s.startedAt DESC")
+    List<EffortSession> findEffortsByAdherentId(@Param("adherentId") UUID adherentId, Pageable pageable);
+
+    /** Toutes les sessions (sans tracé), triées par adhérent puis date décroissante : chargement initial du matching. */
+    @Query("SELECT s.adherent.id AS adherentId, s.distanceKm AS distanceKm, s.durationSeconds AS durationSeconds, " +
+            "s.paceMouvementMinKm AS paceMouvementMinKm " +
+            "FROM SessionCourse s ORDER BY s.adherent.id, s.startedAt DESC")
+    Stream<EffortSession> streamAllEfforts();
+
+    /** Agrégat des sessions d'un adhérent (sans charger le tracé GPS). */
+    @Query("SELECT s.adherent.id AS adherentId, COUNT(s) AS nbSorties, SUM(s.distanceKm) AS totalDistanceKm, " +
+            "SUM(s.durationSeconds) AS totalDurationSeconds, " +
+            "SUM(COALESCE(s.dureeMouvementSecondes, s.durationSeconds)) AS totalDureeMouvementSecondes, " +
+            "MAX(s.distanceKm) AS plusLongueSortieKm, " +
+            "MIN(COALESCE(s.paceMouvementMinKm, " +
+            "CASE WHEN s.distanceKm > 0 AND s.durationSeconds > 0 THEN (s.durationSeconds / 60.0) / s.distanceKm END)) AS meilleurPaceMinPerKm " +
+            "FROM SessionCourse s WHERE s.adherent.id = :adherentId GROUP BY s.adherent.id")
+    Optional<AgregatSessions> aggregateByAdherentId(@Param("adherentId") UUID adherentId);
+
+    /** Agrégat des sessions de tous les adhérents (reconstruction de stats_adherents). */
+    @Query("SELECT s.adherent.id AS adherentId, COUNT(s) AS nbSorties, SUM(s.distanceKm) AS totalDistanceKm, " +
+            "SUM(s.durationSeconds) AS totalDurationSeconds, " +
+            "SUM(COALESCE(s.dureeMouvementSecondes, s.durationSeconds)) AS totalDureeMouvementSecondes, " +
+            "MAX(s.distanceKm) AS plusLongueSortieKm, " +
+            "MIN(COALESCE(s.paceMouvementMinKm, " +
+            "CASE WHEN s.distanceKm > 0 AND s.durationSeconds > 0 THEN (s.durationSeconds / 60.0) / s.distanceKm END)) AS meilleurPaceMinPerKm " +
+            "FROM SessionCourse s GROUP BY s.adherent.id")
+    List<AgregatSessions> aggregateAllByAdherent();
+
+    interface AgregatSessions {
+        UUID getAdherentId();
+
+        Long getNbSorties();
+
+        Double getTotalDistanceKm();
+
+        Long getTotalDurationSeconds();
+
+        Long getTotalDureeMouvementSecondes();
+
+        Double getPlusLongueSortieKm();
+
+        Double getMeilleurPaceMinPerKm();
+    }
+
+    /**
+     * Lignes dont le tracé est encore au format JSON (colonne TEXT), par id croissant ; les tracés JSON illisibles
+     * ou vides, marqués par {@link #marquerAnalyse}, sont exclus.
+     */
+    @Query("SELECT s.id AS id, s.trackJson AS trackJson FROM SessionCourse s " +
+            "WHERE s.trackData IS NULL AND s.trackJson IS NOT NULL AND s.analyseVersion IS NULL " +
+            "AND s.id > :apresId ORDER BY s.id")
+    List<TrackJsonAMigrer> findTracksJsonAMigrer(@Param("apresId") Long apresId, Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE SessionCourse s SET s.trackData = :trackData, s.trackJson = NULL WHERE s.id = :id")
+    int migrerTrack(@Param("id") Long id, @Param("trackData") byte[] trackData);
+
+    interface TrackJsonAMigrer {
+        Long getId();
+
+        String getTrackJson();
+    }
+
+    /**
+     * Tracés compacts pas encore traités par la version courante de l'analyse (sessions plus anciennes),
+     * par id croissant.
+     */
+    @Query("SELECT s.id AS id, s.trackData AS trackData FROM SessionCourse s " +
+            "WHERE s.trackData IS NOT NULL AND (s.analyseVersion IS NULL OR s.analyseVersion < " + TrackAnalyseur.VERSION + ") " +
+            "AND s.id > :apresId " +
+            "ORDER BY s.id")
+    List<TrackAAnalyser> findTracksAAnalyser(@Param("apresId") Long apresId, Pageable pageable);
+
+    interface TrackAAnalyser {
+        Long getId();
+
+        byte[] getTrackData();
+    }
+
+    @Modifying
+    @Query("UPDATE SessionCourse s SET s.trackApercu = :trackApercu, s.trackMoyen = :trackMoyen WHERE s.id = :id")
+    int enregistrerSimplifications(@Param("id") Long id, @Param("trackApercu") byte[] trackApercu,
+                                   @Param("trackMoyen") byte[] trackMoyen);
+
+    @Modifying
+    @Query("UPDATE SessionCourse s SET s.distanceGpsKm = :distanceGpsKm, s.dureeMouvementSecondes = :dureeMouvementSecondes, " +
+            "s.paceMouvementMinKm = :paceMouvementMinKm, s.vitesseMaxKmh = :vitesseMaxKmh, " +
+            "s.denivelePositifM = :denivelePositifM, s.splitsSecondes = :splitsSecondes, " +
+            "s.departLatitude = :departLatitude, s.departLongitude = :departLongitude, s.departGeoCle = :departGeoCle, " +
+            "s.analyseVersion = " + TrackAnalyseur.VERSION + " WHERE s.id = :id")
+    int enregistrerAnalyse(@Param("id") Long id, @Param("distanceGpsKm") Double distanceGpsKm,
+                           @Param("dureeMouvementSecondes") Long dureeMouvementSecondes,
+                           @Param("paceMouvementMinKm") Double paceMouvementMinKm,
+                           @Param("vitesseMaxKmh") Double vitesseMaxKmh,
+                           @Param("denivelePositifM") Double denivelePositifM,
+                           @Param("splitsSecondes") int[] splitsSecondes,
+                           @Param("departLatitude") Double departLatitude,
+                           @Param("departLongitude") Double departLongitude,
+                           @Param("departGeoCle") Long departGeoCle);
+
+    /** Marque traité un tracé illisible : il n'est relu ni à chaque passage de l'analyse ni par la migration JSON. */
+    @Modifying
+    @Query("UPDATE SessionCourse s SET s.analyseVersion = " + TrackAnalyseur.VERSION + " WHERE s.id = :id")
+    int marquerAnalyse(@Param("id") Long id);
+
+    /** Projection légère d'une session : distance, durée et pace en mouvement (null sans tracé analysé). */
+    interface EffortSession {
+        UUID getAdherentId();
+
+        Double getDistanceKm();
+
+        Long getDurationSeconds();
+
+        Double getPaceMouvementMinKm();
+    }
 }
@@ -0,0 +1,30 @@
+package com.example.demo.repository;
+
+import com.example.demo.entity.StatsAdherent;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
+import java.util.UUID;
+
+public interface StatsAdherentRepository extends JpaRepository<StatsAdherent, UUID> {
+
+    /**
+     * Crée la ligne vide de l'adhérent si elle n'existe pas ; retourne 1 si elle vient d'être créée.
+     * Deux transactions concurrentes ne se heurtent pas sur la clé : la seconde attend la première puis ne fait rien.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO stats_adherents (adherent_id, nb_sorties, total_distance_km, total_duration_seconds, "
+            + "total_duree_mouvement_secondes, plus_longue_sortie_km) VALUES (:adherentId, 0, 0, 0, 0, 0) "
+            + "ON CONFLICT (adherent_id) DO NOTHING", nativeQuery = true)
+    int insererSiAbsent(@Param("adherentId") UUID adherentId);
+
+    /** Verrouille la ligne pour une mise à jour incrémentale (sessions créées en parallèle). */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM StatsAdherent s WHERE s.adherentId = :adherentId")
+    Optional<StatsAdherent> findByIdForUpdate(@Param("adherentId") UUID adherentId);
+}
@@ -3,10 +3,13 @@ package com.example.demo.repository;
 import com.example.demo.entity.Role;
 import com.example.demo.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -27,4 +30,19 @@ public interface UserRepository extends JpaRepository<User, UUID> {
     List<User> findByRole(Role role);
 
     Page<User> findByRole(Role role, Pageable pageable);
+
+    /** Parmi les identifiants donnés, ceux qui existent (une seule requête IN). */
+    @Query("SELECT u.id FROM User u WHERE u.id IN :ids")
+    List<UUID> findIdsByIdIn(@Param("ids") Collection<UUID> ids);
+
+    /** Identité minimale (sans mot de passe ni relations) pour l'authentification JWT. */
+    @Query("SELECT u.id AS id, u.nom AS nom, u.role AS role FROM User u WHERE u.id = :id")
+    Optional<Identite> findIdentiteById(@Param("id") UUID id);
+
+    /** Projection : identité d'un utilisateur. */
+    interface Identite {
+        UUID getId();
+        String getNom();
+        Role getRole();
+    }
 }
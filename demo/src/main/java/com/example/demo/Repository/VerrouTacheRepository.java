@@ -0,0 +1,31 @@
+package com.example.demo.repository;
+
+import com.example.demo.entity.VerrouTache;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+
+public interface VerrouTacheRepository extends JpaRepository<VerrouTache, String> {
+
+    /**
+     * Prend le bail s'il est libre, expiré ou déjà détenu par ce propriétaire (insertion ou mise à jour conditionnelle,
+     * atomique) ; retourne 1 si le bail est acquis, 0 s'il est détenu par une autre instance.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO verrous_taches (nom, proprietaire, expire_le, date_acquisition) "
+            + "VALUES (:nom, :proprietaire, :expireLe, :maintenant) "
+            + "ON CONFLICT (nom) DO UPDATE SET proprietaire = EXCLUDED.proprietaire, expire_le = EXCLUDED.expire_le, "
+            + "date_acquisition = EXCLUDED.date_acquisition "
+            + "WHERE verrous_taches.expire_le <= :maintenant OR verrous_taches.proprietaire = EXCLUDED.proprietaire",
+            nativeQuery = true)
+    int acquerir(@Param("nom") String nom, @Param("proprietaire") String proprietaire,
+                 @Param("maintenant") Instant maintenant, @Param("expireLe") Instant expireLe);
+
+    /** Raccourcit le bail détenu par ce propriétaire (fin de tâche), sans descendre sous la durée minimale. */
+    @Modifying
+    @Query("UPDATE VerrouTache v SET v.expireLe = :expireLe WHERE v.nom = :nom AND v.proprietaire = :proprietaire")
+    int liberer(@Param("nom") String nom, @Param("proprietaire") String proprietaire, @Param("expireLe") Instant expireLe);
+}
@@ -1,10 +1,12 @@
 package com.example.demo.security;
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -26,6 +28,10 @@ public class JwtAuthFilter extends OncePerRequestFilter {
 
     private final JwtUtil jwtUtil;
     private final CustomUserDetailsService userDetailsService;
+    private final PrincipalCache principalCache;
+
+    @Value("${app.security.jwt-stateless:true}")
+    private boolean stateless;
 
     @Override
     protected void doFilterInternal(
@@ -41,20 +47,22 @@ public class JwtAuthFilter extends OncePerRequestFilter {
         try {
             String jwt = extractJwtFromRequest(request);
 
-            if (StringUtils.hasText(jwt) && jwtUtil.validateToken(jwt)) {
-                String username = jwtUtil.getUsernameFromToken(jwt);
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-
-                UsernamePasswordAuthenticationToken authentication =
-                        new UsernamePasswordAuthenticationToken(
-                                userDetails,
-                                null,
-                                userDetails.getAuthorities()
-                        );
-                authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                SecurityContextHolder.getContext().setAuthentication(authentication);
-            } else if (StringUtils.hasText(jwt)) {
-                log.warn("JWT présent mais invalide ou expiré pour {} (vérifiez secret, expiration ou algorithme)", request.getRequestURI());
+            if (StringUtils.hasText(jwt)) {
+                Claims claims = jwtUtil.verifier(jwt).orElse(null);
+                if (claims == null) {
+                    log.warn("JWT présent mais invalide ou expiré pour {} (vérifiez secret, expiration ou algorithme)", request.getRequestURI());
+                }
+                UserDetails userDetails = claims != null ? resoudrePrincipal(claims) : null;
+                if (userDetails != null) {
+                    UsernamePasswordAuthenticationToken authentication =
+                            new UsernamePasswordAuthenticationToken(
+                                    userDetails,
+                                    null,
+                                    userDetails.getAuthorities()
+                            );
+                    authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                    SecurityContextHolder.getContext().setAuthentication(authentication);
+                }
             }
         } catch (Exception e) {
             log.warn("Erreur lors de l'authentification JWT ({}): {}", request.getRequestURI(), e.getMessage());
@@ -63,6 +71,19 @@ public class JwtAuthFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    /**
+     * Mode sans état (défaut) : principal construit depuis la claim userId, nom et rôle courants lus
+     * dans {@link PrincipalCache} (pas de requête par appel). Sinon, ou pour un ancien token sans userId,
+     * chargement complet par nom.
+     */
+    private UserDetails resoudrePrincipal(Claims claims) {
+        UUID userId = JwtUtil.getUserId(claims);
+        if (stateless && userId != null) {
+            return principalCache.get(userId).orElse(null);
+        }
+        return userDetailsService.loadUserByUsername(claims.getSubject());
+    }
+
     private String extractJwtFromRequest(HttpServletRequest request) {
         String bearer = request.getHeader("Authorization");
         if (StringUtils.hasText(bearer) && bearer.startsWith("Bearer ")) {
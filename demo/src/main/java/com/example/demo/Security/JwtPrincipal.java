@@ -0,0 +1,53 @@
+package com.example.demo.security;
+
+import com.example.demo.entity.Role;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Utilisateur authentifié par JWT, construit sans relire la table users à chaque requête.
+ * getUsername() renvoie le nom (identifiant de connexion), comme le UserDetails chargé par {@link CustomUserDetailsService}.
+ */
+public final class JwtPrincipal implements UserDetails {
+
+    private final UUID id;
+    private final String nom;
+    private final Role role;
+    private final List<GrantedAuthority> authorities;
+
+    public JwtPrincipal(UUID id, String nom, Role role) {
+        this.id = id;
+        this.nom = nom;
+        this.role = role;
+        this.authorities = List.of(new SimpleGrantedAuthority("ROLE_" + role.name()));
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public Role getRole() {
+        return role;
+    }
+
+    @Override
+    public String getUsername() {
+        return nom;
+    }
+
+    /** Pas de mot de passe : l'authentification a déjà été faite par la signature du JWT. */
+    @Override
+    public String getPassword() {
+        return null;
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+}
@@ -1,6 +1,8 @@
 package com.example.demo.security;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
 import org.slf4j.Logger;
@@ -11,22 +13,29 @@ import org.springframework.stereotype.Component;
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
 import java.util.Date;
+import java.util.Optional;
 import java.util.UUID;
 
+/**
+ * Génération et vérification des JWT. La clé HMAC et le parser (sans état, thread-safe)
+ * sont construits une seule fois au démarrage.
+ */
 @Component
 public class JwtUtil {
 
     private static final Logger log = LoggerFactory.getLogger(JwtUtil.class);
 
-    @Value("${jwt.secret}")
-    private String secret;
+    public static final String CLAIM_USER_ID = "userId";
+    public static final String CLAIM_ROLE = "role";
 
-    @Value("${jwt.expiration-ms}")
-    private long expirationMs;
+    private final long expirationMs;
+    private final SecretKey signingKey;
+    private final JwtParser parser;
 
-    private SecretKey getSigningKey() {
-        byte[] keyBytes = secret.getBytes(StandardCharsets.UTF_8);
-        return Keys.hmacShaKeyFor(keyBytes);
+    public JwtUtil(@Value("${jwt.secret}") String secret, @Value("${jwt.expiration-ms}") long expirationMs) {
+        this.expirationMs = expirationMs;
+        this.signingKey = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        this.parser = Jwts.parser().verifyWith(signingKey).build();
     }
 
     public String generateToken(String nom, UUID userId, String role) {
@@ -35,39 +44,35 @@ public class JwtUtil {
 
         return Jwts.builder()
                 .subject(nom)
-                .claim("userId", userId.toString())
-                .claim("role", role)
+                .claim(CLAIM_USER_ID, userId.toString())
+                .claim(CLAIM_ROLE, role)
                 .issuedAt(now)
                 .expiration(expiry)
-                .signWith(getSigningKey())
+                .signWith(signingKey)
                 .compact();
     }
 
+    /** Vérifie la signature et l'expiration ; lève une JwtException si le token est invalide. */
     public Claims parseToken(String token) {
-        return Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+        return parser.parseSignedClaims(token).getPayload();
     }
 
-    public String getUsernameFromToken(String token) {
-        return parseToken(token).getSubject();
-    }
-
-    public UUID getUserIdFromToken(String token) {
-        String userId = parseToken(token).get("userId", String.class);
-        return userId != null ? UUID.fromString(userId) : null;
-    }
-
-    public boolean validateToken(String token) {
+    /**
+     * Vérifie le token et retourne ses claims en un seul parsing (vide si invalide ou expiré).
+     * À utiliser une fois par requête, puis lire les claims (sujet, userId, rôle) sur le résultat.
+     */
+    public Optional<Claims> verifier(String token) {
         try {
-            parseToken(token);
-            return true;
-        } catch (Exception e) {
+            return Optional.of(parseToken(token));
+        } catch (JwtException | IllegalArgumentException e) {
             // Log pour diagnostic (expiration, signature invalide, etc.)
             log.warn("JWT invalide: {} - {}", e.getClass().getSimpleName(), e.getMessage());
-            return false;
+            return Optional.empty();
         }
     }
+
+    public static UUID getUserId(Claims claims) {
+        String userId = claims.get(CLAIM_USER_ID, String.class);
+        return userId != null ? UUID.fromString(userId) : null;
+    }
 }
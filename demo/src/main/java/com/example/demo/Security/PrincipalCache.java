@@ -0,0 +1,93 @@
+package com.example.demo.security;
+
+import com.example.demo.event.UtilisateurChangeEvent;
+import com.example.demo.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache borné des principaux JWT (nom et rôle courants par id d'utilisateur), avec expiration.
+ * Évite une requête sur users à chaque requête authentifiée, tout en appliquant les changements de rôle
+ * et les suppressions : l'entrée est invalidée à chaque {@link UtilisateurChangeEvent}
+ * (modification, suppression, changement de mot de passe) et ne vit pas plus de app.security.cache-principal.ttl-secondes.
+ * L'invalidation est locale : avec plusieurs instances, un changement de rôle ou une suppression faits sur une
+ * autre instance ne s'applique ici qu'à l'expiration de l'entrée (au plus ttl-secondes, 60 s par défaut).
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PrincipalCache {
+
+    private final UserRepository userRepository;
+
+    @Value("${app.security.cache-principal.ttl-secondes:60}")
+    private long ttlSecondes;
+
+    @Value("${app.security.cache-principal.taille-max:10000}")
+    private int tailleMax;
+
+    private final Map<UUID, Entree> entrees = new ConcurrentHashMap<>();
+    /** Incrémentée à chaque invalidation : un chargement commencé avant n'est pas mis en cache. */
+    private final AtomicLong generation = new AtomicLong();
+
+    private record Entree(JwtPrincipal principal, long expireA) {
+    }
+
+    /** Principal courant de l'utilisateur ; vide si l'utilisateur n'existe plus. */
+    public Optional<JwtPrincipal> get(UUID userId) {
+        long maintenant = System.currentTimeMillis();
+        Entree entree = entrees.get(userId);
+        if (entree != null && entree.expireA() > maintenant) {
+            return Optional.of(entree.principal());
+        }
+        long generationLue = generation.get();
+        Optional<JwtPrincipal> principal = userRepository.findIdentiteById(userId)
+                .map(u -> new JwtPrincipal(u.getId(), u.getNom(), u.getRole()));
+        if (principal.isPresent()) {
+            if (entrees.size() >= tailleMax) {
+                evincer(maintenant);
+            }
+            Entree nouvelle = new Entree(principal.get(), maintenant + ttlSecondes * 1000);
+            entrees.put(userId, nouvelle);
+            // Invalidation pendant la lecture : la valeur est peut-être périmée, elle n'est pas gardée
+            // (vérifié après l'ajout : une invalidation concurrente retire l'entrée ou est vue ici)
+            if (generation.get() != generationLue) {
+                entrees.remove(userId, nouvelle);
+            }
+        } else {
+            entrees.remove(userId);
+        }
+        return principal;
+    }
+
+    public void invalider(UUID userId) {
+        generation.incrementAndGet();
+        entrees.remove(userId);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUtilisateurChange(UtilisateurChangeEvent event) {
+        invalider(event.userId());
+    }
+
+    /** Retire les entrées expirées, puis au besoin un quart du cache (entrées quelconques). */
+    private void evincer(long maintenant) {
+        entrees.values().removeIf(e -> e.expireA() <= maintenant);
+        int aRetirer = entrees.size() - tailleMax * 3 / 4;
+        Iterator<UUID> it = entrees.keySet().iterator();
+        while (aRetirer-- > 0 && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.demo.service;
+
+import com.example.demo.repository.AppareilPushRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Registre des appareils (tokens FCM) des utilisateurs : plusieurs appareils par utilisateur,
+ * avec date de dernière activité. Seuls les appareils actifs depuis moins de app.push.appareils.ttl-jours
+ * sont visés par les notifications ; les autres sont purgés chaque nuit.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AppareilPushService {
+
+    private final AppareilPushRepository appareilPushRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final VerrouTacheService verrouTacheService;
+
+    @Value("${app.push.appareils.ttl-jours:60}")
+    private int ttlJours;
+
+    /** Enregistre (ou rafraîchit) le token d'un appareil de l'utilisateur, sans toucher à la ligne users. */
+    @Transactional
+    public void enregistrer(UUID utilisateurId, String token) {
+        appareilPushRepository.enregistrer(token, utilisateurId, Instant.now());
+    }
+
+    @Transactional(readOnly = true)
+    public Set<String> tokensDesUtilisateurs(Collection<UUID> utilisateurIds) {
+        if (utilisateurIds.isEmpty()) return Set.of();
+        return filtrer(appareilPushRepository.findTokensActifsByUtilisateurIds(utilisateurIds, limiteActivite()));
+    }
+
+    /** Destinataires d'un récap (événements du [debut, fin[ et tokens actifs par utilisateur), en une requête. */
+    @Transactional(readOnly = true)
+    public List<AppareilPushRepository.DestinataireRecap> destinatairesRecap(Instant debut, Instant fin) {
+        return appareilPushRepository.findDestinatairesRecap(debut, fin, limiteActivite());
+    }
+
+    @Transactional(readOnly = true)
+    public boolean aUnAppareilActif(UUID utilisateurId) {
+        return appareilPushRepository.existsByUtilisateur_IdAndDerniereActiviteGreaterThanEqual(utilisateurId, limiteActivite());
+    }
+
+    /** Supprime les appareils dont le token a été rejeté définitivement. */
+    @Transactional
+    public int supprimerTokens(Collection<String> tokens) {
+        return tokens.isEmpty() ? 0 : appareilPushRepository.deleteByTokenIn(tokens);
+    }
+
+    @Transactional
+    public void supprimerAppareilsDe(UUID utilisateurId) {
+        appareilPushRepository.deleteByUtilisateurId(utilisateurId);
+    }
+
+    @Scheduled(cron = "${app.push.appareils.cron-purge:0 15 4 * * *}")
+    @Transactional
+    public void purgerInactifs() {
+        verrouTacheService.executerSeul("purge-appareils", Duration.ofMinutes(30), Duration.ofMinutes(5), () -> {
+            int supprimes = appareilPushRepository.deleteInactifs(limiteActivite());
+            log.info("Push: {} appareil(s) inactif(s) depuis plus de {} jours supprimé(s)", supprimes, ttlJours);
+        });
+    }
+
+    /**
+     * Reprise des tokens de l'ancienne colonne users.fcm_token (un seul appareil par utilisateur)
+     * dans appareils_push, puis vidage de la colonne. Sans effet si la colonne n'existe pas ou est vide.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void reprendreAnciensTokens() {
+        Integer colonne = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM information_schema.columns WHERE table_name = 'users' AND column_name = 'fcm_token'",
+                Integer.class);
+        if (colonne == null || colonne == 0) return;
+        int repris = jdbcTemplate.update(
+                "INSERT INTO appareils_push (token, utilisateur_id, date_enregistrement, derniere_activite) "
+                        + "SELECT fcm_token, id, now(), now() FROM users WHERE fcm_token IS NOT NULL AND fcm_token <> '' "
+                        + "ON CONFLICT (token) DO NOTHING");
+        jdbcTemplate.update("UPDATE users SET fcm_token = NULL WHERE fcm_token IS NOT NULL");
+        if (repris > 0) {
+            log.info("Push: {} token(s) repris de users.fcm_token vers appareils_push", repris);
+        }
+    }
+
+    private Instant limiteActivite() {
+        return Instant.now().minus(ttlJours, ChronoUnit.DAYS);
+    }
+
+    private static Set<String> filtrer(Collection<String> tokens) {
+        Set<String> resultat = new LinkedHashSet<>();
+        for (String t : tokens) {
+            if (t != null && !t.isBlank()) {
+                resultat.add(t);
+            }
+        }
+        return resultat;
+    }
+}
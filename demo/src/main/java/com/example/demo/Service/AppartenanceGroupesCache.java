@@ -0,0 +1,100 @@
+package com.example.demo.service;
+
+import com.example.demo.event.GroupeMembresChangeEvent;
+import com.example.demo.repository.GroupeRunningRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Cache en lecture des appartenances aux groupes (table groupe_adherents) : membres et responsable de chaque groupe,
+ * groupes de chaque adhérent. Les entrées sont chargées à la première lecture, invalidées après commit de tout
+ * changement de groupe ({@link GroupeMembresChangeEvent}, traité avant les autres écouteurs) et expirent après
+ * app.groupes.cache-ttl-secondes (changements faits par une autre instance).
+ * Les valeurs sont compactes et immuables : ensembles {@link Set#copyOf} et tableaux triés d'ids.
+ */
+@Component
+@RequiredArgsConstructor
+public class AppartenanceGroupesCache {
+
+    private final GroupeRunningRepository groupeRunningRepository;
+
+    @Value("${app.groupes.cache-ttl-secondes:300}")
+    private long ttlSecondes = 300;
+
+    private final Map<Long, Entree<MembresGroupe>> groupes = new ConcurrentHashMap<>();
+    private final Map<UUID, Entree<long[]>> adherents = new ConcurrentHashMap<>();
+    /** Incrémentée à chaque invalidation : un chargement commencé avant n'est pas mis en cache. */
+    private final AtomicLong generation = new AtomicLong();
+
+    /** Membres d'un groupe et son responsable (null si aucun). Groupe inexistant : aucun membre. */
+    public record MembresGroupe(UUID responsableId, Set<UUID> membres) {
+
+        /** Membres et responsable : destinataires des notifications du groupe. */
+        public Set<UUID> destinataires() {
+            if (responsableId == null || membres.contains(responsableId)) return membres;
+            Set<UUID> tous = new HashSet<>(membres);
+            tous.add(responsableId);
+            return tous;
+        }
+    }
+
+    private record Entree<T>(T valeur, long expireLe) {
+    }
+
+    public MembresGroupe groupe(Long groupeId) {
+        return lire(groupes, groupeId, () -> new MembresGroupe(
+                groupeRunningRepository.findResponsableIdById(groupeId).orElse(null),
+                Set.copyOf(groupeRunningRepository.findMembreIdsByGroupeId(groupeId))));
+    }
+
+    public Set<UUID> membres(Long groupeId) {
+        return groupe(groupeId).membres();
+    }
+
+    /** Ids des groupes de l'adhérent, triés. Tableau partagé : ne pas le modifier. */
+    public long[] groupesDe(UUID adherentId) {
+        return lire(adherents, adherentId, () -> groupeRunningRepository.findGroupeIdsByMembreId(adherentId).stream()
+                .mapToLong(Long::longValue)
+                .sorted()
+                .toArray());
+    }
+
+    /**
+     * Après commit d'un changement de groupe : retire le groupe et vide les groupes par adhérent
+     * (les changements sont rares et les nouveaux membres ne sont pas connus ici).
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onGroupeMembresChange(GroupeMembresChangeEvent event) {
+        generation.incrementAndGet();
+        groupes.remove(event.groupeId());
+        adherents.clear();
+    }
+
+    private <K, T> T lire(Map<K, Entree<T>> cache, K cle, Supplier<T> chargement) {
+        long maintenant = System.nanoTime();
+        Entree<T> entree = cache.get(cle);
+        if (entree != null && entree.expireLe() - maintenant > 0) {
+            return entree.valeur();
+        }
+        long generationLue = generation.get();
+        T valeur = chargement.get();
+        if (generation.get() == generationLue) {
+            cache.put(cle, new Entree<>(valeur, maintenant + TimeUnit.SECONDS.toNanos(ttlSecondes)));
+        }
+        return valeur;
+    }
+}
@@ -6,11 +6,13 @@ import com.example.demo.dto.LoginResponse;
 import com.example.demo.dto.RegisterRequest;
 import com.example.demo.entity.Role;
 import com.example.demo.entity.User;
+import com.example.demo.event.UtilisateurChangeEvent;
 import com.example.demo.exception.ResourceNotFoundException;
 import com.example.demo.repository.UserRepository;
 import com.example.demo.security.JwtUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
@@ -24,6 +26,8 @@ public class AuthService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final JwtUtil jwtUtil;
+    private final AppareilPushService appareilPushService;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Connexion : nom + mot de passe (3 derniers chiffres du CIN).
@@ -100,14 +104,13 @@ public class AuthService {
     }
 
     /**
-     * Enregistre le token FCM pour les notifications push.
+     * Enregistre le token FCM de l'appareil pour les notifications push (un utilisateur peut en avoir plusieurs).
      */
     @Transactional
     public void registerFcmToken(String nom, String fcmToken) {
         User user = userRepository.findByNom(nom)
                 .orElseThrow(() -> new ResourceNotFoundException("Utilisateur", nom));
-        user.setFcmToken(fcmToken);
-        userRepository.save(user);
+        appareilPushService.enregistrer(user.getId(), fcmToken);
         String prefix = fcmToken != null && fcmToken.length() > 20 ? fcmToken.substring(0, 20) + "..." : fcmToken;
         log.info("FCM: token enregistré pour utilisateur \"{}\" ({}), préfixe: {}", nom, user.getId(), prefix);
     }
@@ -150,6 +153,7 @@ public class AuthService {
         user.setPassword(passwordEncoder.encode(newPwd));
         user.setPasswordChangeRequired(false);
         userRepository.save(user);
+        eventPublisher.publishEvent(new UtilisateurChangeEvent(user.getId()));
         log.info("Mot de passe changé pour l'utilisateur \"{}\"", username);
     }
 
@@ -164,6 +168,7 @@ public class AuthService {
         user.setPassword(passwordEncoder.encode(newPassword));
         user.setPasswordChangeRequired(false);
         userRepository.save(user);
+        eventPublisher.publishEvent(new UtilisateurChangeEvent(user.getId()));
         log.warn("DEV: mot de passe réinitialisé pour \"{}\"", nom);
     }
 }
@@ -0,0 +1,46 @@
+package com.example.demo.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Diffusion de notifications push à un groupe ou à un ensemble d'utilisateurs.
+ * Les destinataires d'un groupe viennent du cache des appartenances ({@link AppartenanceGroupesCache}) ;
+ * leurs tokens actifs sont résolus par une seule requête (quel que soit le nombre de membres) puis mis en file dans l'outbox ({@link NotificationOutboxService}), envoyée en tâche de fond.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DiffusionPushService {
+
+    private final AppareilPushService appareilPushService;
+    private final NotificationOutboxService notificationOutboxService;
+    private final AppartenanceGroupesCache appartenanceGroupesCache;
+
+    /** Envoie une notification à tous les membres d'un groupe et à son responsable. Retourne le nombre de tokens visés. */
+    @Transactional
+    public int envoyerAuGroupe(Long groupeId, String titre, String corps) {
+        return envoyerAuxUtilisateurs(appartenanceGroupesCache.groupe(groupeId).destinataires(), titre, corps);
+    }
+
+    /** Envoie une notification à un ensemble d'utilisateurs. Retourne le nombre de tokens visés. */
+    @Transactional
+    public int envoyerAuxUtilisateurs(Collection<UUID> userIds, String titre, String corps) {
+        if (userIds == null || userIds.isEmpty()) {
+            return 0;
+        }
+        return notificationOutboxService.enfiler(appareilPushService.tokensDesUtilisateurs(userIds), titre, corps);
+    }
+
+    /** Envoie une notification à tous les appareils actifs d'un utilisateur. Retourne le nombre de tokens visés. */
+    @Transactional
+    public int envoyerAUtilisateur(UUID userId, String titre, String corps) {
+        return envoyerAuxUtilisateurs(List.of(userId), titre, corps);
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.EnvoiSessionCourseDto;
+import com.example.demo.dto.EnvoiSessionCourseRequest;
+import com.example.demo.dto.FinEnvoiSessionCourseRequest;
+import com.example.demo.entity.EnvoiSessionCourse;
+import com.example.demo.entity.Evenement;
+import com.example.demo.entity.SessionCourse;
+import com.example.demo.entity.User;
+import com.example.demo.exception.LotHorsSequenceException;
+import com.example.demo.exception.ResourceNotFoundException;
+import com.example.demo.repository.EnvoiSessionCourseRepository;
+import com.example.demo.repository.EvenementRepository;
+import com.example.demo.repository.UserRepository;
+import com.example.demo.track.TrackAnalyseur;
+import com.example.demo.track.TrackCodec;
+import com.example.demo.track.TrackEncoder;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.core.JacksonException;
+import tools.jackson.core.JsonParser;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Envoi par lots des sessions de course ({@link EnvoiSessionCourse}) : ouverture, ajout de lots de points, fin.
+ * Chaque lot est lu en flux depuis le corps de la requête et encodé à la suite du tracé déjà reçu ; seuls ses octets
+ * compacts sont gardés en mémoire, puis concaténés en base en une requête. Le corps est lu hors transaction
+ * (pas de connexion tenue pendant un envoi lent).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class EnvoiSessionCourseService {
+
+    private final EnvoiSessionCourseRepository envoiSessionCourseRepository;
+    private final UserRepository userRepository;
+    private final EvenementRepository evenementRepository;
+    private final SessionCourseService sessionCourseService;
+    private final VerrouTacheService verrouTacheService;
+    private final TransactionTemplate transactionTemplate;
+
+    /** Nombre maximal de points d'un envoi (~28 h à un point par seconde). */
+    @Value("${app.sessions.envois.max-points:100000}")
+    private long maxPoints;
+
+    @Value("${app.sessions.envois.expiration-heures:48}")
+    private long expirationHeures;
+
+    @Transactional
+    public EnvoiSessionCourseDto ouvrir(String username, EnvoiSessionCourseRequest request) {
+        User adherent = userRepository.findByNom(username)
+                .orElseThrow(() -> new ResourceNotFoundException("User", username));
+        Evenement evenement = null;
+        if (request.getEvenementId() != null) {
+            evenement = evenementRepository.findById(request.getEvenementId())
+                    .orElse(null);
+        }
+        Instant maintenant = Instant.now();
+        EnvoiSessionCourse envoi = envoiSessionCourseRepository.save(EnvoiSessionCourse.builder()
+                .adherent(adherent)
+                .evenement(evenement)
+                .startedAt(request.getStartedAt())
+                .trackData(new byte[0])
+                .dateCreation(maintenant)
+                .derniereActivite(maintenant)
+                .build());
+        return EnvoiSessionCourseDto.builder().id(envoi.getId()).build();
+    }
+
+    public EnvoiSessionCourseDto etat(UUID envoiId, String username) {
+        return toDto(findEtat(envoiId, username));
+    }
+
+    /**
+     * Ajoute le lot {@code numero} (tableau JSON de points, comme le tracé de SessionCourseRequest).
+     * Un lot déjà reçu est ignoré ; un lot en avance sur le prochain attendu est refusé
+     * ({@link LotHorsSequenceException}, le client reprend au lot indiqué).
+     */
+    public EnvoiSessionCourseDto ajouterLot(UUID envoiId, int numero, InputStream corps, String username) throws IOException {
+        EnvoiSessionCourseRepository.EtatEnvoi etat = findEtat(envoiId, username);
+        if (etat.getSessionId() != null) {
+            throw new LotHorsSequenceException("Envoi déjà terminé", etat.getProchainLot());
+        }
+        if (numero < etat.getProchainLot()) {
+            return toDto(etat); // lot déjà reçu (renvoi après coupure)
+        }
+        if (numero > etat.getProchainLot()) {
+            throw new LotHorsSequenceException("Lot " + numero + " reçu avant le lot " + etat.getProchainLot(),
+                    etat.getProchainLot());
+        }
+
+        ByteArrayOutputStream octets = new ByteArrayOutputStream();
+        TrackEncoder encoder = TrackEncoder.reprise(octets, etatEncodeur(etat));
+        // Limite vérifiée point par point : un corps démesuré est refusé sans être lu ni encodé en entier
+        try (JsonParser parser = JsonMapper.shared().createParser(corps)) {
+            TrackCodec.copierJson(parser, encoder, p -> {
+                if (encoder.getNbPoints() > maxPoints) {
+                    throw new IllegalArgumentException("Tracé GPS trop long (plus de " + maxPoints + " points)");
+                }
+            });
+        } catch (JacksonException e) {
+            throw new IllegalArgumentException("Tracé GPS invalide : " + e.getOriginalMessage());
+        }
+        // Pas de encoder.close() : il écrirait un en-tête pour un premier lot vide
+
+        TrackEncoder.Etat suite = encoder.getEtat();
+        byte[] donnees = octets.toByteArray();
+        Integer ajoute = transactionTemplate.execute(status -> suite == null
+                ? envoiSessionCourseRepository.ajouterLot(envoiId, numero, donnees, null, 0, 0, 0, 0, 0, Instant.now())
+                : envoiSessionCourseRepository.ajouterLot(envoiId, numero, donnees, suite.drapeaux(), suite.lat(),
+                        suite.lng(), suite.temps(), suite.altitude(), suite.nbPoints(), Instant.now()));
+        if (ajoute == null || ajoute == 0) {
+            // Même lot reçu en parallèle (renvoi), ou envoi terminé entre-temps
+            return etat(envoiId, username);
+        }
+        return EnvoiSessionCourseDto.builder()
+                .id(envoiId)
+                .prochainLot(numero + 1)
+                .nbPoints(encoder.getNbPoints())
+                .build();
+    }
+
+    /** Termine l'envoi et crée la session ; une fin répétée retourne la session déjà créée. */
+    @Transactional
+    public SessionCourse terminer(UUID envoiId, String username, FinEnvoiSessionCourseRequest request) {
+        EnvoiSessionCourse envoi = envoiSessionCourseRepository.findByIdForUpdate(envoiId)
+                .filter(e -> e.getAdherent().getNom().equals(username))
+                .orElseThrow(() -> new ResourceNotFoundException("Envoi de session", envoiId));
+        if (envoi.getSessionId() != null) {
+            return sessionCourseService.findById(envoi.getSessionId());
+        }
+        byte[] trackData = envoi.getNbPoints() > 0 ? envoi.getTrackData() : null;
+        SessionCourse session = SessionCourse.builder()
+                .adherent(envoi.getAdherent())
+                .evenement(envoi.getEvenement())
+                .distanceKm(request.getDistanceKm())
+                .durationSeconds(request.getDurationSeconds())
+                .startedAt(envoi.getStartedAt())
+                .trackData(trackData)
+                .build();
+        session = sessionCourseService.enregistrer(session,
+                trackData != null ? TrackAnalyseur.analyser(trackData) : null);
+        envoi.setSessionId(session.getId());
+        envoi.setTrackData(new byte[0]);
+        envoi.setDerniereActivite(Instant.now());
+        return session;
+    }
+
+    @Scheduled(cron = "${app.sessions.envois.cron-purge:0 30 4 * * *}")
+    @Transactional
+    public void purgerInactifs() {
+        verrouTacheService.executerSeul("purge-envois-sessions", Duration.ofMinutes(30), Duration.ofMinutes(5), () -> {
+            int supprimes = envoiSessionCourseRepository.deleteInactifs(Instant.now().minus(Duration.ofHours(expirationHeures)));
+            log.info("Sessions: {} envoi(s) par lots inactif(s) depuis plus de {} h supprimé(s)", supprimes, expirationHeures);
+        });
+    }
+
+    private EnvoiSessionCourseRepository.EtatEnvoi findEtat(UUID envoiId, String username) {
+        return envoiSessionCourseRepository.findEtat(envoiId, username)
+                .orElseThrow(() -> new ResourceNotFoundException("Envoi de session", envoiId));
+    }
+
+    private static TrackEncoder.Etat etatEncodeur(EnvoiSessionCourseRepository.EtatEnvoi etat) {
+        if (etat.getDrapeaux() == null) {
+            return null;
+        }
+        return new TrackEncoder.Etat(etat.getDrapeaux(), etat.getDernierLat(), etat.getDernierLng(),
+                etat.getDernierTemps(), etat.getDerniereAltitude(), etat.getNbPoints());
+    }
+
+    private static EnvoiSessionCourseDto toDto(EnvoiSessionCourseRepository.EtatEnvoi etat) {
+        return EnvoiSessionCourseDto.builder()
+                .id(etat.getId())
+                .prochainLot(etat.getProchainLot())
+                .nbPoints(etat.getNbPoints())
+                .sessionId(etat.getSessionId())
+                .build();
+    }
+}
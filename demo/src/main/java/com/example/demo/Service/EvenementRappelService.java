@@ -1,29 +1,27 @@
 package com.example.demo.service;
 
-import com.example.demo.entity.Evenement;
-import com.example.demo.entity.GroupeRunning;
-import com.example.demo.entity.User;
+import com.example.demo.repository.AppareilPushRepository;
 import com.example.demo.repository.EvenementRepository;
-import com.example.demo.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.*;
 import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.stream.Collectors;
 
 /**
  * Envoie les rappels et récaps push automatiques :
- * - Rappel 1h avant : événements dans la prochaine heure.
- * - Rappel 24h avant : événements du lendemain (exécuté à 20h).
+ * - Rappels 1h et 24h avant : déclenchés à l'heure exacte par {@link RappelScheduler} ;
+ *   les indicateurs rappel_1h_envoye / rappel_24h_envoye restent la référence (pas de doublon, reprise au redémarrage).
  * - Récap quotidien : événements du jour (exécuté à 7h).
  * - Récap hebdomadaire : événements de la semaine (exécuté le lundi à 8h).
+ * Avec plusieurs instances, chaque récap n'est envoyé que par celle qui obtient le bail (verrous_taches).
  */
 @Service
 @RequiredArgsConstructor
@@ -31,8 +29,11 @@ import java.util.stream.Collectors;
 public class EvenementRappelService {
 
     private final EvenementRepository evenementRepository;
-    private final UserRepository userRepository;
-    private final FcmService fcmService;
+    private final AppareilPushService appareilPushService;
+    private final NotificationOutboxService notificationOutboxService;
+    private final PushSender pushSender;
+    private final DiffusionPushService diffusionPushService;
+    private final VerrouTacheService verrouTacheService;
 
     @Value("${app.rappels.activer:true}")
     private boolean rappelsActiver;
@@ -45,132 +46,126 @@ public class EvenementRappelService {
 
     private static final ZoneId ZONE = ZoneId.systemDefault();
 
+    /** Bail des récaps : une seule instance les envoie ; durée minimale pour absorber un décalage d'horloge. */
+    private static final Duration DUREE_MAX_RECAP = Duration.ofMinutes(30);
+    private static final Duration DUREE_MIN_RECAP = Duration.ofMinutes(5);
+
     private static final DateTimeFormatter HEURE_FORMAT = DateTimeFormatter.ofPattern("HH'h'mm")
             .withZone(ZoneId.systemDefault());
 
-    @Scheduled(cron = "${app.rappels.cron-1h:0 15 * * * *}")
-    @Transactional
-    public void envoyerRappels1h() {
-        if (!rappelsActiver || !fcmService.isInitialized()) return;
-
-        Instant now = Instant.now();
-        Instant in1h = now.plusSeconds(3600);
-        List<Evenement> events = evenementRepository.findByDateBetweenAndRappel1hEnvoyeFalseOrderByDateAsc(now, in1h);
-        for (Evenement e : events) {
-            envoyerRappel(e, "Dans moins d'1h", "Rappel : " + e.getTitre() + " à " + formatHeure(e.getDate()));
-            e.setRappel1hEnvoye(true);
+    /** Type de rappel : délai avant l'événement et préfixe du titre. */
+    public enum TypeRappel {
+        H1(Duration.ofHours(1), "Dans moins d'1h"),
+        H24(Duration.ofHours(24), "Demain");
+
+        private final Duration avance;
+        private final String titre;
+
+        TypeRappel(Duration avance, String titre) {
+            this.avance = avance;
+            this.titre = titre;
         }
-        if (!events.isEmpty()) evenementRepository.saveAll(events);
-        if (!events.isEmpty()) {
-            log.info("Rappels 1h: {} événement(s) notifié(s)", events.size());
+
+        public Duration getAvance() {
+            return avance;
         }
     }
 
-    @Scheduled(cron = "${app.rappels.cron-24h:0 0 20 * * *}")
+    public boolean isRappelsActives() {
+        return rappelsActiver;
+    }
+
+    /**
+     * Envoie les rappels {@code type} des événements {@code datesAttendues} (id → date lors de la planification)
+     * qui ne l'ont pas encore reçu et n'ont pas été déplacés (sinon le planificateur a reçu la nouvelle échéance).
+     * Les indicateurs sont d'abord réservés par une seule mise à jour conditionnelle : si plusieurs instances
+     * planifient le même rappel, une seule l'envoie (réservation et mise en outbox sont validées ensemble).
+     * Retourne les ids des événements notifiés.
+     */
     @Transactional
-    public void envoyerRappels24h() {
-        if (!rappelsActiver || !fcmService.isInitialized()) return;
-
-        Instant now = Instant.now();
-        Instant in24hMin = now.plusSeconds(23 * 3600);   // 23h
-        Instant in24hMax = now.plusSeconds(25 * 3600);  // 25h
-        List<Evenement> events = evenementRepository.findByDateBetweenAndRappel24hEnvoyeFalseOrderByDateAsc(in24hMin, in24hMax);
-        for (Evenement e : events) {
-            envoyerRappel(e, "Demain", "Rappel : " + e.getTitre() + " à " + formatHeure(e.getDate()));
-            e.setRappel24hEnvoye(true);
+    public List<Long> envoyerRappels(TypeRappel type, Map<Long, Instant> datesAttendues) {
+        if (!rappelsActiver || !pushSender.isDisponible() || datesAttendues.isEmpty()) return List.of();
+        long[] ids = new long[datesAttendues.size()];
+        long[] dates = new long[ids.length];
+        int i = 0;
+        for (Map.Entry<Long, Instant> e : datesAttendues.entrySet()) {
+            ids[i] = e.getKey();
+            dates[i++] = ChronoUnit.MICROS.between(Instant.EPOCH, e.getValue());
         }
-        if (!events.isEmpty()) evenementRepository.saveAll(events);
-        if (!events.isEmpty()) {
-            log.info("Rappels 24h: {} événement(s) notifié(s)", events.size());
+        List<EvenementRepository.RappelAEnvoyer> rappels = type == TypeRappel.H1
+                ? evenementRepository.reserverRappels1h(ids, dates)
+                : evenementRepository.reserverRappels24h(ids, dates);
+        rappels.forEach(r -> envoyerRappel(r, type));
+        if (!rappels.isEmpty()) {
+            log.info("Rappels {}: {} événement(s) notifié(s)", type, rappels.size());
         }
+        return rappels.stream().map(EvenementRepository.RappelAEnvoyer::getId).toList();
     }
 
     @Scheduled(cron = "${app.rappels.cron-recap-quotidien:0 0 7 * * *}")
-    @Transactional(readOnly = true)
+    @Transactional
     public void envoyerRecapQuotidien() {
-        if (!recapQuotidienActiver || !fcmService.isInitialized()) return;
+        if (!recapQuotidienActiver || !pushSender.isDisponible()) return;
 
         ZonedDateTime now = ZonedDateTime.now(ZONE);
         Instant debut = now.toLocalDate().atStartOfDay(ZONE).toInstant();
         Instant fin = now.toLocalDate().plusDays(1).atStartOfDay(ZONE).toInstant();
-        envoyerRecap(debut, fin, "Vos événements aujourd'hui", "événement(s) aujourd'hui");
+        verrouTacheService.executerSeul("recap-quotidien", DUREE_MAX_RECAP, DUREE_MIN_RECAP,
+                () -> envoyerRecap(debut, fin, "Vos événements aujourd'hui", "événement(s) aujourd'hui"));
     }
 
     @Scheduled(cron = "${app.rappels.cron-recap-hebdomadaire:0 0 8 ? * MON}")
-    @Transactional(readOnly = true)
+    @Transactional
     public void envoyerRecapHebdomadaire() {
-        if (!recapHebdomadaireActiver || !fcmService.isInitialized()) return;
+        if (!recapHebdomadaireActiver || !pushSender.isDisponible()) return;
 
         ZonedDateTime now = ZonedDateTime.now(ZONE);
         LocalDate monday = now.toLocalDate().with(DayOfWeek.MONDAY);
         LocalDate nextMonday = monday.plusWeeks(1);
         Instant debut = monday.atStartOfDay(ZONE).toInstant();
         Instant fin = nextMonday.atStartOfDay(ZONE).toInstant();
-        envoyerRecap(debut, fin, "Événements de la semaine", "événement(s) cette semaine");
+        verrouTacheService.executerSeul("recap-hebdomadaire", DUREE_MAX_RECAP, DUREE_MIN_RECAP,
+                () -> envoyerRecap(debut, fin, "Événements de la semaine", "événement(s) cette semaine"));
     }
 
-    private void envoyerRecap(Instant debut, Instant fin, String titrePrefix, String bodySuffix) {
-        var page = evenementRepository.findByDateBetweenOrderByDateDesc(debut, fin, PageRequest.of(0, 200));
-        List<Evenement> events = page.getContent();
-        if (events.isEmpty()) return;
-
-        Map<UUID, List<Evenement>> userToEvents = new HashMap<>();
-        for (Evenement e : events) {
-            GroupeRunning groupe = e.getGroupe();
-            for (User m : groupe.getMembres()) {
-                userToEvents.computeIfAbsent(m.getId(), k -> new ArrayList<>()).add(e);
-            }
-            if (groupe.getResponsable() != null) {
-                userToEvents.computeIfAbsent(groupe.getResponsable().getId(), k -> new ArrayList<>()).add(e);
-            }
-        }
-
-        int sent = 0;
-        for (Map.Entry<UUID, List<Evenement>> entry : userToEvents.entrySet()) {
-            User user = userRepository.findById(entry.getKey()).orElse(null);
-            if (user == null || user.getFcmToken() == null || user.getFcmToken().isBlank()) continue;
+    /**
+     * Récap des événements du [debut, fin[ : destinataires, titres et tokens lus en une seule requête d'agrégation,
+     * puis un message par contenu distinct (les membres d'un même groupe reçoivent en général le même récap),
+     * mis en outbox et envoyé en multicast par les workers.
+     */
+    private void envoyerRecap(Instant debut, Instant fin, String titre, String bodySuffix) {
+        List<AppareilPushRepository.DestinataireRecap> destinataires = appareilPushService.destinatairesRecap(debut, fin);
+        if (destinataires.isEmpty()) return;
+
+        Map<String, Set<String>> tokensParMessage = messagesRecap(destinataires, bodySuffix);
+        tokensParMessage.forEach((body, tokens) -> notificationOutboxService.enfiler(tokens, titre, body));
+        log.info("Récap: {} utilisateur(s) notifié(s), {} message(s) distinct(s)", destinataires.size(), tokensParMessage.size());
+    }
 
-            List<Evenement> userEvents = entry.getValue();
-            String titres = userEvents.stream()
-                    .map(Evenement::getTitre)
+    /** Corps du récap de chaque destinataire (5 premiers titres distincts) et tokens à qui l'envoyer, par corps. */
+    static Map<String, Set<String>> messagesRecap(List<AppareilPushRepository.DestinataireRecap> destinataires,
+                                                   String bodySuffix) {
+        Map<String, Set<String>> tokensParMessage = new LinkedHashMap<>();
+        for (AppareilPushRepository.DestinataireRecap d : destinataires) {
+            String titres = Arrays.stream(d.getTitres().split(AppareilPushRepository.SEPARATEUR_RECAP))
                     .distinct()
                     .limit(5)
                     .collect(Collectors.joining(", "));
-            if (userEvents.size() > 5) titres += "...";
+            if (d.getNbEvenements() > 5) titres += "...";
 
-            String titre = titrePrefix;
-            String body = userEvents.size() + " " + bodySuffix + " : " + titres;
-            fcmService.sendToTokens(List.of(user.getFcmToken()), titre, body);
-            sent++;
+            String body = d.getNbEvenements() + " " + bodySuffix + " : " + titres;
+            Collections.addAll(tokensParMessage.computeIfAbsent(body, k -> new LinkedHashSet<>()),
+                    d.getTokens().split(AppareilPushRepository.SEPARATEUR_RECAP));
         }
-        log.info("Récap: {} utilisateur(s) notifié(s) pour {} événement(s)", sent, events.size());
+        return tokensParMessage;
     }
 
-    private void envoyerRappel(Evenement e, String titlePrefix, String body) {
-        GroupeRunning groupe = e.getGroupe();
-        List<String> tokens = new ArrayList<>();
-        for (User m : groupe.getMembres()) {
-            userRepository.findById(m.getId()).ifPresent(u -> {
-                String t = u.getFcmToken();
-                if (t != null && !t.isBlank() && !tokens.contains(t)) tokens.add(t);
-            });
-        }
-        if (groupe.getResponsable() != null) {
-            userRepository.findById(groupe.getResponsable().getId()).ifPresent(u -> {
-                String t = u.getFcmToken();
-                if (t != null && !t.isBlank() && !tokens.contains(t)) tokens.add(t);
-            });
-        }
-        if (!tokens.isEmpty()) {
-            fcmService.sendToTokens(tokens, titlePrefix + " – " + e.getTitre(), body);
-        }
+    private void envoyerRappel(EvenementRepository.RappelAEnvoyer r, TypeRappel type) {
+        diffusionPushService.envoyerAuGroupe(r.getGroupeId(), type.titre + " – " + r.getTitre(),
+                "Rappel : " + r.getTitre() + " à " + formatHeure(r.getDate()));
     }
 
     private static String formatHeure(Instant instant) {
         return instant == null ? "" : HEURE_FORMAT.withZone(ZONE).format(instant);
     }
-
-    // --- Méthodes exposées pour les tests manuels ---
-    public void declencherRappels1h() { envoyerRappels1h(); }
-    public void declencherRappels24h() { envoyerRappels24h(); }
 }
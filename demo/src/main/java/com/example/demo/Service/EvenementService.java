@@ -3,21 +3,22 @@ package com.example.demo.service;
 import com.example.demo.dto.EvenementRequest;
 import com.example.demo.entity.Evenement;
 import com.example.demo.entity.GroupeRunning;
-import com.example.demo.entity.User;
+import com.example.demo.event.EvenementChangeEvent;
+import com.example.demo.event.ParticipationChangeEvent;
 import com.example.demo.exception.ResourceNotFoundException;
 import com.example.demo.repository.EvenementRepository;
 import com.example.demo.repository.GroupeRunningRepository;
-import com.example.demo.repository.UserRepository;
+import com.example.demo.repository.ParticipationRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Objects;
 
 @Service
 @RequiredArgsConstructor
@@ -26,8 +27,9 @@ public class EvenementService {
 
     private final EvenementRepository evenementRepository;
     private final GroupeRunningRepository groupeRunningRepository;
-    private final UserRepository userRepository;
-    private final FcmService fcmService;
+    private final ParticipationRepository participationRepository;
+    private final DiffusionPushService diffusionPushService;
+    private final ApplicationEventPublisher eventPublisher;
 
     public Page<Evenement> findAll(Pageable pageable) {
         return evenementRepository.findAll(pageable);
@@ -52,7 +54,7 @@ public class EvenementService {
 
     @Transactional
     public Evenement create(EvenementRequest request) {
-        GroupeRunning groupe = groupeRunningRepository.findByIdWithMembres(request.getGroupeId())
+        GroupeRunning groupe = groupeRunningRepository.findById(request.getGroupeId())
                 .orElseThrow(() -> new ResourceNotFoundException("Groupe", request.getGroupeId()));
         Evenement evenement = Evenement.builder()
                 .titre(request.getTitre())
@@ -64,42 +66,21 @@ public class EvenementService {
                 .longitude(request.getLongitude())
                 .groupe(groupe)
                 .build();
+        evenement.indexerPosition();
         evenement = evenementRepository.save(evenement);
+        eventPublisher.publishEvent(new EvenementChangeEvent(evenement.getId()));
 
         // Notifications push aux membres du groupe et au responsable (lors de l'ajout d'un événement)
-        // Recharger chaque utilisateur depuis la DB pour avoir le fcmToken à jour (enregistré à la connexion sur l'app)
-        List<String> tokens = new ArrayList<>();
-        for (User m : groupe.getMembres()) {
-            userRepository.findById(m.getId()).ifPresent(u -> {
-                String t = u.getFcmToken();
-                if (t != null && !t.isBlank() && !tokens.contains(t)) {
-                    tokens.add(t);
-                }
-            });
-        }
-        if (groupe.getResponsable() != null) {
-            userRepository.findById(groupe.getResponsable().getId()).ifPresent(resp -> {
-                String t = resp.getFcmToken();
-                if (t != null && !t.isBlank() && !tokens.contains(t)) {
-                    tokens.add(t);
-                }
-            });
-        }
-        if (!tokens.isEmpty()) {
-            String title = "Un admin a ajouté un événement: " + request.getTitre();
-            String body = request.getDescription() != null && !request.getDescription().isBlank()
-                    ? request.getDescription()
-                    : "Nouvel événement pour le groupe " + groupe.getNom();
-            fcmService.sendToTokens(tokens, title, body);
-            log.info("FCM: notification \"{}\" envoyée à {} membre(s) du groupe \"{}\"", title, tokens.size(), groupe.getNom());
+        // Tokens résolus en une requête (fcmToken à jour, enregistré à la connexion sur l'app)
+        String title = "Un admin a ajouté un événement: " + request.getTitre();
+        String body = request.getDescription() != null && !request.getDescription().isBlank()
+                ? request.getDescription()
+                : "Nouvel événement pour le groupe " + groupe.getNom();
+        int nbTokens = diffusionPushService.envoyerAuGroupe(groupe.getId(), title, body);
+        if (nbTokens > 0) {
+            log.info("FCM: notification \"{}\" mise en file pour {} membre(s) du groupe \"{}\"", title, nbTokens, groupe.getNom());
         } else {
             log.warn("FCM: aucun token FCM pour les membres du groupe \"{}\" - pas de notification (les membres doivent se connecter sur l'app Android)", groupe.getNom());
-            for (User m : groupe.getMembres()) {
-                boolean hasToken = userRepository.findById(m.getId())
-                        .map(u -> u.getFcmToken() != null && !u.getFcmToken().isBlank())
-                        .orElse(false);
-                log.info("FCM diagnostic: membre id={} nom=\"{}\" fcmToken présent={}", m.getId(), m.getNom(), hasToken);
-            }
         }
 
         return evenement;
@@ -113,6 +94,14 @@ public class EvenementService {
                     .orElseThrow(() -> new ResourceNotFoundException("Groupe", request.getGroupeId()));
             evenement.setGroupe(groupe);
         }
+        if (!Objects.equals(evenement.getDate(), request.getDate())) {
+            // Le jour de l'événement entre dans les disponibilités des participants (matching)
+            participationRepository.findAdherentIdsByEvenementId(id)
+                    .forEach(adherentId -> eventPublisher.publishEvent(new ParticipationChangeEvent(adherentId)));
+            // Nouvelle date : les rappels sont à renvoyer
+            evenement.setRappel1hEnvoye(false);
+            evenement.setRappel24hEnvoye(false);
+        }
         evenement.setTitre(request.getTitre());
         evenement.setDescription(request.getDescription());
         evenement.setDate(request.getDate());
@@ -120,6 +109,8 @@ public class EvenementService {
         evenement.setLieu(request.getLieu());
         evenement.setLatitude(request.getLatitude());
         evenement.setLongitude(request.getLongitude());
+        evenement.indexerPosition();
+        eventPublisher.publishEvent(new EvenementChangeEvent(id));
         return evenementRepository.save(evenement);
     }
 
@@ -129,5 +120,6 @@ public class EvenementService {
             throw new ResourceNotFoundException("Événement", id);
         }
         evenementRepository.deleteById(id);
+        eventPublisher.publishEvent(new EvenementChangeEvent(id));
     }
 }
@@ -1,14 +1,18 @@
 package com.example.demo.service;
 
+import com.google.api.core.ApiFuture;
 import com.google.auth.oauth2.GoogleCredentials;
 import com.google.firebase.FirebaseApp;
 import com.google.firebase.FirebaseOptions;
+import com.google.firebase.messaging.BatchResponse;
 import com.google.firebase.messaging.FirebaseMessaging;
 import com.google.firebase.messaging.FirebaseMessagingException;
 import com.google.firebase.messaging.MulticastMessage;
 import com.google.firebase.messaging.Notification;
+import com.google.firebase.messaging.SendResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
 import jakarta.annotation.PostConstruct;
@@ -16,24 +20,35 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
 
 /**
  * Service d'envoi de notifications push via Firebase Cloud Messaging.
  * Nécessite firebase.service-account-path dans application.properties
  * (fichier JSON téléchargé depuis Firebase Console > Paramètres du projet > Comptes de service).
+ * Expéditeur par défaut de l'outbox ({@link NotificationOutboxService}) ; désactivé si app.push.sender=log.
  */
 @Service
+@ConditionalOnProperty(name = "app.push.sender", havingValue = "fcm", matchIfMissing = true)
 @Slf4j
-public class FcmService {
+public class FcmService implements PushSender {
+
+    /** Nombre maximal de tokens par message multicast FCM. */
+    public static final int TAILLE_MAX_MULTICAST = 500;
 
     @Value("${firebase.service-account-path:}")
     private String serviceAccountPath;
 
     private boolean initialized = false;
 
-    public boolean isInitialized() {
+    @Override
+    public boolean isDisponible() {
         return initialized;
     }
 
@@ -75,44 +90,91 @@ public class FcmService {
 
     /**
      * Envoie une notification push à une liste de tokens FCM.
+     * Les tokens sont dédupliqués puis découpés en lots de {@value #TAILLE_MAX_MULTICAST}
+     * (limite FCM du multicast), envoyés en parallèle.
+     * Chaque token est classé : remis, en échec temporaire (à retenter, y compris un lot entièrement en erreur)
+     * ou invalide (rejeté définitivement par FCM).
      */
-    public void sendToTokens(List<String> tokens, String title, String body) {
+    @Override
+    public ResultatEnvoi envoyer(Collection<String> tokens, String title, String body) {
         if (!initialized) {
-            log.warn("FCM: sendToTokens ignoré - Firebase non initialisé (vérifier firebase.service-account-path et le fichier JSON)");
-            return;
-        }
-        if (tokens == null || tokens.isEmpty()) {
-            log.warn("FCM: sendToTokens ignoré - liste de tokens vide");
-            return;
+            log.warn("FCM: envoi ignoré - Firebase non initialisé (vérifier firebase.service-account-path et le fichier JSON)");
+            return ResultatEnvoi.echecTotal(tokens, "Firebase non initialisé");
         }
         List<String> validTokens = tokens.stream()
                 .filter(t -> t != null && !t.isBlank())
+                .distinct()
                 .collect(Collectors.toList());
         if (validTokens.isEmpty()) {
-            log.warn("FCM: sendToTokens ignoré - aucun token valide après filtrage");
-            return;
+            log.warn("FCM: envoi ignoré - aucun token valide après filtrage");
+            return ResultatEnvoi.succesTotal(Set.of());
         }
 
-        try {
+        Notification notification = Notification.builder()
+                .setTitle(title)
+                .setBody(body)
+                .build();
+        List<List<String>> lots = new ArrayList<>();
+        List<ApiFuture<BatchResponse>> envois = new ArrayList<>();
+        for (int i = 0; i < validTokens.size(); i += TAILLE_MAX_MULTICAST) {
+            List<String> lot = validTokens.subList(i, Math.min(i + TAILLE_MAX_MULTICAST, validTokens.size()));
             MulticastMessage message = MulticastMessage.builder()
-                    .setNotification(Notification.builder()
-                            .setTitle(title)
-                            .setBody(body)
-                            .build())
-                    .addAllTokens(validTokens)
+                    .setNotification(notification)
+                    .addAllTokens(lot)
                     .build();
+            lots.add(lot);
+            envois.add(FirebaseMessaging.getInstance().sendEachForMulticastAsync(message));
+        }
 
-            var response = FirebaseMessaging.getInstance().sendEachForMulticast(message);
-            log.info("FCM: \"{}\" -> {} envoyée(s), {} échec(s)", title, response.getSuccessCount(), response.getFailureCount());
-            if (response.getFailureCount() > 0) {
-                response.getResponses().forEach(r -> {
-                    if (!r.isSuccessful()) {
-                        log.warn("FCM échec: {}", r.getException() != null ? r.getException().getMessage() : "inconnu");
+        Set<String> remis = new HashSet<>();
+        Set<String> enEchec = new HashSet<>();
+        Set<String> invalides = new HashSet<>();
+        String derniereErreur = null;
+        for (int i = 0; i < envois.size(); i++) {
+            List<String> lot = lots.get(i);
+            try {
+                List<SendResponse> reponses = envois.get(i).get().getResponses();
+                for (int j = 0; j < reponses.size(); j++) {
+                    SendResponse r = reponses.get(j);
+                    String token = lot.get(j);
+                    if (r.isSuccessful()) {
+                        remis.add(token);
+                    } else if (estDefinitif(r.getException())) {
+                        invalides.add(token);
+                    } else {
+                        derniereErreur = r.getException() != null ? r.getException().getMessage() : "inconnu";
+                        log.warn("FCM échec: {}", derniereErreur);
+                        enEchec.add(token);
                     }
-                });
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.error("FCM: envoi interrompu");
+                for (int k = i; k < lots.size(); k++) {
+                    enEchec.addAll(lots.get(k));
+                }
+                return new ResultatEnvoi(remis, enEchec, invalides, "envoi interrompu");
+            } catch (ExecutionException e) {
+                derniereErreur = e.getCause() != null ? e.getCause().getMessage() : e.getMessage();
+                log.error("FCM: Erreur d'envoi: {}", derniereErreur);
+                enEchec.addAll(lot);
             }
-        } catch (FirebaseMessagingException e) {
-            log.error("FCM: Erreur d'envoi: {}", e.getMessage());
         }
+        log.info("FCM: \"{}\" -> {} envoyée(s), {} échec(s), {} token(s) invalide(s) ({} lot(s))",
+                title, remis.size(), enEchec.size(), invalides.size(), envois.size());
+        return new ResultatEnvoi(remis, enEchec, invalides, derniereErreur);
+    }
+
+    /**
+     * Erreurs FCM définitives pour un token : application désinstallée ou token expiré, ou token d'un autre projet
+     * Firebase. INVALID_ARGUMENT n'en fait pas partie : FCM le renvoie aussi pour un message mal formé (taille, champ),
+     * qui échouerait pour tous ses destinataires ; il suit le chemin des échecs, comme quota et indisponibilité.
+     */
+    private static boolean estDefinitif(FirebaseMessagingException e) {
+        if (e == null || e.getMessagingErrorCode() == null) return false;
+        return switch (e.getMessagingErrorCode()) {
+            case UNREGISTERED, SENDER_ID_MISMATCH -> true;
+            default -> false;
+        };
     }
 }
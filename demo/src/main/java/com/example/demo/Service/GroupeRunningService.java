@@ -1,22 +1,28 @@
 package com.example.demo.service;
 
 import com.example.demo.dto.GroupeRunningRequest;
+import com.example.demo.dto.MembresGroupeResultatDto;
 import com.example.demo.entity.GroupeRunning;
 import com.example.demo.entity.Role;
 import com.example.demo.entity.User;
+import com.example.demo.event.GroupeMembresChangeEvent;
 import com.example.demo.exception.ForbiddenGroupException;
 import com.example.demo.exception.ResourceNotFoundException;
 import com.example.demo.repository.GroupeRunningRepository;
 import com.example.demo.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 @Service
@@ -26,7 +32,8 @@ public class GroupeRunningService {
 
     private final GroupeRunningRepository groupeRunningRepository;
     private final UserRepository userRepository;
-    private final FcmService fcmService;
+    private final DiffusionPushService diffusionPushService;
+    private final ApplicationEventPublisher eventPublisher;
 
     public Page<GroupeRunning> findAll(Pageable pageable) {
         return groupeRunningRepository.findByOrderByNomAsc(pageable);
@@ -74,12 +81,9 @@ public class GroupeRunningService {
                 ? userRepository.findById(request.getResponsableId())
                 .orElseThrow(() -> new ResourceNotFoundException("Utilisateur", request.getResponsableId()))
                 : null;
-        List<User> membres = new ArrayList<>();
-        if (request.getMembreIds() != null) {
-            for (UUID id : request.getMembreIds()) {
-                userRepository.findById(id).ifPresent(membres::add);
-            }
-        }
+        List<User> membres = request.getMembreIds() != null
+                ? new ArrayList<>(userRepository.findAllById(new LinkedHashSet<>(request.getMembreIds())))
+                : new ArrayList<>();
         GroupeRunning groupe = GroupeRunning.builder()
                 .nom(request.getNom())
                 .niveau(request.getNiveau())
@@ -87,7 +91,9 @@ public class GroupeRunningService {
                 .responsable(responsable)
                 .membres(membres)
                 .build();
-        return groupeRunningRepository.save(groupe);
+        groupe = groupeRunningRepository.save(groupe);
+        eventPublisher.publishEvent(new GroupeMembresChangeEvent(groupe.getId()));
+        return groupe;
     }
 
     @Transactional
@@ -103,14 +109,12 @@ public class GroupeRunningService {
         } else {
             groupe.setResponsable(null);
         }
+        groupe = groupeRunningRepository.save(groupe);
         if (request.getMembreIds() != null) {
-            List<User> membres = new ArrayList<>();
-            for (UUID membreId : request.getMembreIds()) {
-                userRepository.findById(membreId).ifPresent(membres::add);
-            }
-            groupe.setMembres(membres);
+            remplacer(id, new LinkedHashSet<>(request.getMembreIds()));
         }
-        return groupeRunningRepository.save(groupe);
+        eventPublisher.publishEvent(new GroupeMembresChangeEvent(id));
+        return groupe;
     }
 
     @Transactional
@@ -119,30 +123,18 @@ public class GroupeRunningService {
             throw new ResourceNotFoundException("Groupe", id);
         }
         groupeRunningRepository.deleteById(id);
+        eventPublisher.publishEvent(new GroupeMembresChangeEvent(id));
     }
 
     @Transactional
     public GroupeRunning addMembre(Long groupeId, UUID adherentId, User currentUser) {
         GroupeRunning groupe = findById(groupeId);
         ensureCanManageGroupe(groupe, currentUser);
-        User user = userRepository.findById(adherentId)
-                .orElseThrow(() -> new ResourceNotFoundException("Utilisateur", adherentId));
-        boolean added = false;
-        if (!groupe.getMembres().contains(user)) {
-            groupe.getMembres().add(user);
-            groupe = groupeRunningRepository.save(groupe);
-            added = true;
-        }
-        if (added) {
-            if (user.getFcmToken() != null && !user.getFcmToken().isBlank()) {
-                String titre = "Affectation à un groupe";
-                String body = "Vous avez été affecté au groupe \"" + groupe.getNom() + "\" par un administrateur.";
-                fcmService.sendToTokens(List.of(user.getFcmToken()), titre, body);
-                log.info("FCM: notification d'affectation au groupe \"{}\" envoyée à l'utilisateur {}", groupe.getNom(), adherentId);
-            } else {
-                log.warn("FCM: utilisateur {} n'a pas de token FCM enregistré - pas de notification (il doit se connecter sur l'app au moins une fois)", adherentId);
-            }
+        if (!userRepository.existsById(adherentId)) {
+            throw new ResourceNotFoundException("Utilisateur", adherentId);
         }
+        List<UUID> ajoutes = groupeRunningRepository.ajouterMembres(groupeId, List.of(adherentId));
+        terminerModification(groupe, ajoutes, List.of());
         return groupe;
     }
 
@@ -150,8 +142,87 @@ public class GroupeRunningService {
     public GroupeRunning removeMembre(Long groupeId, UUID adherentId, User currentUser) {
         GroupeRunning groupe = findById(groupeId);
         ensureCanManageGroupe(groupe, currentUser);
-        groupe.getMembres().removeIf(u -> u.getId().equals(adherentId));
-        return groupeRunningRepository.save(groupe);
+        List<UUID> retires = groupeRunningRepository.retirerMembres(groupeId, List.of(adherentId));
+        terminerModification(groupe, List.of(), retires);
+        return groupe;
+    }
+
+    /**
+     * Ajoute plusieurs adhérents au groupe : utilisateurs résolus en une requête IN, lignes de groupe_adherents
+     * insérées en une instruction, une seule notification (multicast) aux adhérents ajoutés.
+     */
+    @Transactional
+    public MembresGroupeResultatDto ajouterMembres(Long groupeId, Collection<UUID> adherentIds, User currentUser) {
+        GroupeRunning groupe = findById(groupeId);
+        ensureCanManageGroupe(groupe, currentUser);
+        Set<UUID> demandes = new LinkedHashSet<>(adherentIds);
+        List<UUID> existants = demandes.isEmpty() ? List.of() : userRepository.findIdsByIdIn(demandes);
+        List<UUID> ajoutes = existants.isEmpty() ? List.of() : groupeRunningRepository.ajouterMembres(groupeId, existants);
+        terminerModification(groupe, ajoutes, List.of());
+        return resultat(ajoutes, List.of(), demandes, existants);
+    }
+
+    /** Retire plusieurs adhérents du groupe en une instruction. */
+    @Transactional
+    public MembresGroupeResultatDto retirerMembres(Long groupeId, Collection<UUID> adherentIds, User currentUser) {
+        GroupeRunning groupe = findById(groupeId);
+        ensureCanManageGroupe(groupe, currentUser);
+        List<UUID> retires = adherentIds.isEmpty()
+                ? List.of()
+                : groupeRunningRepository.retirerMembres(groupeId, new LinkedHashSet<>(adherentIds));
+        terminerModification(groupe, List.of(), retires);
+        return resultat(List.of(), retires, Set.of(), List.of());
+    }
+
+    /**
+     * Remplace la liste des membres : seul l'écart est appliqué (retrait des absents de la liste, ajout des nouveaux),
+     * les adhérents ajoutés reçoivent une seule notification.
+     */
+    @Transactional
+    public MembresGroupeResultatDto remplacerMembres(Long groupeId, Collection<UUID> adherentIds, User currentUser) {
+        GroupeRunning groupe = findById(groupeId);
+        ensureCanManageGroupe(groupe, currentUser);
+        Set<UUID> demandes = new LinkedHashSet<>(adherentIds);
+        MembresGroupeResultatDto resultat = remplacer(groupeId, demandes);
+        terminerModification(groupe, resultat.getAjoutes(), resultat.getRetires());
+        return resultat;
+    }
+
+    private MembresGroupeResultatDto remplacer(Long groupeId, Set<UUID> demandes) {
+        List<UUID> existants = demandes.isEmpty() ? List.of() : userRepository.findIdsByIdIn(demandes);
+        List<UUID> retires = existants.isEmpty()
+                ? groupeRunningRepository.retirerTousLesMembres(groupeId)
+                : groupeRunningRepository.retirerMembresSauf(groupeId, existants);
+        List<UUID> ajoutes = existants.isEmpty() ? List.of() : groupeRunningRepository.ajouterMembres(groupeId, existants);
+        return resultat(ajoutes, retires, demandes, existants);
+    }
+
+    /** Publie le changement de composition (une fois) et notifie les adhérents ajoutés en un seul envoi. */
+    private void terminerModification(GroupeRunning groupe, List<UUID> ajoutes, List<UUID> retires) {
+        if (ajoutes.isEmpty() && retires.isEmpty()) return;
+        eventPublisher.publishEvent(new GroupeMembresChangeEvent(groupe.getId()));
+        if (ajoutes.isEmpty()) return;
+        String titre = "Affectation à un groupe";
+        String body = "Vous avez été affecté au groupe \"" + groupe.getNom() + "\" par un administrateur.";
+        int nbTokens = diffusionPushService.envoyerAuxUtilisateurs(ajoutes, titre, body);
+        if (nbTokens > 0) {
+            log.info("FCM: notification d'affectation au groupe \"{}\" mise en file pour {} adhérent(s) ({} token(s))",
+                    groupe.getNom(), ajoutes.size(), nbTokens);
+        } else {
+            log.warn("FCM: aucun des {} adhérent(s) ajouté(s) au groupe \"{}\" n'a de token FCM enregistré - pas de notification",
+                    ajoutes.size(), groupe.getNom());
+        }
+    }
+
+    private static MembresGroupeResultatDto resultat(List<UUID> ajoutes, List<UUID> retires,
+                                                     Set<UUID> demandes, List<UUID> existants) {
+        Set<UUID> introuvables = new LinkedHashSet<>(demandes);
+        existants.forEach(introuvables::remove);
+        return MembresGroupeResultatDto.builder()
+                .ajoutes(ajoutes)
+                .retires(retires)
+                .introuvables(new ArrayList<>(introuvables))
+                .build();
     }
 
     @Transactional
@@ -160,6 +231,8 @@ public class GroupeRunningService {
         User user = userRepository.findById(responsableId)
                 .orElseThrow(() -> new ResourceNotFoundException("Utilisateur", responsableId));
         groupe.setResponsable(user);
-        return groupeRunningRepository.save(groupe);
+        groupe = groupeRunningRepository.save(groupe);
+        eventPublisher.publishEvent(new GroupeMembresChangeEvent(groupeId));
+        return groupe;
     }
 }
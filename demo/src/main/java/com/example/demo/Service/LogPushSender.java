@@ -0,0 +1,28 @@
+package com.example.demo.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+
+/**
+ * Expéditeur local (app.push.sender=log) : journalise les notifications au lieu de les envoyer.
+ * Permet de tester l'outbox et les parcours de notification sans Firebase.
+ */
+@Service
+@ConditionalOnProperty(name = "app.push.sender", havingValue = "log")
+@Slf4j
+public class LogPushSender implements PushSender {
+
+    @Override
+    public boolean isDisponible() {
+        return true;
+    }
+
+    @Override
+    public ResultatEnvoi envoyer(Collection<String> tokens, String titre, String corps) {
+        log.info("Push (local): \"{}\" - {} -> {} token(s)", titre, corps, tokens.size());
+        return ResultatEnvoi.succesTotal(tokens);
+    }
+}
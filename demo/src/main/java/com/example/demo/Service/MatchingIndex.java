@@ -0,0 +1,358 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.GroupeRunning;
+import com.example.demo.entity.Role;
+import com.example.demo.entity.User;
+import com.example.demo.event.GroupeMembresChangeEvent;
+import com.example.demo.event.ParticipationChangeEvent;
+import com.example.demo.event.SessionCourseChangeEvent;
+import com.example.demo.event.UtilisateurChangeEvent;
+import com.example.demo.repository.GroupeRunningRepository;
+import com.example.demo.repository.ParticipationRepository;
+import com.example.demo.repository.SessionCourseRepository;
+import com.example.demo.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Index mémoire du matching partenaires : pour chaque adhérent, pace moyen, jours habituels (bitmask)
+ * et groupes (bitset). Chargé au démarrage puis tenu à jour après commit des changements de sessions,
+ * participations et groupe_adherents : le scoring d'une requête se fait sans aller-retour en base.
+ * Reconstruit toutes les app.matching.reconstruction-ms (changements faits par une autre instance) ; les entrées
+ * mises à jour localement pendant une reconstruction gardent leur valeur, plus récente que celle relue.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class MatchingIndex {
+
+    /** Nombre de sessions récentes prises en compte pour le pace moyen. */
+    static final int NB_SESSIONS_PACE = 20;
+
+    /** Nombre de participations récentes prises en compte pour les jours habituels. */
+    static final int NB_PARTICIPATIONS_JOURS = 50;
+
+    private final UserRepository userRepository;
+    private final GroupeRunningRepository groupeRunningRepository;
+    private final SessionCourseRepository sessionCourseRepository;
+    private final ParticipationRepository participationRepository;
+    private final AppartenanceGroupesCache appartenanceGroupesCache;
+
+    private final Map<UUID, ProfilAdherent> profils = new ConcurrentHashMap<>();
+    /** Utilisateurs existants qui ne sont pas ADHERENT : pas de rechargement à chaque recherche qui les croise. */
+    private final Set<UUID> nonAdherents = ConcurrentHashMap.newKeySet();
+    private final Map<Long, GroupeIndexe> groupesParId = new ConcurrentHashMap<>();
+    /** Position dans la liste = bit du groupe dans {@link ProfilAdherent#groupes()}. Ajout seulement. */
+    private final List<GroupeIndexe> groupesParIndex = new CopyOnWriteArrayList<>();
+    /** Adhérents et groupes mis à jour localement depuis le début de la dernière reconstruction. */
+    private final Set<UUID> adherentsModifies = ConcurrentHashMap.newKeySet();
+    private final Set<Long> groupesModifies = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Profil de matching d'un adhérent.
+     * jours : bit {@code DayOfWeek.ordinal()} positionné si au moins 2 participations ce jour-là.
+     * groupes : bits des index de groupes ({@link GroupeIndexe#index()}). Jamais modifié une fois publié.
+     */
+    public record ProfilAdherent(UUID id, String nom, String prenom, String email,
+                                 Double pace, int jours, BitSet groupes) {
+
+        ProfilAdherent avecGroupe(int index, boolean membre) {
+            BitSet copie = (BitSet) groupes.clone();
+            copie.set(index, membre);
+            return new ProfilAdherent(id, nom, prenom, email, pace, jours, copie);
+        }
+
+        ProfilAdherent avecPace(Double nouveauPace) {
+            return new ProfilAdherent(id, nom, prenom, email, nouveauPace, jours, groupes);
+        }
+
+        ProfilAdherent avecJours(int nouveauxJours) {
+            return new ProfilAdherent(id, nom, prenom, email, pace, nouveauxJours, groupes);
+        }
+    }
+
+    /** Groupe indexé : membres (ids immuables) et métadonnées affichées dans le matching. */
+    public record GroupeIndexe(int index, Long id, String nom, String niveau, Set<UUID> membres) {
+    }
+
+    /**
+     * Profil de l'adhérent, chargé depuis la base s'il n'est pas encore indexé.
+     * Retourne null si l'utilisateur n'existe pas ou n'est pas ADHERENT (ce dernier cas est mémorisé).
+     */
+    public ProfilAdherent getProfil(UUID adherentId) {
+        ProfilAdherent profil = profils.get(adherentId);
+        if (profil == null && !nonAdherents.contains(adherentId)) {
+            profil = chargerProfil(adherentId);
+        }
+        return profil;
+    }
+
+    public GroupeIndexe getGroupe(int index) {
+        return groupesParIndex.get(index);
+    }
+
+    // --- Chargement initial et reconstruction ---
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${app.matching.reconstruction-ms:300000}",
+            fixedDelayString = "${app.matching.reconstruction-ms:300000}")
+    @Transactional(readOnly = true)
+    public void chargerTout() {
+        long debut = System.currentTimeMillis();
+        adherentsModifies.clear();
+        groupesModifies.clear();
+
+        List<GroupeRunning> groupes = groupeRunningRepository.findAll();
+        Map<Long, Set<UUID>> membresParGroupe = new HashMap<>();
+        for (GroupeRunning g : groupes) {
+            membresParGroupe.put(g.getId(), new HashSet<>());
+        }
+        for (GroupeRunningRepository.Appartenance a : groupeRunningRepository.findAllAppartenances()) {
+            Set<UUID> membres = membresParGroupe.get(a.getGroupeId());
+            if (membres != null) membres.add(a.getAdherentId());
+        }
+        Map<UUID, BitSet> groupesParAdherent = new HashMap<>();
+        for (GroupeRunning g : groupes) {
+            Set<UUID> membres = membresParGroupe.get(g.getId());
+            GroupeIndexe indexe = groupesModifies.contains(g.getId())
+                    ? groupesParId.get(g.getId())
+                    : indexerGroupe(g.getId(), g.getNom(), g.getNiveau(), Set.copyOf(membres));
+            if (indexe == null) continue;
+            for (UUID id : membres) {
+                groupesParAdherent.computeIfAbsent(id, k -> new BitSet()).set(indexe.index());
+            }
+        }
+        for (GroupeIndexe g : groupesParId.values()) {
+            if (!membresParGroupe.containsKey(g.id()) && !groupesModifies.contains(g.id())) {
+                retirerGroupe(g); // supprimé par une autre instance
+            }
+        }
+
+        Map<UUID, Double> paces = new HashMap<>();
+        try (Stream<SessionCourseRepository.EffortSession> efforts = sessionCourseRepository.streamAllEfforts()) {
+            parAdherent(efforts, SessionCourseRepository.EffortSession::getAdherentId, NB_SESSIONS_PACE,
+                    (id, liste) -> paces.put(id, paceMoyen(liste)));
+        }
+        Map<UUID, Integer> jours = new HashMap<>();
+        try (Stream<ParticipationRepository.DateParticipation> dates = participationRepository.streamAllDates()) {
+            parAdherent(dates, ParticipationRepository.DateParticipation::getAdherentId, NB_PARTICIPATIONS_JOURS,
+                    (id, liste) -> jours.put(id, joursHabituels(liste)));
+        }
+
+        Set<UUID> adherents = new HashSet<>();
+        for (User u : userRepository.findByRole(Role.ADHERENT)) {
+            adherents.add(u.getId());
+            ProfilAdherent profil = new ProfilAdherent(u.getId(), u.getNom(), u.getPrenom(), u.getEmail(),
+                    paces.get(u.getId()), jours.getOrDefault(u.getId(), 0),
+                    groupesParAdherent.getOrDefault(u.getId(), new BitSet()));
+            // Une mise à jour locale faite pendant la lecture est plus récente : elle est conservée
+            profils.compute(u.getId(), (id, actuel) -> adherentsModifies.contains(id) ? actuel : profil);
+        }
+        profils.keySet().removeIf(id -> !adherents.contains(id) && !adherentsModifies.contains(id));
+        nonAdherents.clear(); // rôles peut-être changés ailleurs : relus à la prochaine recherche
+        log.info("Matching: index chargé ({} adhérent(s), {} groupe(s)) en {} ms",
+                profils.size(), groupesParId.size(), System.currentTimeMillis() - debut);
+    }
+
+    /** Regroupe un flux trié par adhérent en listes des {@code max} premiers éléments de chaque adhérent. */
+    private static <T> void parAdherent(Stream<T> flux, Function<T, UUID> cle, int max,
+                                        BiConsumer<UUID, List<T>> consommateur) {
+        UUID courant = null;
+        List<T> lot = new ArrayList<>();
+        for (Iterator<T> it = flux.iterator(); it.hasNext(); ) {
+            T element = it.next();
+            UUID id = cle.apply(element);
+            if (!id.equals(courant)) {
+                if (courant != null) consommateur.accept(courant, lot);
+                courant = id;
+                lot = new ArrayList<>();
+            }
+            if (lot.size() < max) lot.add(element);
+        }
+        if (courant != null) consommateur.accept(courant, lot);
+    }
+
+    // --- Mises à jour incrémentales (après commit) ---
+    // Les requêtes sont faites avant computeIfPresent : le verrou de la map n'est tenu que le temps de la copie.
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void onSessionCourseChange(SessionCourseChangeEvent event) {
+        if (!profils.containsKey(event.adherentId())) return;
+        adherentsModifies.add(event.adherentId());
+        Double pace = chargerPace(event.adherentId());
+        profils.computeIfPresent(event.adherentId(), (id, p) -> p.avecPace(pace));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void onParticipationChange(ParticipationChangeEvent event) {
+        if (!profils.containsKey(event.adherentId())) return;
+        adherentsModifies.add(event.adherentId());
+        int jours = chargerJours(event.adherentId());
+        profils.computeIfPresent(event.adherentId(), (id, p) -> p.avecJours(jours));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void onUtilisateurChange(UtilisateurChangeEvent event) {
+        nonAdherents.remove(event.userId()); // rôle peut-être changé : relu à la prochaine recherche
+        adherentsModifies.add(event.userId());
+        if (profils.remove(event.userId()) != null) {
+            chargerProfil(event.userId());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void onGroupeMembresChange(GroupeMembresChangeEvent event) {
+        groupesModifies.add(event.groupeId());
+        Optional<GroupeRunning> groupe = groupeRunningRepository.findById(event.groupeId());
+        Set<UUID> nouveauxMembres = groupe.isPresent()
+                ? appartenanceGroupesCache.membres(event.groupeId())
+                : Set.of();
+        GroupeIndexe ancien = groupesParId.get(event.groupeId());
+        Set<UUID> anciensMembres = ancien != null ? ancien.membres() : Set.of();
+
+        GroupeIndexe g;
+        if (groupe.isPresent()) {
+            g = indexerGroupe(event.groupeId(), groupe.get().getNom(), groupe.get().getNiveau(), nouveauxMembres);
+        } else if (ancien != null) {
+            g = ancien;
+            retirerGroupe(ancien);
+        } else {
+            return;
+        }
+
+        for (UUID id : anciensMembres) {
+            if (!nouveauxMembres.contains(id)) {
+                adherentsModifies.add(id);
+                profils.computeIfPresent(id, (k, p) -> p.avecGroupe(g.index(), false));
+            }
+        }
+        for (UUID id : nouveauxMembres) {
+            if (!anciensMembres.contains(id)) {
+                adherentsModifies.add(id);
+                profils.computeIfPresent(id, (k, p) -> p.avecGroupe(g.index(), true));
+            }
+        }
+    }
+
+    // --- Chargement unitaire ---
+
+    private ProfilAdherent chargerProfil(UUID adherentId) {
+        adherentsModifies.add(adherentId);
+        User user = userRepository.findById(adherentId).orElse(null);
+        if (user == null) {
+            return null;
+        }
+        if (user.getRole() != Role.ADHERENT) {
+            nonAdherents.add(adherentId);
+            return null;
+        }
+        BitSet groupes = new BitSet();
+        for (long groupeId : appartenanceGroupesCache.groupesDe(adherentId)) {
+            GroupeIndexe g = groupesParId.get(groupeId);
+            if (g == null) {
+                g = groupeRunningRepository.findById(groupeId)
+                        .map(gr -> indexerGroupe(gr.getId(), gr.getNom(), gr.getNiveau(),
+                                appartenanceGroupesCache.membres(gr.getId())))
+                        .orElse(null);
+            }
+            if (g != null) groupes.set(g.index());
+        }
+        ProfilAdherent profil = new ProfilAdherent(user.getId(), user.getNom(), user.getPrenom(), user.getEmail(),
+                chargerPace(adherentId), chargerJours(adherentId), groupes);
+        profils.put(adherentId, profil);
+        return profil;
+    }
+
+    private Double chargerPace(UUID adherentId) {
+        return paceMoyen(sessionCourseRepository.findEffortsByAdherentId(adherentId, PageRequest.of(0, NB_SESSIONS_PACE)));
+    }
+
+    private int chargerJours(UUID adherentId) {
+        return joursHabituels(participationRepository.findDatesByAdherentId(adherentId, PageRequest.of(0, NB_PARTICIPATIONS_JOURS)));
+    }
+
+    private synchronized GroupeIndexe indexerGroupe(Long id, String nom, String niveau, Set<UUID> membres) {
+        GroupeIndexe existant = groupesParId.get(id);
+        int index = existant != null ? existant.index() : groupesParIndex.size();
+        GroupeIndexe g = new GroupeIndexe(index, id, nom, niveau, membres);
+        if (existant == null) {
+            groupesParIndex.add(g);
+            groupesParId.put(id, g);
+        } else {
+            remplacerGroupe(g);
+        }
+        return g;
+    }
+
+    private void remplacerGroupe(GroupeIndexe g) {
+        groupesParIndex.set(g.index(), g);
+        groupesParId.put(g.id(), g);
+    }
+
+    /** Groupe supprimé : son index reste réservé, sans membres. */
+    private void retirerGroupe(GroupeIndexe g) {
+        groupesParIndex.set(g.index(), new GroupeIndexe(g.index(), g.id(), g.nom(), g.niveau(), Set.of()));
+        groupesParId.remove(g.id());
+    }
+
+    // --- Calculs ---
+
+    /**
+     * Pace moyen en min/km sur les sessions réalistes (2-15 min/km), null si aucune.
+     * Pace en mouvement du tracé analysé s'il existe, sinon durée / distance déclarées.
+     */
+    static Double paceMoyen(List<SessionCourseRepository.EffortSession> sessions) {
+        double totalMinPerKm = 0;
+        int count = 0;
+        for (SessionCourseRepository.EffortSession s : sessions) {
+            Double pace = s.getPaceMouvementMinKm();
+            if (pace == null && s.getDistanceKm() != null && s.getDistanceKm() > 0.1
+                    && s.getDurationSeconds() != null && s.getDurationSeconds() > 0) {
+                pace = (s.getDurationSeconds() / 60.0) / s.getDistanceKm();
+            }
+            if (pace != null && pace > 2 && pace < 15) { // plage réaliste 2-15 min/km
+                totalMinPerKm += pace;
+                count++;
+            }
+        }
+        return count > 0 ? totalMinPerKm / count : null;
+    }
+
+    /** Bitmask des jours avec au moins 2 participations. */
+    static int joursHabituels(List<ParticipationRepository.DateParticipation> participations) {
+        int[] countByDay = new int[7];
+        for (ParticipationRepository.DateParticipation p : participations) {
+            Instant date = p.getDateEvenement();
+            if (date != null) {
+                countByDay[date.atZone(ZoneId.systemDefault()).getDayOfWeek().ordinal()]++;
+            }
+        }
+        int jours = 0;
+        for (DayOfWeek day : DayOfWeek.values()) {
+            if (countByDay[day.ordinal()] >= 2) jours |= 1 << day.ordinal();
+        }
+        return jours;
+    }
+}
@@ -1,91 +1,92 @@
 package com.example.demo.service;
 
 import com.example.demo.dto.PartnerMatchDto;
-import com.example.demo.entity.*;
+import com.example.demo.entity.Role;
+import com.example.demo.entity.User;
 import com.example.demo.exception.ResourceNotFoundException;
-import com.example.demo.repository.*;
+import com.example.demo.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
-import java.time.DayOfWeek;
-import java.time.Instant;
-import java.time.ZoneId;
 import java.util.*;
 import java.util.stream.Collectors;
 
 /**
  * Service de matching IA : trouve les meilleurs partenaires de running pour un adhérent.
  * Score = similarité pace + même groupe + disponibilités communes.
+ * Le scoring lit uniquement {@link MatchingIndex} (aucune requête SQL par candidat).
  */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class MatchingService {
 
-    private final GroupeRunningRepository groupeRunningRepository;
-    private final SessionCourseRepository sessionCourseRepository;
-    private final ParticipationRepository participationRepository;
+    private final MatchingIndex matchingIndex;
     private final UserRepository userRepository;
-    private final FcmService fcmService;
+    private final DiffusionPushService diffusionPushService;
+    private final MeterRegistry meterRegistry;
 
     private static final int MIN_SCORE_MATCH = 25;
     private static final int MAX_RESULTS = 15;
 
+    private Timer dureeRecherche;
+
+    @PostConstruct
+    public void init() {
+        dureeRecherche = Timer.builder("matching.recherche")
+                .description("Durée de la recherche de partenaires (scoring sur l'index mémoire)")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
     /**
      * Retourne les meilleurs partenaires de running pour l'adhérent donné.
      */
     public List<PartnerMatchDto> findPartners(UUID adherentId) {
-        User adherent = userRepository.findById(adherentId)
-                .orElseThrow(() -> new ResourceNotFoundException("Utilisateur", adherentId));
+        return dureeRecherche.record(() -> chercherPartenaires(adherentId));
+    }
 
-        if (adherent.getRole() != Role.ADHERENT) {
-            return List.of();
+    private List<PartnerMatchDto> chercherPartenaires(UUID adherentId) {
+        MatchingIndex.ProfilAdherent moi = matchingIndex.getProfil(adherentId);
+        if (moi == null) {
+            if (!userRepository.existsById(adherentId)) {
+                throw new ResourceNotFoundException("Utilisateur", adherentId);
+            }
+            return List.of(); // pas ADHERENT
         }
 
-        // Groupes de l'adhérent (avec membres chargés)
-        List<GroupeRunning> mesGroupes = groupeRunningRepository.findByMembreIdWithMembres(adherentId);
-
-        if (mesGroupes.isEmpty()) {
+        if (moi.groupes().isEmpty()) {
             return List.of();
         }
 
-        // Pace moyen de l'adhérent (dernières 20 sessions)
-        Double monPace = computeAveragePace(adherentId);
-
-        // Jours où l'adhérent participe habituellement (depuis participations)
-        Set<DayOfWeek> mesJours = computePreferredDays(adherentId);
-
         // Candidats : autres adhérents des mêmes groupes
         Set<UUID> candidatIds = new HashSet<>();
-        for (GroupeRunning g : mesGroupes) {
-            for (User m : g.getMembres()) {
-                if (!m.getId().equals(adherentId) && m.getRole() == Role.ADHERENT) {
-                    candidatIds.add(m.getId());
+        for (int g = moi.groupes().nextSetBit(0); g >= 0; g = moi.groupes().nextSetBit(g + 1)) {
+            for (UUID m : matchingIndex.getGroupe(g).membres()) {
+                if (!m.equals(adherentId)) {
+                    candidatIds.add(m);
                 }
             }
         }
 
-        List<PartnerMatchDto> matches = new ArrayList<>();
+        // Un seul calcul par candidat : le repli « afficher tous » réutilise les scores déjà calculés
+        List<PartnerMatchDto> tous = new ArrayList<>();
         for (UUID candidateId : candidatIds) {
-            User candidate = userRepository.findById(candidateId).orElse(null);
-            if (candidate == null) continue;
-
-            PartnerMatchDto dto = computeMatch(adherent, candidate, mesGroupes, monPace, mesJours);
-            if (dto != null && dto.getScore() >= MIN_SCORE_MATCH) {
-                matches.add(dto);
-            }
+            MatchingIndex.ProfilAdherent candidate = matchingIndex.getProfil(candidateId);
+            if (candidate == null) continue; // pas ADHERENT
+            tous.add(computeMatch(moi, candidate));
         }
 
+        List<PartnerMatchDto> matches = tous.stream()
+                .filter(dto -> dto.getScore() >= MIN_SCORE_MATCH)
+                .collect(Collectors.toList());
         if (matches.isEmpty() && !candidatIds.isEmpty()) {
             log.info("Matching: {} candidats mais aucun n'atteint le score {}. Affichage de tous.", candidatIds.size(), MIN_SCORE_MATCH);
-            for (UUID candidateId : candidatIds) {
-                User candidate = userRepository.findById(candidateId).orElse(null);
-                if (candidate == null) continue;
-                PartnerMatchDto dto = computeMatch(adherent, candidate, mesGroupes, monPace, mesJours);
-                if (dto != null) matches.add(dto);
-            }
+            matches = tous;
         }
 
         matches.sort((a, b) -> Integer.compare(b.getScore(), a.getScore()));
@@ -109,76 +110,35 @@ public class MatchingService {
         String titre = "Invitation à courir";
         String body = fromName + " vous invite à courir !";
 
-        if (targetUser.getFcmToken() != null && !targetUser.getFcmToken().isBlank()) {
-            fcmService.sendToTokens(List.of(targetUser.getFcmToken()), titre, body);
+        if (diffusionPushService.envoyerAUtilisateur(targetAdherentId, titre, body) > 0) {
             log.info("Matching: invitation envoyée de {} vers {}", fromAdherentId, targetAdherentId);
         } else {
             log.warn("Matching: {} n'a pas de token FCM - notification non envoyée", targetAdherentId);
         }
     }
 
-    private Double computeAveragePace(UUID adherentId) {
-        List<SessionCourse> sessions = sessionCourseRepository
-                .findByAdherentIdOrderByStartedAtDesc(adherentId, PageRequest.of(0, 20))
-                .getContent();
-
-        if (sessions.isEmpty()) return null;
-
-        double totalMinPerKm = 0;
-        int count = 0;
-        for (SessionCourse s : sessions) {
-            if (s.getDistanceKm() != null && s.getDistanceKm() > 0.1
-                    && s.getDurationSeconds() != null && s.getDurationSeconds() > 0) {
-                double pace = (s.getDurationSeconds() / 60.0) / s.getDistanceKm();
-                if (pace > 2 && pace < 15) { // plage réaliste 2-15 min/km
-                    totalMinPerKm += pace;
-                    count++;
-                }
-            }
-        }
-        return count > 0 ? totalMinPerKm / count : null;
-    }
-
-    private Set<DayOfWeek> computePreferredDays(UUID adherentId) {
-        List<Participation> participations = participationRepository
-                .findByAdherentIdOrderByDateInscriptionDesc(adherentId, PageRequest.of(0, 50))
-                .getContent();
-
-        Map<DayOfWeek, Long> countByDay = new EnumMap<>(DayOfWeek.class);
-        for (Participation p : participations) {
-            if (p.getEvenement() != null && p.getEvenement().getDate() != null) {
-                DayOfWeek day = p.getEvenement().getDate().atZone(ZoneId.systemDefault()).getDayOfWeek();
-                countByDay.merge(day, 1L, Long::sum);
-            }
-        }
-        // Jours avec au moins 2 participations
-        return countByDay.entrySet().stream()
-                .filter(e -> e.getValue() >= 2)
-                .map(Map.Entry::getKey)
-                .collect(Collectors.toSet());
-    }
-
-    private PartnerMatchDto computeMatch(User adherent, User candidate, List<GroupeRunning> mesGroupes,
-                                         Double monPace, Set<DayOfWeek> mesJours) {
+    private PartnerMatchDto computeMatch(MatchingIndex.ProfilAdherent moi, MatchingIndex.ProfilAdherent candidate) {
         StringBuilder detail = new StringBuilder();
         int score = 0;
 
         // Même groupe : +30 pts
-        Optional<GroupeRunning> groupeCommun = mesGroupes.stream()
-                .filter(g -> g.getMembres().stream().anyMatch(m -> m.getId().equals(candidate.getId())))
-                .findFirst();
+        BitSet communs = (BitSet) moi.groupes().clone();
+        communs.and(candidate.groupes());
+        int groupeCommun = communs.nextSetBit(0);
 
         String groupeNom = null;
         String groupeNiveau = null;
-        if (groupeCommun.isPresent()) {
+        if (groupeCommun >= 0) {
+            MatchingIndex.GroupeIndexe groupe = matchingIndex.getGroupe(groupeCommun);
             score += 30;
-            groupeNom = groupeCommun.get().getNom();
-            groupeNiveau = groupeCommun.get().getNiveau();
+            groupeNom = groupe.nom();
+            groupeNiveau = groupe.niveau();
             detail.append("Même groupe (").append(groupeNom).append("). ");
         }
 
         // Similarité pace : max 40 pts
-        Double candidatePace = computeAveragePace(candidate.getId());
+        Double monPace = moi.pace();
+        Double candidatePace = candidate.pace();
         if (monPace != null && candidatePace != null) {
             double diff = Math.abs(monPace - candidatePace);
             if (diff < 0.25) score += 40;
@@ -191,20 +151,16 @@ public class MatchingService {
         }
 
         // Disponibilités communes : +20 pts
-        Set<DayOfWeek> candidateJours = computePreferredDays(candidate.getId());
-        long commonDays = mesJours.stream().filter(candidateJours::contains).count();
-        if (commonDays > 0) {
+        if ((moi.jours() & candidate.jours()) != 0) {
             score += 20;
             detail.append("Disponibilités compatibles. ");
         }
 
-        String displayName = (candidate.getPrenom() != null ? candidate.getPrenom() + " " : "") + candidate.getNom();
-
         return PartnerMatchDto.builder()
-                .id(candidate.getId())
-                .nom(candidate.getNom())
-                .prenom(candidate.getPrenom())
-                .email(candidate.getEmail())
+                .id(candidate.id())
+                .nom(candidate.nom())
+                .prenom(candidate.prenom())
+                .email(candidate.email())
                 .paceMoyenMinPerKm(candidatePace)
                 .groupeNom(groupeNom)
                 .groupeNiveau(groupeNiveau)
@@ -0,0 +1,75 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.NotificationPush;
+import com.example.demo.entity.StatutNotificationPush;
+import com.example.demo.event.NotificationPushEnfileeEvent;
+import com.example.demo.repository.NotificationPushRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Mise en file des notifications push (outbox transactionnelle).
+ * La notification est écrite dans la transaction de l'appelant : elle n'est envoyée que si celle-ci est validée,
+ * et la requête HTTP n'attend jamais Firebase. L'envoi est fait par {@link NotificationOutboxWorker}.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class NotificationOutboxService {
+
+    /** Nombre maximal de tokens par ligne d'outbox (un multicast FCM). */
+    public static final int TAILLE_MAX_TOKENS = 500;
+
+    private final NotificationPushRepository notificationPushRepository;
+    private final PushSender pushSender;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Met une notification en file pour les tokens donnés (dédupliqués, vides ignorés).
+     * Retourne le nombre de tokens visés.
+     */
+    @Transactional
+    public int enfiler(Collection<String> tokens, String titre, String corps) {
+        if (!pushSender.isDisponible()) {
+            log.warn("Push: notification \"{}\" ignorée - expéditeur non configuré", titre);
+            return 0;
+        }
+        Set<String> uniques = new LinkedHashSet<>();
+        for (String t : tokens) {
+            if (t != null && !t.isBlank()) {
+                uniques.add(t);
+            }
+        }
+        if (uniques.isEmpty()) {
+            return 0;
+        }
+
+        Instant maintenant = Instant.now();
+        List<String> liste = new ArrayList<>(uniques);
+        List<NotificationPush> lignes = new ArrayList<>();
+        for (int i = 0; i < liste.size(); i += TAILLE_MAX_TOKENS) {
+            NotificationPush notification = NotificationPush.builder()
+                    .titre(titre)
+                    .corps(corps)
+                    .statut(StatutNotificationPush.EN_ATTENTE)
+                    .prochainEssai(maintenant)
+                    .dateCreation(maintenant)
+                    .build();
+            notification.setListeTokens(liste.subList(i, Math.min(i + TAILLE_MAX_TOKENS, liste.size())));
+            lignes.add(notification);
+        }
+        notificationPushRepository.saveAll(lignes);
+        eventPublisher.publishEvent(new NotificationPushEnfileeEvent(lignes.size()));
+        return uniques.size();
+    }
+}
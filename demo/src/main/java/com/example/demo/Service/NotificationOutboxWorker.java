@@ -0,0 +1,293 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.NotificationPush;
+import com.example.demo.entity.StatutNotificationPush;
+import com.example.demo.event.NotificationPushEnfileeEvent;
+import com.example.demo.repository.CompteurPushRepository;
+import com.example.demo.repository.NotificationPushRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Envoi en tâche de fond des notifications de l'outbox (table notifications_push).
+ * Les notifications dues sont réservées par lots puis envoyées par un pool borné de workers ;
+ * en cas d'échec, seuls les tokens en échec sont retentés avec un délai exponentiel,
+ * jusqu'à app.push.outbox.max-tentatives, après quoi la notification passe en ECHEC (dead-letter).
+ * Les tokens rejetés définitivement par FCM sont supprimés du registre des appareils, pour que les envois suivants
+ * ne visent plus que des appareils actifs ; les remises et échecs sont comptés par utilisateur (compteurs_push).
+ * Plusieurs instances peuvent drainer la même outbox : les lots sont réservés avec FOR UPDATE SKIP LOCKED,
+ * chaque instance prend donc des notifications différentes.
+ * Métriques : push.envoi (durée d'un envoi), push.lot.tokens (taille des lots), push.tokens (par résultat)
+ * et push.notifications.abandonnees.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class NotificationOutboxWorker {
+
+    private static final int LONGUEUR_MAX_ERREUR = 500;
+
+    private final NotificationPushRepository notificationPushRepository;
+    private final CompteurPushRepository compteurPushRepository;
+    private final AppareilPushService appareilPushService;
+    private final PushSender pushSender;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final VerrouTacheService verrouTacheService;
+
+    @Value("${app.push.outbox.workers:4}")
+    private int nbWorkers;
+
+    @Value("${app.push.outbox.taille-lot:100}")
+    private int tailleLot;
+
+    @Value("${app.push.outbox.max-tentatives:5}")
+    private int maxTentatives;
+
+    @Value("${app.push.outbox.delai-reprise-ms:30000}")
+    private long delaiRepriseMs;
+
+    @Value("${app.push.outbox.delai-reprise-max-ms:3600000}")
+    private long delaiRepriseMaxMs;
+
+    @Value("${app.push.outbox.duree-reservation-ms:300000}")
+    private long dureeReservationMs;
+
+    @Value("${app.push.outbox.retention-jours:7}")
+    private int retentionJours;
+
+    private final AtomicBoolean drainEnCours = new AtomicBoolean(false);
+    private ExecutorService coordinateur;
+    private ThreadPoolExecutor workers;
+
+    private Timer envoisComplets;
+    private Timer envoisPartiels;
+    private DistributionSummary tokensParLot;
+    private Counter tokensRemis;
+    private Counter tokensEnEchec;
+    private Counter tokensInvalides;
+    private Counter notificationsAbandonnees;
+
+    @PostConstruct
+    public void init() {
+        envoisComplets = timerEnvoi("complet");
+        envoisPartiels = timerEnvoi("partiel");
+        tokensParLot = DistributionSummary.builder("push.lot.tokens")
+                .description("Nombre de tokens par lot envoyé")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        tokensRemis = meterRegistry.counter("push.tokens", "resultat", "remis");
+        tokensEnEchec = meterRegistry.counter("push.tokens", "resultat", "echec");
+        tokensInvalides = meterRegistry.counter("push.tokens", "resultat", "invalide");
+        notificationsAbandonnees = meterRegistry.counter("push.notifications.abandonnees");
+        coordinateur = Executors.newSingleThreadExecutor(nommer("push-outbox"));
+        workers = new ThreadPoolExecutor(nbWorkers, nbWorkers, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(Math.max(tailleLot, 1)), nommer("push-worker"),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @PreDestroy
+    public void arreter() {
+        coordinateur.shutdown();
+        workers.shutdown();
+        try {
+            workers.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Réveille le drainage dès qu'une transaction ayant mis des notifications en file est validée. */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onNotificationEnfilee(NotificationPushEnfileeEvent event) {
+        try {
+            coordinateur.execute(this::drainer);
+        } catch (RejectedExecutionException e) {
+            // Arrêt en cours : le prochain démarrage reprendra les notifications en attente
+        }
+    }
+
+    /** Filet de sécurité : reprises planifiées et notifications manquées par le réveil. */
+    @Scheduled(fixedDelayString = "${app.push.outbox.intervalle-ms:5000}")
+    public void drainerPeriodiquement() {
+        drainer();
+    }
+
+    /** Vide l'outbox des notifications dues ; un seul drainage à la fois. */
+    public void drainer() {
+        if (!drainEnCours.compareAndSet(false, true)) return;
+        try {
+            Instant limite = Instant.now().minusMillis(dureeReservationMs);
+            Integer liberees = transactionTemplate.execute(status -> notificationPushRepository.libererReservationsExpirees(limite));
+            if (liberees != null && liberees > 0) {
+                log.warn("Push: {} notification(s) réservée(s) depuis trop longtemps remise(s) en attente", liberees);
+            }
+
+            AtomicInteger envoyees = new AtomicInteger();
+            List<NotificationPush> lot;
+            do {
+                lot = transactionTemplate.execute(status -> reserverLot());
+                if (lot == null || lot.isEmpty()) break;
+                List<CompletableFuture<Void>> envois = new ArrayList<>(lot.size());
+                for (NotificationPush notification : lot) {
+                    envois.add(CompletableFuture.runAsync(() -> {
+                        if (traiter(notification)) envoyees.incrementAndGet();
+                    }, workers));
+                }
+                CompletableFuture.allOf(envois.toArray(CompletableFuture[]::new)).join();
+            } while (lot.size() == tailleLot);
+            if (envoyees.get() > 0) {
+                log.info("Push: {} notification(s) envoyée(s) depuis l'outbox", envoyees.get());
+            }
+        } catch (RuntimeException e) {
+            log.error("Push: erreur lors du drainage de l'outbox: {}", e.getMessage());
+        } finally {
+            drainEnCours.set(false);
+        }
+    }
+
+    /** Purge les notifications envoyées ou abandonnées plus anciennes que la rétention (une seule instance). */
+    @Scheduled(cron = "${app.push.outbox.cron-purge:0 0 4 * * *}")
+    public void purger() {
+        verrouTacheService.executerSeul("purge-outbox", Duration.ofMinutes(30), Duration.ofMinutes(5), () -> {
+            Instant limite = Instant.now().minus(retentionJours, ChronoUnit.DAYS);
+            Integer supprimees = transactionTemplate.execute(status ->
+                    notificationPushRepository.deleteByStatutAndDateCreationBefore(StatutNotificationPush.ENVOYEE, limite)
+                            + notificationPushRepository.deleteByStatutAndDateCreationBefore(StatutNotificationPush.ECHEC, limite));
+            log.info("Push: {} notification(s) purgée(s) de l'outbox", supprimees);
+        });
+    }
+
+    private List<NotificationPush> reserverLot() {
+        Instant maintenant = Instant.now();
+        List<NotificationPush> lot = notificationPushRepository.findAEnvoyer(maintenant, PageRequest.of(0, tailleLot));
+        for (NotificationPush notification : lot) {
+            notification.setStatut(StatutNotificationPush.EN_COURS);
+            notification.setDateReservation(maintenant);
+        }
+        return lot;
+    }
+
+    /** Envoie une notification réservée et enregistre le résultat ; retourne vrai si elle est entièrement remise. */
+    private boolean traiter(NotificationPush notification) {
+        PushSender.ResultatEnvoi resultat = envoyer(notification);
+        transactionTemplate.executeWithoutResult(status -> enregistrerResultat(notification.getId(), resultat));
+        return resultat.estComplet();
+    }
+
+    private PushSender.ResultatEnvoi envoyer(NotificationPush notification) {
+        List<String> tokens = notification.getListeTokens();
+        Timer.Sample chrono = Timer.start(meterRegistry);
+        PushSender.ResultatEnvoi resultat;
+        try {
+            resultat = pushSender.envoyer(tokens, notification.getTitre(), notification.getCorps());
+        } catch (RuntimeException e) {
+            resultat = PushSender.ResultatEnvoi.echecTotal(tokens, e.getMessage());
+        }
+        chrono.stop(resultat.estComplet() ? envoisComplets : envoisPartiels);
+        tokensParLot.record(tokens.size());
+        tokensRemis.increment(resultat.tokensRemis().size());
+        tokensEnEchec.increment(resultat.tokensEnEchec().size());
+        tokensInvalides.increment(resultat.tokensInvalides().size());
+        return resultat;
+    }
+
+    private Timer timerEnvoi(String resultat) {
+        return Timer.builder("push.envoi")
+                .description("Durée d'un envoi de lot à l'expéditeur push")
+                .tag("resultat", resultat)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private void enregistrerResultat(Long id, PushSender.ResultatEnvoi resultat) {
+        Instant maintenant = Instant.now();
+        compterEtNettoyer(resultat, maintenant);
+        NotificationPush notification = notificationPushRepository.findById(id).orElse(null);
+        if (notification == null) return;
+        if (resultat.estComplet()) {
+            notification.setStatut(StatutNotificationPush.ENVOYEE);
+            notification.setDateEnvoi(maintenant);
+            return;
+        }
+        int tentatives = notification.getTentatives() + 1;
+        notification.setTentatives(tentatives);
+        notification.setListeTokens(resultat.tokensEnEchec());
+        notification.setDerniereErreur(tronquer(resultat.derniereErreur()));
+        if (tentatives >= maxTentatives) {
+            notification.setStatut(StatutNotificationPush.ECHEC);
+            notificationsAbandonnees.increment();
+            log.warn("Push: notification {} abandonnée après {} tentative(s) ({} token(s)): {}",
+                    id, tentatives, resultat.tokensEnEchec().size(), resultat.derniereErreur());
+        } else {
+            notification.setStatut(StatutNotificationPush.EN_ATTENTE);
+            notification.setProchainEssai(maintenant.plus(delaiReprise(tentatives)));
+        }
+    }
+
+    /** Met à jour les compteurs par utilisateur puis efface en masse les tokens invalides. */
+    private void compterEtNettoyer(PushSender.ResultatEnvoi resultat, Instant maintenant) {
+        if (!resultat.tokensRemis().isEmpty()) {
+            compteurPushRepository.ajouterRemises(resultat.tokensRemis(), maintenant);
+        }
+        if (!resultat.tokensEnEchec().isEmpty()) {
+            compteurPushRepository.ajouterEchecs(resultat.tokensEnEchec(), maintenant);
+        }
+        if (!resultat.tokensInvalides().isEmpty()) {
+            compteurPushRepository.ajouterTokensInvalides(resultat.tokensInvalides(), maintenant);
+            int effaces = appareilPushService.supprimerTokens(resultat.tokensInvalides());
+            log.info("Push: {} token(s) invalide(s) effacé(s)", effaces);
+        }
+    }
+
+    /** Délai exponentiel (base x 2^(n-1)), plafonné, avec une gigue de 20 % pour étaler les reprises. */
+    private Duration delaiReprise(int tentatives) {
+        long delai = delaiRepriseMs << Math.min(tentatives - 1, 20);
+        delai = Math.min(delai, delaiRepriseMaxMs);
+        long gigue = (long) (delai * 0.2 * ThreadLocalRandom.current().nextDouble());
+        return Duration.ofMillis(delai + gigue);
+    }
+
+    private static String tronquer(String erreur) {
+        if (erreur == null || erreur.length() <= LONGUEUR_MAX_ERREUR) return erreur;
+        return erreur.substring(0, LONGUEUR_MAX_ERREUR);
+    }
+
+    private static ThreadFactory nommer(String prefixe) {
+        AtomicInteger compteur = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefixe + "-" + compteur.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
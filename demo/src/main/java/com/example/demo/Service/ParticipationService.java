@@ -4,18 +4,19 @@ import com.example.demo.dto.ParticipationRequest;
 import com.example.demo.entity.Evenement;
 import com.example.demo.entity.Participation;
 import com.example.demo.entity.User;
+import com.example.demo.event.ParticipationChangeEvent;
 import com.example.demo.exception.ResourceNotFoundException;
 import com.example.demo.repository.EvenementRepository;
 import com.example.demo.repository.ParticipationRepository;
 import com.example.demo.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
-import java.util.List;
 import java.util.UUID;
 
 @Service
@@ -25,7 +26,8 @@ public class ParticipationService {
     private final ParticipationRepository participationRepository;
     private final UserRepository userRepository;
     private final EvenementRepository evenementRepository;
-    private final FcmService fcmService;
+    private final DiffusionPushService diffusionPushService;
+    private final ApplicationEventPublisher eventPublisher;
 
     public Page<Participation> findAll(Pageable pageable) {
         return participationRepository.findAll(pageable);
@@ -60,16 +62,15 @@ public class ParticipationService {
                 .evenement(evenement)
                 .build();
         participation = participationRepository.save(participation);
+        eventPublisher.publishEvent(new ParticipationChangeEvent(adherent.getId()));
 
         // Notification push à l'utilisateur ajouté à l'événement
-        if (adherent.getFcmToken() != null && !adherent.getFcmToken().isBlank()) {
-            String titre = "Inscription à un événement";
-            String body = "Vous avez été inscrit à : " + evenement.getTitre();
-            if (evenement.getDate() != null) {
-                body += " (" + evenement.getDate() + ")";
-            }
-            fcmService.sendToTokens(List.of(adherent.getFcmToken()), titre, body);
+        String titre = "Inscription à un événement";
+        String body = "Vous avez été inscrit à : " + evenement.getTitre();
+        if (evenement.getDate() != null) {
+            body += " (" + evenement.getDate() + ")";
         }
+        diffusionPushService.envoyerAUtilisateur(adherent.getId(), titre, body);
 
         return participation;
     }
@@ -77,11 +78,13 @@ public class ParticipationService {
     @Transactional
     public Participation update(Long id, ParticipationRequest request) {
         Participation participation = findById(id);
+        eventPublisher.publishEvent(new ParticipationChangeEvent(participation.getAdherent().getId()));
         participation.setStatut(request.getStatut());
         if (request.getAdherentId() != null && !participation.getAdherent().getId().equals(request.getAdherentId())) {
             User adherent = userRepository.findById(request.getAdherentId())
                     .orElseThrow(() -> new ResourceNotFoundException("Utilisateur", request.getAdherentId()));
             participation.setAdherent(adherent);
+            eventPublisher.publishEvent(new ParticipationChangeEvent(adherent.getId()));
         }
         if (request.getEvenementId() != null && !participation.getEvenement().getId().equals(request.getEvenementId())) {
             Evenement evenement = evenementRepository.findById(request.getEvenementId())
@@ -93,10 +96,9 @@ public class ParticipationService {
 
     @Transactional
     public void deleteById(Long id) {
-        if (!participationRepository.existsById(id)) {
-            throw new ResourceNotFoundException("Participation", id);
-        }
-        participationRepository.deleteById(id);
+        Participation participation = findById(id);
+        participationRepository.delete(participation);
+        eventPublisher.publishEvent(new ParticipationChangeEvent(participation.getAdherent().getId()));
     }
 
     /** Inscription d'un adhérent à un événement. */
@@ -112,5 +114,6 @@ public class ParticipationService {
         Participation p = participationRepository.findByAdherentIdAndEvenementId(adherentId, evenementId)
                 .orElseThrow(() -> new ResourceNotFoundException("Participation pour cet adhérent et cet événement"));
         participationRepository.delete(p);
+        eventPublisher.publishEvent(new ParticipationChangeEvent(adherentId));
     }
 }
@@ -0,0 +1,39 @@
+package com.example.demo.service;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Expéditeur de notifications push utilisé par l'outbox.
+ * Implémentations : {@link FcmService} (Firebase, par défaut) et {@link LogPushSender}
+ * (journalisation seule, pour tester sans Firebase) ; choix par app.push.sender.
+ */
+public interface PushSender {
+
+    /** Faux si l'expéditeur n'est pas configuré : les notifications ne sont alors pas mises en file. */
+    boolean isDisponible();
+
+    /** Envoie la notification à tous les tokens ; ne lève pas d'exception pour un échec par token. */
+    ResultatEnvoi envoyer(Collection<String> tokens, String titre, String corps);
+
+    /**
+     * Résultat d'un envoi, par token : remis, en échec temporaire (à retenter)
+     * ou invalide (rejeté définitivement, à supprimer).
+     */
+    record ResultatEnvoi(Set<String> tokensRemis, Set<String> tokensEnEchec, Set<String> tokensInvalides,
+                         String derniereErreur) {
+
+        public static ResultatEnvoi succesTotal(Collection<String> tokens) {
+            return new ResultatEnvoi(Set.copyOf(tokens), Set.of(), Set.of(), null);
+        }
+
+        public static ResultatEnvoi echecTotal(Collection<String> tokens, String erreur) {
+            return new ResultatEnvoi(Set.of(), Set.copyOf(tokens), Set.of(), erreur);
+        }
+
+        /** Vrai s'il ne reste rien à retenter. */
+        public boolean estComplet() {
+            return tokensEnEchec.isEmpty();
+        }
+    }
+}
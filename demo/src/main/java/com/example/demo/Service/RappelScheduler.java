@@ -0,0 +1,199 @@
+package com.example.demo.service;
+
+import com.example.demo.event.EvenementChangeEvent;
+import com.example.demo.repository.EvenementRepository;
+import com.example.demo.service.EvenementRappelService.TypeRappel;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Planificateur des rappels 1h et 24h : une file à échéance (DelayQueue) contient le prochain rappel de chaque
+ * événement à venir, et un thread dédié l'envoie à l'heure exacte (au lieu d'un balayage périodique des événements).
+ * Chargé au démarrage à partir des indicateurs rappel_1h_envoye / rappel_24h_envoye, qui restent la référence
+ * (un rappel dont l'heure est passée pendant un arrêt est envoyé au redémarrage), puis tenu à jour après commit
+ * des créations, modifications et suppressions d'événements. Les modifications faites par une autre instance
+ * ne sont vues qu'à la resynchronisation périodique ({@code app.rappels.resynchro-ms}).
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RappelScheduler {
+
+    /** Délai avant nouvel essai si l'envoi d'un rappel échoue (base indisponible...). */
+    private static final Duration DELAI_REPRISE = Duration.ofMinutes(1);
+
+    /** Retard toléré pour un rappel 24h (redémarrage, événement créé la veille) : au-delà, seul le rappel 1h part. */
+    private static final Duration RETARD_MAX_RAPPEL_24H = Duration.ofHours(1);
+
+    private final EvenementRepository evenementRepository;
+    private final EvenementRappelService evenementRappelService;
+    private final MeterRegistry meterRegistry;
+
+    private final DelayQueue<RappelPlanifie> file = new DelayQueue<>();
+    /** Date connue de chaque événement planifié : un rappel portant une autre date est périmé et ignoré. */
+    private final Map<Long, Instant> datesPlanifiees = new ConcurrentHashMap<>();
+    private ExecutorService executor;
+
+    /** Rappel à envoyer à {@code echeance} pour l'événement daté {@code dateEvenement}. */
+    record RappelPlanifie(Long evenementId, TypeRappel type, Instant dateEvenement, Instant echeance) implements Delayed {
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(Duration.between(Instant.now(), echeance));
+        }
+
+        @Override
+        public int compareTo(Delayed autre) {
+            return echeance.compareTo(((RappelPlanifie) autre).echeance);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void demarrer() {
+        if (!evenementRappelService.isRappelsActives()) return;
+        List<EvenementRepository.EtatRappels> etats = evenementRepository.findRappelsAPlanifier(Instant.now());
+        etats.forEach(this::planifier);
+        executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "rappels");
+            t.setDaemon(true);
+            return t;
+        });
+        executor.execute(this::boucle);
+        meterRegistry.gauge("rappels.en.attente", file, DelayQueue::size);
+        log.info("Rappels: {} rappel(s) planifié(s) pour {} événement(s)", file.size(), etats.size());
+    }
+
+    /**
+     * Recharge périodiquement les événements à venir : planifie ceux créés ou déplacés par une autre instance
+     * (sans effet pour ceux dont la date n'a pas changé) et oublie ceux supprimés ou déjà notifiés ailleurs.
+     */
+    @Scheduled(initialDelayString = "${app.rappels.resynchro-ms:300000}", fixedDelayString = "${app.rappels.resynchro-ms:300000}")
+    public void resynchroniser() {
+        if (executor == null) return;
+        Map<Long, Instant> avant = Map.copyOf(datesPlanifiees);
+        Set<Long> aPlanifier = new HashSet<>();
+        for (EvenementRepository.EtatRappels etat : evenementRepository.findRappelsAPlanifier(Instant.now())) {
+            aPlanifier.add(etat.getId());
+            planifier(etat);
+        }
+        // Seules les entrées antérieures à la lecture sont retirées : un événement créé entre-temps reste planifié
+        avant.forEach((id, date) -> {
+            if (!aPlanifier.contains(id)) datesPlanifiees.remove(id, date);
+        });
+    }
+
+    @PreDestroy
+    public void arreter() {
+        if (executor != null) executor.shutdownNow();
+    }
+
+    /** Replanifie les rappels d'un événement créé, modifié ou supprimé. */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEvenementChange(EvenementChangeEvent event) {
+        if (executor == null) return;
+        evenementRepository.findEtatRappelsById(event.evenementId())
+                .ifPresentOrElse(this::planifier, () -> datesPlanifiees.remove(event.evenementId()));
+    }
+
+    private void planifier(EvenementRepository.EtatRappels etat) {
+        Instant date = etat.getDate();
+        Instant maintenant = Instant.now();
+        if (date == null || !date.isAfter(maintenant)) {
+            datesPlanifiees.remove(etat.getId());
+            return;
+        }
+        if (date.equals(datesPlanifiees.put(etat.getId(), date))) {
+            return; // date inchangée (modification du titre, du lieu...) : les rappels sont déjà dans la file
+        }
+        Instant echeance24h = date.minus(TypeRappel.H24.getAvance());
+        if (!Boolean.TRUE.equals(etat.getRappel24hEnvoye()) && maintenant.isBefore(echeance24h.plus(RETARD_MAX_RAPPEL_24H))) {
+            file.add(new RappelPlanifie(etat.getId(), TypeRappel.H24, date, echeance24h));
+        }
+        if (!Boolean.TRUE.equals(etat.getRappel1hEnvoye())) {
+            file.add(new RappelPlanifie(etat.getId(), TypeRappel.H1, date, date.minus(TypeRappel.H1.getAvance())));
+        }
+    }
+
+    /**
+     * Rattrapage manuel ({@code /api/test/rappels-1h|24h}) : envoie tout de suite le rappel {@code type} des
+     * événements de sa fenêtre habituelle (prochaine heure, ou entre 23h et 25h) qui ne l'ont pas encore reçu.
+     */
+    public void rattraper(TypeRappel type) {
+        Instant maintenant = Instant.now();
+        Instant debut = type == TypeRappel.H1 ? maintenant : maintenant.plus(type.getAvance()).minus(RETARD_MAX_RAPPEL_24H);
+        Instant fin = maintenant.plus(type.getAvance()).plus(type == TypeRappel.H1 ? Duration.ZERO : RETARD_MAX_RAPPEL_24H);
+        Map<Long, Instant> dates = new HashMap<>();
+        for (EvenementRepository.EtatRappels etat : evenementRepository.findRappelsAPlanifier(maintenant)) {
+            boolean envoye = Boolean.TRUE.equals(type == TypeRappel.H1 ? etat.getRappel1hEnvoye() : etat.getRappel24hEnvoye());
+            if (!envoye && !etat.getDate().isBefore(debut) && !etat.getDate().isAfter(fin)) {
+                dates.put(etat.getId(), etat.getDate());
+            }
+        }
+        evenementRappelService.envoyerRappels(type, dates);
+    }
+
+    /**
+     * Envoie les rappels arrivés à échéance : le premier est attendu, puis tous ceux échus en même temps
+     * (événements à la même heure) sont retirés de la file et réservés par une seule requête par type.
+     */
+    private void boucle() {
+        List<RappelPlanifie> echus = new ArrayList<>();
+        while (!Thread.currentThread().isInterrupted()) {
+            echus.clear();
+            try {
+                echus.add(file.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            file.drainTo(echus);
+            Map<TypeRappel, Map<Long, Instant>> parType = new EnumMap<>(TypeRappel.class);
+            for (RappelPlanifie rappel : echus) {
+                if (rappel.dateEvenement().equals(datesPlanifiees.get(rappel.evenementId()))) {
+                    parType.computeIfAbsent(rappel.type(), t -> new HashMap<>()).put(rappel.evenementId(), rappel.dateEvenement());
+                } // sinon événement déplacé ou supprimé depuis la planification
+            }
+            parType.forEach(this::envoyer);
+        }
+    }
+
+    private void envoyer(TypeRappel type, Map<Long, Instant> dates) {
+        try {
+            evenementRappelService.envoyerRappels(type, dates);
+            if (type == TypeRappel.H1) {
+                dates.forEach(datesPlanifiees::remove);
+            }
+        } catch (RuntimeException e) {
+            log.error("Rappels: échec du rappel {} de {} événement(s): {}", type, dates.size(), e.getMessage());
+            Instant reprise = Instant.now().plus(DELAI_REPRISE);
+            dates.forEach((id, date) -> {
+                if (reprise.isBefore(date)) {
+                    file.add(new RappelPlanifie(id, type, date, reprise));
+                }
+            });
+        }
+    }
+}
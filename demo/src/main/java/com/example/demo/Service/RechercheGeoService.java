@@ -0,0 +1,169 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.EvenementProcheDto;
+import com.example.demo.dto.SessionProcheDto;
+import com.example.demo.entity.Role;
+import com.example.demo.repository.EvenementRepository;
+import com.example.demo.repository.SessionCourseRepository;
+import com.example.demo.security.JwtPrincipal;
+import com.example.demo.track.GrilleGeo;
+import com.example.demo.track.GrilleGeo.Plage;
+import com.example.demo.track.GrilleGeo.Zone;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Recherche géographique des événements (lieu de rencontre) et des sessions (point de départ du tracé) :
+ * autour d'un point dans un rayon, ou dans une zone rectangulaire. Les deux s'appuient sur la clé de grille
+ * {@link GrilleGeo} indexée en base : seules les lignes des cellules couvrant la zone sont lues, quel que soit
+ * le nombre total de lignes.
+ * Les clés des sessions existantes sont calculées par TrackMigrationService, celles des événements au démarrage.
+ * Le point de départ d'une session est souvent le domicile du coureur : un adhérent ne trouve que ses sessions
+ * et celles des membres de ses groupes (l'admin principal et les coachs, toutes).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RechercheGeoService {
+
+    private final EvenementRepository evenementRepository;
+    private final SessionCourseRepository sessionCourseRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final AppartenanceGroupesCache appartenanceGroupesCache;
+
+    @Value("${app.geo.rayon-max-km:50}")
+    private double rayonMaxKm = 50;
+
+    @Value("${app.geo.limite-max:200}")
+    private int limiteMax = 200;
+
+    public List<EvenementProcheDto> evenementsProches(double lat, double lng, double rayonKm, boolean aVenir, int limite) {
+        double rayonM = verifierRayon(rayonKm);
+        Zone zone = Zone.autour(lat, lng, rayonM);
+        List<Plage> plages = GrilleGeo.plages(zone);
+        return evenementRepository.findProches(lat, lng, rayonM, GrilleGeo.debuts(plages), GrilleGeo.fins(plages),
+                        zone.latMin(), zone.latMax(), zone.lngMin(), zone.lngMax(), aVenir, Instant.now(),
+                        verifierLimite(limite))
+                .stream().map(RechercheGeoService::toDto).toList();
+    }
+
+    public List<EvenementProcheDto> evenementsDansZone(Zone zone, boolean aVenir, int limite) {
+        verifierZone(zone);
+        List<Plage> plages = GrilleGeo.plages(zone);
+        return evenementRepository.findDansZone(GrilleGeo.debuts(plages), GrilleGeo.fins(plages),
+                        zone.latMin(), zone.latMax(), zone.lngMin(), zone.lngMax(), aVenir, Instant.now(),
+                        verifierLimite(limite))
+                .stream().map(RechercheGeoService::toDto).toList();
+    }
+
+    public List<SessionProcheDto> sessionsProches(double lat, double lng, double rayonKm, int limite,
+                                                  JwtPrincipal demandeur) {
+        double rayonM = verifierRayon(rayonKm);
+        Zone zone = Zone.autour(lat, lng, rayonM);
+        List<Plage> plages = GrilleGeo.plages(zone);
+        UUID[] visibles = adherentsVisibles(demandeur);
+        return sessionCourseRepository.findProches(lat, lng, rayonM, GrilleGeo.debuts(plages), GrilleGeo.fins(plages),
+                        zone.latMin(), zone.latMax(), zone.lngMin(), zone.lngMax(),
+                        visibles == null, visibles != null ? visibles : new UUID[0], verifierLimite(limite))
+                .stream().map(RechercheGeoService::toDto).toList();
+    }
+
+    public List<SessionProcheDto> sessionsDansZone(Zone zone, int limite, JwtPrincipal demandeur) {
+        verifierZone(zone);
+        List<Plage> plages = GrilleGeo.plages(zone);
+        UUID[] visibles = adherentsVisibles(demandeur);
+        return sessionCourseRepository.findDansZone(GrilleGeo.debuts(plages), GrilleGeo.fins(plages),
+                        zone.latMin(), zone.latMax(), zone.lngMin(), zone.lngMax(),
+                        visibles == null, visibles != null ? visibles : new UUID[0], verifierLimite(limite))
+                .stream().map(RechercheGeoService::toDto).toList();
+    }
+
+    /** Calcule la clé de grille des événements localisés créés avant l'index (peu nombreux : une seule transaction). */
+    @EventListener(ApplicationReadyEvent.class)
+    public void indexerEvenements() {
+        Integer nb = transactionTemplate.execute(status -> {
+            List<EvenementRepository.PositionAIndexer> positions = evenementRepository.findPositionsAIndexer();
+            for (EvenementRepository.PositionAIndexer p : positions) {
+                evenementRepository.indexerPosition(p.getId(), GrilleGeo.cle(p.getLatitude(), p.getLongitude()));
+            }
+            return positions.size();
+        });
+        if (nb != null && nb > 0) {
+            log.info("Recherche géographique: {} événement(s) indexé(s)", nb);
+        }
+    }
+
+    /** Adhérents dont le demandeur voit les sessions : lui-même et les membres de ses groupes (null : tous). */
+    private UUID[] adherentsVisibles(JwtPrincipal demandeur) {
+        if (demandeur.getRole() == Role.ADMIN_PRINCIPAL || demandeur.getRole() == Role.ADMIN_COACH) {
+            return null;
+        }
+        Set<UUID> visibles = new HashSet<>();
+        visibles.add(demandeur.getId());
+        for (long groupeId : appartenanceGroupesCache.groupesDe(demandeur.getId())) {
+            visibles.addAll(appartenanceGroupesCache.groupe(groupeId).destinataires());
+        }
+        return visibles.toArray(UUID[]::new);
+    }
+
+    private double verifierRayon(double rayonKm) {
+        if (!(rayonKm > 0 && rayonKm <= rayonMaxKm)) {
+            throw new IllegalArgumentException("Le rayon doit être compris entre 0 et " + rayonMaxKm + " km");
+        }
+        return rayonKm * 1000;
+    }
+
+    /** Zone au plus aussi étendue que le cercle de rayon maximal : le coût reste borné. */
+    private void verifierZone(Zone zone) {
+        if (zone.etendueM() > 2 * rayonMaxKm * 1000) {
+            throw new IllegalArgumentException("Zone trop étendue (au plus " + 2 * rayonMaxKm + " km de côté)");
+        }
+    }
+
+    private int verifierLimite(int limite) {
+        if (limite < 1 || limite > limiteMax) {
+            throw new IllegalArgumentException("La limite doit être comprise entre 1 et " + limiteMax);
+        }
+        return limite;
+    }
+
+    private static EvenementProcheDto toDto(EvenementRepository.EvenementProche e) {
+        return EvenementProcheDto.builder()
+                .id(e.getId())
+                .titre(e.getTitre())
+                .date(e.getDate())
+                .type(e.getType())
+                .lieu(e.getLieu())
+                .latitude(e.getLatitude())
+                .longitude(e.getLongitude())
+                .groupeId(e.getGroupeId())
+                .distanceM(e.getDistanceM() != null ? Math.round(e.getDistanceM() * 10) / 10.0 : null)
+                .build();
+    }
+
+    private static SessionProcheDto toDto(SessionCourseRepository.SessionProche s) {
+        return SessionProcheDto.builder()
+                .id(s.getId())
+                .adherentId(s.getAdherentId())
+                .evenementId(s.getEvenementId())
+                .startedAt(s.getStartedAt())
+                .distanceKm(s.getDistanceKm())
+                .durationSeconds(s.getDurationSeconds())
+                .denivelePositifM(s.getDenivelePositifM())
+                .departLatitude(s.getDepartLatitude())
+                .departLongitude(s.getDepartLongitude())
+                .distanceM(s.getDistanceM() != null ? Math.round(s.getDistanceM() * 10) / 10.0 : null)
+                .build();
+    }
+}
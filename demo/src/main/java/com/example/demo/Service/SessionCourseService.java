@@ -1,19 +1,27 @@
 package com.example.demo.service;
 
 import com.example.demo.dto.SessionCourseRequest;
+import com.example.demo.dto.SessionCourseResumeDto;
 import com.example.demo.entity.Evenement;
 import com.example.demo.entity.SessionCourse;
 import com.example.demo.entity.User;
+import com.example.demo.event.SessionCourseChangeEvent;
 import com.example.demo.exception.ResourceNotFoundException;
 import com.example.demo.repository.EvenementRepository;
 import com.example.demo.repository.SessionCourseRepository;
 import com.example.demo.repository.UserRepository;
+import com.example.demo.track.NiveauTrace;
+import com.example.demo.track.TrackAnalyseur;
+import com.example.demo.track.TrackCodec;
+import com.example.demo.track.TrackSimplificateur;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Optional;
 import java.util.UUID;
 
 @Service
@@ -23,25 +31,53 @@ public class SessionCourseService {
     private final SessionCourseRepository sessionCourseRepository;
     private final UserRepository userRepository;
     private final EvenementRepository evenementRepository;
+    private final StatsAdherentService statsAdherentService;
+    private final ApplicationEventPublisher eventPublisher;
 
     public SessionCourse findById(Long id) {
         return sessionCourseRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("SessionCourse", id));
     }
 
-    public Page<SessionCourse> findByAdherentId(UUID adherentId, Pageable pageable) {
-        return sessionCourseRepository.findByAdherentIdOrderByStartedAtDesc(adherentId, pageable);
+    public Page<SessionCourseResumeDto> findByAdherentId(UUID adherentId, Pageable pageable) {
+        return sessionCourseRepository.findResumesByAdherentId(adherentId, pageable);
     }
 
-    /** Sessions de l'adhérent connecté (par nom d'utilisateur). */
-    public Page<SessionCourse> findMySessions(String username, Pageable pageable) {
+    /** Sessions de l'adhérent connecté (par nom d'utilisateur), sans les tracés GPS. */
+    public Page<SessionCourseResumeDto> findMySessions(String username, Pageable pageable) {
         User user = userRepository.findByNom(username)
                 .orElseThrow(() -> new ResourceNotFoundException("User", username));
-        return sessionCourseRepository.findByAdherentIdOrderByStartedAtDesc(user.getId(), pageable);
+        return sessionCourseRepository.findResumesByAdherentId(user.getId(), pageable);
     }
 
-    public Page<SessionCourse> findByEvenementId(Long evenementId, Pageable pageable) {
-        return sessionCourseRepository.findByEvenementIdOrderByStartedAtDesc(evenementId, pageable);
+    public Page<SessionCourseResumeDto> findByEvenementId(Long evenementId, Pageable pageable) {
+        return sessionCourseRepository.findResumesByEvenementId(evenementId, pageable);
+    }
+
+    /** Tracé GPS seul d'une session (format compact, ou ancien JSON si pas encore migré). */
+    public SessionCourseRepository.TrackBrut findTrack(Long id) {
+        SessionCourseRepository.TrackBrut track = sessionCourseRepository.findTrackById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("SessionCourse", id));
+        if (track.getTrackData() == null && (track.getTrackJson() == null || track.getTrackJson().isBlank())) {
+            throw new ResourceNotFoundException("Tracé GPS de la session", id);
+        }
+        return track;
+    }
+
+    /**
+     * Tracé compact simplifié au niveau demandé : niveau précalculé, ou simplifié à la volée
+     * pour une session pas encore traitée par TrackMigrationService.
+     */
+    public byte[] findTrackSimplifie(Long id, NiveauTrace niveau) {
+        Optional<byte[]> precalcule = niveau == NiveauTrace.APERCU
+                ? sessionCourseRepository.findTrackApercuById(id)
+                : sessionCourseRepository.findTrackMoyenById(id);
+        if (precalcule.isPresent()) {
+            return precalcule.get();
+        }
+        SessionCourseRepository.TrackBrut track = findTrack(id);
+        byte[] data = track.getTrackData() != null ? track.getTrackData() : TrackCodec.fromJson(track.getTrackJson());
+        return TrackSimplificateur.simplifier(data, niveau);
     }
 
     @Transactional
@@ -55,22 +91,42 @@ public class SessionCourseService {
                     .orElse(null);
         }
 
+        // Tracé lu une seule fois : encodé au format compact et analysé au fil de la lecture
+        TrackAnalyseur analyseur = new TrackAnalyseur();
+        byte[] trackData = TrackCodec.fromJson(request.getTrack(), analyseur);
         SessionCourse session = SessionCourse.builder()
                 .adherent(adherent)
                 .evenement(evenement)
                 .distanceKm(request.getDistanceKm())
                 .durationSeconds(request.getDurationSeconds())
                 .startedAt(request.getStartedAt())
-                .track(request.getTrack())
+                .trackData(trackData)
                 .build();
-        return sessionCourseRepository.save(session);
+        return enregistrer(session, trackData != null ? analyseur.resultat() : null);
+    }
+
+    /**
+     * Enregistre une nouvelle session dont le tracé compact est déjà renseigné (analyse null sans tracé) :
+     * valeurs dérivées du tracé, niveaux simplifiés, statistiques de l'adhérent.
+     */
+    SessionCourse enregistrer(SessionCourse session, TrackAnalyseur.Resultat analyse) {
+        if (analyse != null) {
+            session.appliquerAnalyse(analyse);
+            session.simplifierTrack();
+        }
+        session = sessionCourseRepository.save(session);
+        UUID adherentId = session.getAdherent().getId();
+        statsAdherentService.enregistrerSession(adherentId, session);
+        eventPublisher.publishEvent(new SessionCourseChangeEvent(adherentId));
+        return session;
     }
 
     @Transactional
     public void deleteById(Long id) {
-        if (!sessionCourseRepository.existsById(id)) {
-            throw new ResourceNotFoundException("SessionCourse", id);
-        }
-        sessionCourseRepository.deleteById(id);
+        SessionCourse session = findById(id);
+        sessionCourseRepository.delete(session);
+        sessionCourseRepository.flush();
+        statsAdherentService.recalculer(session.getAdherent().getId());
+        eventPublisher.publishEvent(new SessionCourseChangeEvent(session.getAdherent().getId()));
     }
 }
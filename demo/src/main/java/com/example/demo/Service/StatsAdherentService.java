@@ -3,34 +3,50 @@ package com.example.demo.service;
 import com.example.demo.dto.StatsAdherentDto;
 import com.example.demo.entity.Role;
 import com.example.demo.entity.SessionCourse;
+import com.example.demo.entity.StatsAdherent;
 import com.example.demo.entity.User;
 import com.example.demo.exception.ResourceNotFoundException;
 import com.example.demo.repository.ParticipationRepository;
 import com.example.demo.repository.SessionCourseRepository;
+import com.example.demo.repository.StatsAdherentRepository;
 import com.example.demo.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Statistiques de course des adhérents (distance, pace, nombre de sorties, etc.).
  * Réservé au rôle ADHERENT.
+ * Les totaux sont lus dans l'agrégat stats_adherents, tenu à jour par {@link SessionCourseService}
+ * et reconstruit périodiquement à partir des sessions.
  */
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class StatsAdherentService {
 
+    private final StatsAdherentRepository statsAdherentRepository;
     private final SessionCourseRepository sessionCourseRepository;
     private final ParticipationRepository participationRepository;
     private final UserRepository userRepository;
+    private final VerrouTacheService verrouTacheService;
 
     /**
      * Récupère les statistiques de l'adhérent connecté.
      * Seuls les utilisateurs avec le rôle ADHERENT peuvent accéder à leurs stats.
      */
+    @Transactional
     public StatsAdherentDto getStatsForMe(UUID adherentId) {
         User user = userRepository.findById(adherentId)
                 .orElseThrow(() -> new ResourceNotFoundException("User", adherentId));
@@ -39,49 +55,106 @@ public class StatsAdherentService {
             throw new AccessDeniedException("Les statistiques sont réservées aux adhérents.");
         }
 
-        return computeStats(adherentId);
-    }
-
-    private StatsAdherentDto computeStats(UUID adherentId) {
-        List<SessionCourse> sessions = sessionCourseRepository.findAllByAdherent_IdOrderByStartedAtDesc(adherentId);
+        StatsAdherent stats = statsAdherentRepository.findById(adherentId)
+                .orElseGet(() -> recalculer(adherentId));
         long nbEvenements = participationRepository.countByAdherent_Id(adherentId);
+        return toDto(stats, nbEvenements);
+    }
 
-        double totalDistanceKm = 0;
-        long totalDurationSeconds = 0;
-        double plusLongueSortieKm = 0;
-        Double meilleurPaceMinPerKm = null;
+    /** Ajoute une session nouvellement enregistrée à l'agrégat (dans la transaction de création). */
+    @Transactional
+    public void enregistrerSession(UUID adherentId, SessionCourse session) {
+        if (statsAdherentRepository.insererSiAbsent(adherentId) > 0) {
+            // Première session (ou agrégat jamais construit) : calcul complet, qui inclut la session en cours
+            recalculer(adherentId);
+            return;
+        }
+        StatsAdherent stats = statsAdherentRepository.findByIdForUpdate(adherentId).orElseThrow();
+        stats.ajouterSession(session.getDistanceKm(), session.getDurationSeconds(),
+                session.getDureeMouvementSecondes(), session.getPaceMouvementMinKm());
+        statsAdherentRepository.save(stats);
+    }
 
-        for (SessionCourse s : sessions) {
-            double d = s.getDistanceKm() != null ? s.getDistanceKm() : 0;
-            long dur = s.getDurationSeconds() != null ? s.getDurationSeconds() : 0;
+    /**
+     * Recalcule l'agrégat d'un adhérent par une seule requête d'agrégation (sans tracés GPS).
+     * Utilisé après suppression d'une session : plus longue sortie et meilleur pace ne se décrémentent pas.
+     * La ligne est créée au besoin avant d'être verrouillée : un calcul concurrent (première session, lecture des
+     * stats) attend celui-ci au lieu d'échouer sur une clé en double.
+     */
+    @Transactional
+    public StatsAdherent recalculer(UUID adherentId) {
+        statsAdherentRepository.insererSiAbsent(adherentId);
+        StatsAdherent stats = statsAdherentRepository.findByIdForUpdate(adherentId).orElseThrow();
+        appliquer(stats, sessionCourseRepository.aggregateByAdherentId(adherentId).orElse(null));
+        return statsAdherentRepository.save(stats);
+    }
 
-            totalDistanceKm += d;
-            totalDurationSeconds += dur;
+    /** Reconstruction nocturne, exécutée par une seule instance. */
+    @Scheduled(cron = "${app.stats.cron-reconstruction:0 30 3 * * *}")
+    @Transactional
+    public void reconstructionPlanifiee() {
+        verrouTacheService.executerSeul("stats-reconstruction", Duration.ofHours(1), Duration.ofMinutes(5), this::reconstruireTout);
+    }
 
-            if (d > plusLongueSortieKm) {
-                plusLongueSortieKm = d;
+    /** Reconstruit tout stats_adherents à partir des sessions (rattrape les écarts éventuels). */
+    @Transactional
+    public void reconstruireTout() {
+        long debut = System.currentTimeMillis();
+        Map<UUID, StatsAdherent> existants = statsAdherentRepository.findAll().stream()
+                .collect(Collectors.toMap(StatsAdherent::getAdherentId, Function.identity()));
+        List<StatsAdherent> aSauver = new ArrayList<>();
+        for (SessionCourseRepository.AgregatSessions agregat : sessionCourseRepository.aggregateAllByAdherent()) {
+            StatsAdherent stats = existants.remove(agregat.getAdherentId());
+            if (stats == null) {
+                // Ligne créée d'abord : une première session enregistrée en parallèle ne la crée pas une seconde fois
+                statsAdherentRepository.insererSiAbsent(agregat.getAdherentId());
+                stats = StatsAdherent.builder().adherentId(agregat.getAdherentId()).build();
             }
+            appliquer(stats, agregat);
+            aSauver.add(stats);
+        }
+        // Adhérents dont toutes les sessions ont disparu
+        for (StatsAdherent stats : existants.values()) {
+            appliquer(stats, null);
+            aSauver.add(stats);
+        }
+        statsAdherentRepository.saveAll(aSauver);
+        log.info("Stats: agrégats reconstruits pour {} adhérent(s) en {} ms", aSauver.size(), System.currentTimeMillis() - debut);
+    }
 
-            if (d > 0 && dur > 0) {
-                double pace = (dur / 60.0) / d;
-                if (meilleurPaceMinPerKm == null || pace < meilleurPaceMinPerKm) {
-                    meilleurPaceMinPerKm = pace;
-                }
-            }
+    private static void appliquer(StatsAdherent stats, SessionCourseRepository.AgregatSessions agregat) {
+        if (agregat == null) {
+            stats.setNbSorties(0);
+            stats.setTotalDistanceKm(0);
+            stats.setTotalDurationSeconds(0);
+            stats.setTotalDureeMouvementSecondes(0);
+            stats.setPlusLongueSortieKm(0);
+            stats.setMeilleurPaceMinPerKm(null);
+            return;
         }
+        stats.setNbSorties(agregat.getNbSorties() != null ? agregat.getNbSorties() : 0);
+        stats.setTotalDistanceKm(agregat.getTotalDistanceKm() != null ? agregat.getTotalDistanceKm() : 0);
+        stats.setTotalDurationSeconds(agregat.getTotalDurationSeconds() != null ? agregat.getTotalDurationSeconds() : 0);
+        stats.setTotalDureeMouvementSecondes(agregat.getTotalDureeMouvementSecondes() != null ? agregat.getTotalDureeMouvementSecondes() : 0);
+        stats.setPlusLongueSortieKm(agregat.getPlusLongueSortieKm() != null ? Math.max(0, agregat.getPlusLongueSortieKm()) : 0);
+        stats.setMeilleurPaceMinPerKm(agregat.getMeilleurPaceMinPerKm());
+    }
 
+    private static StatsAdherentDto toDto(StatsAdherent stats, long nbEvenements) {
+        // Temps en mouvement (arrêts exclus) ; durée totale pour un agrégat antérieur à l'analyse des tracés
+        long duree = stats.getTotalDureeMouvementSecondes() > 0 ? stats.getTotalDureeMouvementSecondes() : stats.getTotalDurationSeconds();
         Double paceMoyenMinPerKm = null;
-        if (totalDistanceKm > 0 && totalDurationSeconds > 0) {
-            paceMoyenMinPerKm = (totalDurationSeconds / 60.0) / totalDistanceKm;
+        if (stats.getTotalDistanceKm() > 0 && duree > 0) {
+            paceMoyenMinPerKm = (duree / 60.0) / stats.getTotalDistanceKm();
         }
 
         return StatsAdherentDto.builder()
-                .totalDistanceKm(totalDistanceKm)
-                .nbSorties(sessions.size())
+                .totalDistanceKm(stats.getTotalDistanceKm())
+                .nbSorties((int) stats.getNbSorties())
                 .paceMoyenMinPerKm(paceMoyenMinPerKm)
                 .nbEvenements((int) nbEvenements)
-                .plusLongueSortieKm(plusLongueSortieKm > 0 ? plusLongueSortieKm : null)
-                .meilleurPaceMinPerKm(meilleurPaceMinPerKm)
+                .plusLongueSortieKm(stats.getPlusLongueSortieKm() > 0 ? stats.getPlusLongueSortieKm() : null)
+                .meilleurPaceMinPerKm(stats.getMeilleurPaceMinPerKm())
                 .build();
     }
 }
@@ -0,0 +1,320 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.PositionDirectRequest;
+import com.example.demo.entity.Role;
+import com.example.demo.event.EvenementChangeEvent;
+import com.example.demo.exception.ForbiddenGroupException;
+import com.example.demo.exception.ResourceNotFoundException;
+import com.example.demo.repository.EvenementRepository;
+import com.example.demo.security.JwtPrincipal;
+import com.example.demo.track.AnneauPositions;
+import com.example.demo.track.TrackPoint;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Suivi en direct des courses d'un événement : les coureurs envoient leurs positions, les spectateurs les reçoivent
+ * en Server-Sent Events. Tout est en mémoire, sans requête en base par position : un canal par événement, un tampon
+ * circulaire ({@link AnneauPositions}) par coureur, protégé par un verrou choisi parmi {@value #NB_VERROUS}
+ * (verrous striés). Un thread dédié diffuse à cadence fixe (app.direct.intervalle-ms) la dernière position des
+ * coureurs qui ont bougé : les positions reçues entre deux diffusions sont fusionnées, et le message est sérialisé
+ * une seule fois pour tous les spectateurs. Les coureurs sans position depuis app.direct.inactivite-minutes sont
+ * retirés, puis les canaux vides. État propre à chaque instance : derrière un répartiteur de charge, coureurs et
+ * spectateurs d'un même événement doivent être dirigés vers la même instance (affinité sur l'id d'événement).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SuiviDirectService {
+
+    private static final int NB_VERROUS = 64;
+    /** Commentaire SSE envoyé à cette fréquence pour garder les connexions ouvertes à travers les proxys. */
+    private static final long BATTEMENT_MS = 15_000;
+
+    private final EvenementRepository evenementRepository;
+    private final AppartenanceGroupesCache appartenanceGroupesCache;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.direct.intervalle-ms:1000}")
+    private long intervalleMs;
+
+    @Value("${app.direct.positions-par-coureur:120}")
+    private int positionsParCoureur;
+
+    @Value("${app.direct.inactivite-minutes:30}")
+    private long inactiviteMinutes;
+
+    @Value("${app.direct.sse-timeout-ms:3600000}")
+    private long sseTimeoutMs;
+
+    private final Map<Long, Canal> canaux = new ConcurrentHashMap<>();
+    private final Object[] verrous = creerVerrous();
+    private ScheduledExecutorService executor;
+    private long dernierBattement = System.currentTimeMillis();
+
+    /** Canal d'un événement : coureurs, coureurs ayant bougé depuis la dernière diffusion, spectateurs. */
+    private static final class Canal {
+        final Long evenementId;
+        volatile Long groupeId;
+        final Map<UUID, AnneauPositions> coureurs = new ConcurrentHashMap<>();
+        final Set<UUID> modifies = ConcurrentHashMap.newKeySet();
+        final Set<SseEmitter> spectateurs = ConcurrentHashMap.newKeySet();
+
+        Canal(Long evenementId, Long groupeId) {
+            this.evenementId = evenementId;
+            this.groupeId = groupeId;
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void demarrer() {
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "suivi-direct");
+            t.setDaemon(true);
+            return t;
+        });
+        executor.scheduleAtFixedRate(this::diffuser, intervalleMs, intervalleMs, TimeUnit.MILLISECONDS);
+        meterRegistry.gauge("direct.spectateurs", canaux, c -> c.values().stream().mapToInt(k -> k.spectateurs.size()).sum());
+        meterRegistry.gauge("direct.coureurs", canaux, c -> c.values().stream().mapToInt(k -> k.coureurs.size()).sum());
+    }
+
+    @PreDestroy
+    public void arreter() {
+        if (executor != null) executor.shutdownNow();
+        canaux.values().forEach(canal -> canal.spectateurs.forEach(SseEmitter::complete));
+    }
+
+    /**
+     * Positions d'un coureur, membre (ou responsable) du groupe de l'événement. Les positions pas plus récentes que
+     * la dernière reçue sont ignorées (renvoi après coupure).
+     */
+    public void ajouterPositions(Long evenementId, JwtPrincipal coureur, List<PositionDirectRequest> positions) {
+        Long groupeId = groupeId(evenementId);
+        if (!appartenanceGroupesCache.groupe(groupeId).destinataires().contains(coureur.getId())) {
+            throw new ForbiddenGroupException("Seuls les membres du groupe peuvent partager leur position.");
+        }
+        if (positions.isEmpty()) return;
+        long maintenant = System.currentTimeMillis();
+        for (PositionDirectRequest p : positions) {
+            if (p.getLat() == null || p.getLng() == null || Math.abs(p.getLat()) > 90 || Math.abs(p.getLng()) > 180) {
+                throw new IllegalArgumentException("Position invalide : lat et lng sont requis");
+            }
+        }
+        UUID coureurId = coureur.getId();
+        while (true) {
+            Canal canal = canaux.computeIfAbsent(evenementId, id -> new Canal(id, groupeId));
+            AnneauPositions anneau = canal.coureurs.computeIfAbsent(coureurId, k -> new AnneauPositions(positionsParCoureur));
+            boolean ajout = false;
+            synchronized (verrou(evenementId, coureurId)) {
+                // Coureur retiré pour inactivité ou canal vide fermé par nettoyer() depuis la lecture : on recommence,
+                // sinon les positions iraient dans un tampon que plus personne ne lit. Le nettoyage prend le même
+                // verrou : une fois la vérification passée, le tampon (rafraîchi) et son canal restent en place.
+                if (canal.coureurs.get(coureurId) != anneau || canaux.get(evenementId) != canal) {
+                    continue;
+                }
+                for (PositionDirectRequest p : positions) {
+                    // Horloge du téléphone en avance : bornée à l'heure du serveur
+                    long t = p.getT() != null ? Math.min(p.getT(), maintenant) : maintenant;
+                    ajout |= anneau.ajouter(p.getLat(), p.getLng(), t);
+                }
+            }
+            if (ajout) {
+                canal.modifies.add(coureurId);
+            }
+            return;
+        }
+    }
+
+    /**
+     * Abonnement d'un spectateur (membre du groupe, ou admin principal / coach) : un événement "instantane" avec les
+     * positions récentes de chaque coureur, puis un événement "positions" à chaque diffusion où un coureur a bougé.
+     */
+    public SseEmitter suivre(Long evenementId, JwtPrincipal spectateur) {
+        Long groupeId = groupeId(evenementId);
+        boolean admin = spectateur.getRole() == Role.ADMIN_PRINCIPAL || spectateur.getRole() == Role.ADMIN_COACH;
+        if (!admin && !appartenanceGroupesCache.groupe(groupeId).destinataires().contains(spectateur.getId())) {
+            throw new ForbiddenGroupException("Le suivi en direct est réservé aux membres du groupe.");
+        }
+        SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+        Canal canal = canaux.compute(evenementId, (id, c) -> {
+            c = c != null ? c : new Canal(id, groupeId);
+            c.spectateurs.add(emitter);
+            return c;
+        });
+        Runnable retirer = () -> canal.spectateurs.remove(emitter);
+        emitter.onCompletion(retirer);
+        emitter.onTimeout(retirer);
+        emitter.onError(e -> retirer.run());
+        try {
+            emitter.send(SseEmitter.event().name("instantane").data(instantane(canal)));
+        } catch (IOException e) {
+            retirer.run();
+            emitter.completeWithError(e);
+        }
+        return emitter;
+    }
+
+    /** Événement déplacé dans un autre groupe ou supprimé : met à jour ou ferme son canal. */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEvenementChange(EvenementChangeEvent event) {
+        Canal canal = canaux.get(event.evenementId());
+        if (canal == null) return;
+        evenementRepository.findGroupeIdById(event.evenementId()).ifPresentOrElse(
+                groupeId -> canal.groupeId = groupeId,
+                () -> {
+                    canaux.remove(event.evenementId());
+                    canal.spectateurs.forEach(SseEmitter::complete);
+                });
+    }
+
+    /** Groupe de l'événement : connu du canal s'il existe, sinon lu en base (une fois par canal). */
+    private Long groupeId(Long evenementId) {
+        Canal canal = canaux.get(evenementId);
+        if (canal != null) {
+            return canal.groupeId;
+        }
+        return evenementRepository.findGroupeIdById(evenementId)
+                .orElseThrow(() -> new ResourceNotFoundException("Evenement", evenementId));
+    }
+
+    private void diffuser() {
+        try {
+            long maintenant = System.currentTimeMillis();
+            boolean battement = maintenant - dernierBattement >= BATTEMENT_MS;
+            for (Canal canal : canaux.values()) {
+                if (canal.spectateurs.isEmpty()) {
+                    canal.modifies.clear();
+                } else if (!canal.modifies.isEmpty()) {
+                    envoyer(canal, SseEmitter.event().name("positions").data(dernieresPositions(canal)));
+                }
+                if (battement && !canal.spectateurs.isEmpty()) {
+                    envoyer(canal, SseEmitter.event().comment("battement"));
+                }
+            }
+            if (battement) {
+                dernierBattement = maintenant;
+                nettoyer(maintenant - TimeUnit.MINUTES.toMillis(inactiviteMinutes));
+            }
+        } catch (RuntimeException e) {
+            log.error("Suivi direct: échec de la diffusion: {}", e.getMessage(), e);
+        }
+    }
+
+    private void envoyer(Canal canal, SseEmitter.SseEventBuilder evenement) {
+        for (SseEmitter emitter : canal.spectateurs) {
+            try {
+                emitter.send(evenement);
+            } catch (IOException | IllegalStateException e) {
+                canal.spectateurs.remove(emitter); // spectateur parti
+            }
+        }
+    }
+
+    /** Retire les coureurs sans position depuis la limite, puis les canaux sans coureur ni spectateur. */
+    private void nettoyer(long limite) {
+        for (Canal canal : canaux.values()) {
+            canal.coureurs.forEach((coureurId, anneau) -> {
+                synchronized (verrou(canal.evenementId, coureurId)) {
+                    if (!anneau.isEmpty() && anneau.derniereDate() < limite) {
+                        canal.coureurs.remove(coureurId, anneau);
+                    }
+                }
+            });
+            canaux.computeIfPresent(canal.evenementId,
+                    (id, c) -> c.coureurs.isEmpty() && c.spectateurs.isEmpty() ? null : c);
+        }
+    }
+
+    /** [{ "adherentId", "lat", "lng", "t" }] : dernière position des coureurs ayant bougé depuis la diffusion précédente. */
+    private String dernieresPositions(Canal canal) {
+        List<UUID> ids = new ArrayList<>(canal.modifies);
+        canal.modifies.removeAll(ids);
+        StringWriter writer = new StringWriter(ids.size() * 96);
+        try (JsonGenerator gen = JsonMapper.shared().createGenerator(writer)) {
+            gen.writeStartArray();
+            for (UUID id : ids) {
+                AnneauPositions anneau = canal.coureurs.get(id);
+                if (anneau == null) continue;
+                TrackPoint p;
+                synchronized (verrou(canal.evenementId, id)) {
+                    p = anneau.derniere();
+                }
+                if (p == null) continue;
+                gen.writeStartObject();
+                gen.writeStringProperty("adherentId", id.toString());
+                ecrirePosition(gen, p);
+                gen.writeEndObject();
+            }
+            gen.writeEndArray();
+        }
+        return writer.toString();
+    }
+
+    /** [{ "adherentId", "positions": [{ "lat", "lng", "t" }] }] : positions récentes de chaque coureur. */
+    private String instantane(Canal canal) {
+        StringWriter writer = new StringWriter();
+        try (JsonGenerator gen = JsonMapper.shared().createGenerator(writer)) {
+            gen.writeStartArray();
+            for (Map.Entry<UUID, AnneauPositions> coureur : canal.coureurs.entrySet()) {
+                List<TrackPoint> positions;
+                synchronized (verrou(canal.evenementId, coureur.getKey())) {
+                    positions = coureur.getValue().positions();
+                }
+                gen.writeStartObject();
+                gen.writeStringProperty("adherentId", coureur.getKey().toString());
+                gen.writeName("positions");
+                gen.writeStartArray();
+                for (TrackPoint p : positions) {
+                    gen.writeStartObject();
+                    ecrirePosition(gen, p);
+                    gen.writeEndObject();
+                }
+                gen.writeEndArray();
+                gen.writeEndObject();
+            }
+            gen.writeEndArray();
+        }
+        return writer.toString();
+    }
+
+    private static void ecrirePosition(JsonGenerator gen, TrackPoint p) {
+        gen.writeNumberProperty("lat", p.lat());
+        gen.writeNumberProperty("lng", p.lng());
+        gen.writeNumberProperty("t", p.time());
+    }
+
+    private Object verrou(Long evenementId, UUID coureurId) {
+        int h = 31 * evenementId.hashCode() + coureurId.hashCode();
+        return verrous[(h ^ (h >>> 16)) & (NB_VERROUS - 1)];
+    }
+
+    private static Object[] creerVerrous() {
+        Object[] verrous = new Object[NB_VERROUS];
+        for (int i = 0; i < NB_VERROUS; i++) {
+            verrous[i] = new Object();
+        }
+        return verrous;
+    }
+}
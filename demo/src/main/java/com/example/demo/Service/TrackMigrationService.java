@@ -0,0 +1,165 @@
+package com.example.demo.service;
+
+import com.example.demo.repository.SessionCourseRepository;
+import com.example.demo.track.GrilleGeo;
+import com.example.demo.track.NiveauTrace;
+import com.example.demo.track.TrackAnalyseur;
+import com.example.demo.track.TrackCodec;
+import com.example.demo.track.TrackPoint;
+import com.example.demo.track.TrackSimplificateur;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Migration des anciens tracés JSON (colonne TEXT sessions_course.track) vers le format compact
+ * (colonne bytea track_data), par lots, en tâche de fond, puis analyse ({@link TrackAnalyseur}, point de départ compris) et simplification
+ * ({@link TrackSimplificateur}) des tracés compacts enregistrés avant que l'ingestion ne les calcule. Chaque phase s'arrête dès qu'il ne reste plus rien à traiter.
+ * Les tracés traités portent la version de l'analyse (analyse_version), y compris les tracés vides ou illisibles :
+ * ils ne sont pas relus aux passages suivants ni après un redémarrage.
+ * Les tracés JSON illisibles ou vides sont laissés tels quels (toujours servis en JSON) et marqués de la même façon.
+ * Les statistiques des adhérents
+ * prennent en compte les valeurs analysées à la prochaine reconstruction.
+ * Avec plusieurs instances, chaque passage est exécuté par une seule d'entre elles (bail migration-tracks).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TrackMigrationService {
+
+    private final SessionCourseRepository sessionCourseRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final VerrouTacheService verrouTacheService;
+
+    @Value("${app.tracks.migration-activer:true}")
+    private boolean migrationActiver;
+
+    @Value("${app.tracks.migration-taille-lot:500}")
+    private int tailleLot;
+
+    @Value("${app.tracks.migration-lots-par-passage:20}")
+    private int lotsParPassage;
+
+    private volatile boolean terminee = false;
+    private long dernierId = 0;
+    private volatile boolean analyseTerminee = false;
+    private long dernierIdAnalyse = 0;
+
+    @Scheduled(initialDelayString = "${app.tracks.migration-delai-initial-ms:60000}",
+            fixedDelayString = "${app.tracks.migration-intervalle-ms:60000}")
+    public void migrerLots() {
+        if (!migrationActiver || (terminee && analyseTerminee)) return;
+        verrouTacheService.executerSeul("migration-tracks", Duration.ofMinutes(30), Duration.ZERO, this::migrerPassage);
+    }
+
+    /** Un passage : au plus lotsParPassage lots, arrêt dès qu'un lot est vide ; l'analyse suit la conversion. */
+    private void migrerPassage() {
+        if (!terminee) {
+            convertirPassage();
+        }
+        if (terminee && !analyseTerminee) {
+            analyserPassage();
+        }
+    }
+
+    private void convertirPassage() {
+        int convertis = 0;
+        int ignores = 0;
+        for (int i = 0; i < lotsParPassage; i++) {
+            int[] resultat = transactionTemplate.execute(status -> migrerLot());
+            if (resultat == null || resultat[0] + resultat[1] == 0) {
+                terminee = true;
+                log.info("Tracés: migration JSON -> format compact terminée");
+                break;
+            }
+            convertis += resultat[0];
+            ignores += resultat[1];
+        }
+        if (convertis + ignores > 0) {
+            log.info("Tracés: {} tracé(s) converti(s), {} illisible(s) laissé(s) en JSON", convertis, ignores);
+        }
+    }
+
+    /** Convertit un lot ; retourne {convertis, ignorés}. */
+    private int[] migrerLot() {
+        List<SessionCourseRepository.TrackJsonAMigrer> lot =
+                sessionCourseRepository.findTracksJsonAMigrer(dernierId, PageRequest.of(0, tailleLot));
+        int convertis = 0;
+        int ignores = 0;
+        for (SessionCourseRepository.TrackJsonAMigrer ligne : lot) {
+            dernierId = ligne.getId();
+            byte[] data;
+            TrackAnalyseur analyseur = new TrackAnalyseur();
+            try {
+                data = TrackCodec.fromJson(ligne.getTrackJson(), analyseur);
+            } catch (IllegalArgumentException e) {
+                log.warn("Tracés: session {} non convertie ({})", ligne.getId(), e.getMessage());
+                data = null;
+            }
+            if (data == null) {
+                sessionCourseRepository.marquerAnalyse(ligne.getId());
+                ignores++;
+                continue;
+            }
+            sessionCourseRepository.migrerTrack(ligne.getId(), data);
+            enregistrer(ligne.getId(), data, analyseur.resultat());
+            convertis++;
+        }
+        return new int[]{convertis, ignores};
+    }
+
+    private void analyserPassage() {
+        int analyses = 0;
+        for (int i = 0; i < lotsParPassage; i++) {
+            Integer nb = transactionTemplate.execute(status -> analyserLot());
+            if (nb == null || nb == 0) {
+                analyseTerminee = true;
+                log.info("Tracés: analyse et simplification des tracés existants terminées");
+                break;
+            }
+            analyses += nb;
+        }
+        if (analyses > 0) {
+            log.info("Tracés: {} tracé(s) analysé(s)", analyses);
+        }
+    }
+
+    /** Analyse un lot de tracés compacts ; retourne le nombre de lignes lues. */
+    private int analyserLot() {
+        List<SessionCourseRepository.TrackAAnalyser> lot =
+                sessionCourseRepository.findTracksAAnalyser(dernierIdAnalyse, PageRequest.of(0, tailleLot));
+        for (SessionCourseRepository.TrackAAnalyser ligne : lot) {
+            dernierIdAnalyse = ligne.getId();
+            TrackAnalyseur.Resultat analyse;
+            try {
+                analyse = TrackAnalyseur.analyser(ligne.getTrackData());
+            } catch (UncheckedIOException e) {
+                log.warn("Tracés: session {} non analysée ({})", ligne.getId(), e.getMessage());
+                sessionCourseRepository.marquerAnalyse(ligne.getId());
+                continue;
+            }
+            enregistrer(ligne.getId(), ligne.getTrackData(), analyse);
+        }
+        return lot.size();
+    }
+
+    /** Enregistre l'analyse (point de départ indexé compris) et les niveaux simplifiés d'un tracé compact. */
+    private void enregistrer(Long sessionId, byte[] data, TrackAnalyseur.Resultat r) {
+        TrackPoint depart = r.depart();
+        sessionCourseRepository.enregistrerAnalyse(sessionId, r.distanceKm(), r.dureeMouvementSecondes(),
+                r.paceMinParKm(), r.vitesseMaxKmh(), r.denivelePositifM(), r.splitsSecondes(),
+                depart != null ? depart.lat() : null, depart != null ? depart.lng() : null,
+                depart != null ? GrilleGeo.cle(depart.lat(), depart.lng()) : null);
+        sessionCourseRepository.enregistrerSimplifications(sessionId,
+                TrackSimplificateur.simplifier(data, NiveauTrace.APERCU),
+                TrackSimplificateur.simplifier(data, NiveauTrace.MOYEN));
+    }
+}
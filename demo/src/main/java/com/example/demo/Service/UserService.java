@@ -2,11 +2,17 @@ package com.example.demo.service;
 
 import com.example.demo.dto.UserCreateRequest;
 import com.example.demo.dto.UserUpdateRequest;
+import com.example.demo.entity.CompteurPush;
 import com.example.demo.entity.Role;
 import com.example.demo.entity.User;
+import com.example.demo.event.UtilisateurChangeEvent;
 import com.example.demo.exception.ResourceNotFoundException;
+import com.example.demo.repository.CompteurPushRepository;
+import com.example.demo.repository.EnvoiSessionCourseRepository;
+import com.example.demo.repository.StatsAdherentRepository;
 import com.example.demo.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -20,8 +26,13 @@ import java.util.UUID;
 public class UserService {
 
     private final UserRepository userRepository;
+    private final CompteurPushRepository compteurPushRepository;
+    private final EnvoiSessionCourseRepository envoiSessionCourseRepository;
+    private final StatsAdherentRepository statsAdherentRepository;
     private final PasswordEncoder passwordEncoder;
-    private final FcmService fcmService;
+    private final AppareilPushService appareilPushService;
+    private final DiffusionPushService diffusionPushService;
+    private final ApplicationEventPublisher eventPublisher;
 
     public Page<User> findAll(Pageable pageable) {
         return userRepository.findAll(pageable);
@@ -78,7 +89,9 @@ public class UserService {
         user.setEmail(request.getEmail());
         user.setPhone(request.getPhone());
         user.setRole(request.getRole());
-        return userRepository.save(user);
+        user = userRepository.save(user);
+        eventPublisher.publishEvent(new UtilisateurChangeEvent(id));
+        return user;
     }
 
     @Transactional
@@ -86,7 +99,12 @@ public class UserService {
         if (!userRepository.existsById(id)) {
             throw new ResourceNotFoundException("Utilisateur", id);
         }
+        appareilPushService.supprimerAppareilsDe(id);
+        envoiSessionCourseRepository.deleteByAdherentId(id);
         userRepository.deleteById(id);
+        compteurPushRepository.deleteById(id);
+        statsAdherentRepository.deleteById(id);
+        eventPublisher.publishEvent(new UtilisateurChangeEvent(id));
     }
 
     public Page<User> findByRole(Role role, Pageable pageable) {
@@ -98,26 +116,35 @@ public class UserService {
     }
 
     /**
-     * Indique si l'utilisateur a un token FCM enregistré (pour les notifications push).
+     * Indique si l'utilisateur a au moins un appareil actif enregistré (pour les notifications push).
      */
     public boolean isFcmTokenRegistered(UUID userId) {
-        return userRepository.findById(userId)
-                .map(u -> u.getFcmToken() != null && !u.getFcmToken().isBlank())
-                .orElse(false);
+        return appareilPushService.aUnAppareilActif(userId);
+    }
+
+    /**
+     * Compteurs de remise des notifications push de l'utilisateur (zéros s'il n'a encore rien reçu).
+     */
+    public CompteurPush getCompteurPush(UUID userId) {
+        if (!userRepository.existsById(userId)) {
+            throw new ResourceNotFoundException("Utilisateur", userId);
+        }
+        return compteurPushRepository.findById(userId)
+                .orElseGet(() -> CompteurPush.builder().utilisateurId(userId).build());
     }
 
     /**
      * Envoie une notification push de test à l'utilisateur (pour vérifier que FCM fonctionne).
      */
     public void sendTestPushNotification(UUID userId) {
-        User user = findById(userId);
-        if (user.getFcmToken() == null || user.getFcmToken().isBlank()) {
-            throw new IllegalArgumentException("Cet utilisateur n'a pas de token FCM enregistré. Il doit se connecter sur l'app Android.");
-        }
-        fcmService.sendToTokens(
-                java.util.List.of(user.getFcmToken()),
+        findById(userId);
+        int nbTokens = diffusionPushService.envoyerAUtilisateur(
+                userId,
                 "Test notification",
                 "Les notifications push fonctionnent correctement."
         );
+        if (nbTokens == 0) {
+            throw new IllegalArgumentException("Cet utilisateur n'a pas de token FCM enregistré. Il doit se connecter sur l'app Android.");
+        }
     }
 }
@@ -0,0 +1,76 @@
+package com.example.demo.service;
+
+import com.example.demo.repository.VerrouTacheRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Baux d'exécution des tâches planifiées (table verrous_taches) : lorsque plusieurs instances du backend tournent,
+ * une occurrence de tâche (récap, purge, reconstruction...) n'est exécutée que par l'instance qui obtient le bail.
+ * Le bail est pris et rendu dans des transactions séparées, validées immédiatement.
+ */
+@Service
+@Slf4j
+public class VerrouTacheService {
+
+    private final VerrouTacheRepository verrouTacheRepository;
+    private final TransactionTemplate nouvelleTransaction;
+    private final String instance;
+
+    public VerrouTacheService(VerrouTacheRepository verrouTacheRepository, PlatformTransactionManager transactionManager,
+                              @Value("${app.cluster.instance:}") String instance) {
+        this.verrouTacheRepository = verrouTacheRepository;
+        this.nouvelleTransaction = new TransactionTemplate(transactionManager);
+        this.nouvelleTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.instance = instance.isBlank() ? nomParDefaut() : instance;
+    }
+
+    public String getInstance() {
+        return instance;
+    }
+
+    /**
+     * Exécute la tâche si cette instance obtient le bail {@code nom} ; retourne vrai si elle a été exécutée.
+     *
+     * @param auPlus  durée maximale du bail : si l'instance s'arrête en cours de tâche, le bail expire après ce délai
+     * @param auMoins durée minimale du bail, même si la tâche finit avant : une instance dont l'horloge est
+     *                légèrement décalée ne relance pas la même occurrence
+     */
+    public boolean executerSeul(String nom, Duration auPlus, Duration auMoins, Runnable tache) {
+        Instant debut = Instant.now();
+        Integer acquis = nouvelleTransaction.execute(status ->
+                verrouTacheRepository.acquerir(nom, instance, debut, debut.plus(auPlus)));
+        if (acquis == null || acquis == 0) {
+            log.debug("Tâche {} : bail détenu par une autre instance, exécution ignorée", nom);
+            return false;
+        }
+        try {
+            tache.run();
+        } finally {
+            Instant minimum = debut.plus(auMoins);
+            Instant expiration = Instant.now().isAfter(minimum) ? Instant.now() : minimum;
+            nouvelleTransaction.executeWithoutResult(status -> verrouTacheRepository.liberer(nom, instance, expiration));
+        }
+        return true;
+    }
+
+    private static String nomParDefaut() {
+        String hote;
+        try {
+            hote = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            hote = "instance";
+        }
+        return hote + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.demo.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Nombre maximal de requêtes SQL attendu pour un endpoint (authentification comprise).
+ * Un dépassement est journalisé et compté dans http.server.requests.sql.depassements
+ * par {@link SqlParRequeteFilter} : c'est le signe d'un N+1 réintroduit.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface BudgetSql {
+
+    int value();
+}
@@ -0,0 +1,40 @@
+package com.example.demo.config;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Compte les requêtes SQL préparées par Hibernate sur le thread courant, entre {@link #demarrer()} et {@link #arreter()}.
+ * Enregistré comme StatementInspector de la SessionFactory ({@link MetriquesConfig}) ; les requêtes
+ * JdbcTemplate ne passent pas par Hibernate et ne sont pas comptées.
+ */
+public class CompteurSql implements StatementInspector {
+
+    private static final ThreadLocal<int[]> COMPTEUR = new ThreadLocal<>();
+
+    /** Démarre (ou remet à zéro) le comptage sur le thread courant. */
+    public static void demarrer() {
+        COMPTEUR.set(new int[1]);
+    }
+
+    /** Nombre de requêtes depuis {@link #demarrer()}, 0 si le comptage n'est pas actif. */
+    public static int courant() {
+        int[] compteur = COMPTEUR.get();
+        return compteur != null ? compteur[0] : 0;
+    }
+
+    /** Arrête le comptage sur le thread courant et retourne le nombre de requêtes. */
+    public static int arreter() {
+        int nb = courant();
+        COMPTEUR.remove();
+        return nb;
+    }
+
+    @Override
+    public String inspect(String sql) {
+        int[] compteur = COMPTEUR.get();
+        if (compteur != null) {
+            compteur[0]++;
+        }
+        return sql;
+    }
+}
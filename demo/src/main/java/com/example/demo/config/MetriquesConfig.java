@@ -0,0 +1,20 @@
+package com.example.demo.config;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.hibernate.autoconfigure.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Métriques applicatives (en plus de celles fournies par Actuator : requêtes HTTP, pool Hikari,
+ * tâches @Scheduled, JVM). Exposées au format Prometheus sur /actuator/prometheus.
+ */
+@Configuration
+public class MetriquesConfig {
+
+    /** Nombre de requêtes SQL par requête HTTP : voir {@link SqlParRequeteFilter}. */
+    @Bean
+    public HibernatePropertiesCustomizer compteurSqlCustomizer() {
+        return proprietes -> proprietes.put(AvailableSettings.STATEMENT_INSPECTOR, new CompteurSql());
+    }
+}
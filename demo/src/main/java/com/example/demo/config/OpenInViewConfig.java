@@ -0,0 +1,33 @@
+package com.example.demo.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.orm.jpa.support.OpenEntityManagerInViewInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Open-in-view (EntityManager ouvert jusqu'à la fin de la requête, pour sérialiser les associations paresseuses
+ * des entités renvoyées), sauf pour les requêtes longues : l'EntityManager y garderait sa connexion JDBC pendant
+ * toute la requête (flux SSE du suivi en direct, lecture en flux des lots d'un envoi de session).
+ * Remplace l'intercepteur enregistré par Spring Boot sur tous les chemins.
+ */
+@Configuration
+public class OpenInViewConfig implements WebMvcConfigurer {
+
+    static final String[] REQUETES_LONGUES = {
+            "/api/evenements/*/direct",
+            "/api/evenements/*/direct/**",
+            "/api/sessions-course/envois/*/lots/*"
+    };
+
+    @Bean
+    public OpenEntityManagerInViewInterceptor openEntityManagerInViewInterceptor() {
+        return new OpenEntityManagerInViewInterceptor();
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addWebRequestInterceptor(openEntityManagerInViewInterceptor()).excludePathPatterns(REQUETES_LONGUES);
+    }
+}
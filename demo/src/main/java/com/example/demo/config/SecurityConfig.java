@@ -2,8 +2,10 @@ package com.example.demo.config;
 
 import com.example.demo.security.JwtAuthFilter;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.web.server.context.WebServerInitializedEvent;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
 import org.springframework.http.HttpMethod;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -14,10 +16,13 @@ import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.servlet.util.matcher.PathPatternRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
+import jakarta.servlet.DispatcherType;
 import jakarta.servlet.http.HttpServletResponse;
 import java.util.List;
 
@@ -29,6 +34,16 @@ public class SecurityConfig {
 
     private final JwtAuthFilter jwtAuthFilter;
 
+    /** Port du serveur de gestion (management.server.port), connu une fois celui-ci démarré ; -1 sans port dédié. */
+    private volatile int portGestion = -1;
+
+    @EventListener
+    public void serveurDemarre(WebServerInitializedEvent event) {
+        if ("management".equals(event.getApplicationContext().getServerNamespace())) {
+            portGestion = event.getWebServer().getPort();
+        }
+    }
+
     @Bean
     public CorsConfigurationSource corsConfigurationSource() {
         CorsConfiguration config = new CorsConfiguration();
@@ -55,6 +70,8 @@ public class SecurityConfig {
                 .sessionManagement(s -> s
                         .sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth -> auth
+                        // Fin des réponses asynchrones (SSE, flux) : la requête d'origine a déjà été autorisée
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         // Public : visiteurs (historique, news) – pas de login
                         .requestMatchers("/api/public/**").permitAll()
                         // Auth
@@ -67,6 +84,11 @@ public class SecurityConfig {
                         .requestMatchers(HttpMethod.GET, "/api/users/*/fcm-token-registered").hasAnyRole("ADMIN_PRINCIPAL", "ADMIN_GROUPE")
                         // Envoi notification de test (admin / admin groupe)
                         .requestMatchers(HttpMethod.POST, "/api/users/*/send-test-notification").hasAnyRole("ADMIN_PRINCIPAL", "ADMIN_GROUPE")
+                        // Supervision : santé publique ; métriques Prometheus sans JWT uniquement sur le port de gestion
+                        // (réseau interne), réservées à l'admin principal sinon
+                        .requestMatchers("/actuator/health").permitAll()
+                        .requestMatchers(surPortGestion("/actuator/prometheus")).permitAll()
+                        .requestMatchers("/actuator/**").hasRole("ADMIN_PRINCIPAL")
                         // Admin principal uniquement : gestion utilisateurs et permissions
                         .requestMatchers("/api/users/**", "/api/permissions/**").hasRole("ADMIN_PRINCIPAL")
                         // Reste : tout utilisateur connecté (rôles affinés en @PreAuthorize sur les controllers)
@@ -85,6 +107,11 @@ public class SecurityConfig {
         return http.build();
     }
 
+    private RequestMatcher surPortGestion(String chemin) {
+        RequestMatcher cheminMatcher = PathPatternRequestMatcher.withDefaults().matcher(chemin);
+        return request -> portGestion > 0 && request.getLocalPort() == portGestion && cheminMatcher.matches(request);
+    }
+
     @Bean
     public PasswordEncoder passwordEncoder() {
         return new BCryptPasswordEncoder();
@@ -0,0 +1,145 @@
+package com.example.demo.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compte les requêtes SQL émises pendant chaque requête HTTP (authentification comprise)
+ * et les publie dans la distribution http.server.requests.sql, par méthode et route.
+ * Les endpoints annotés {@link BudgetSql} sont contrôlés : un dépassement est journalisé et compté.
+ * Hors profil prod (ou si app.sql.entete-reponse=true), le nombre est aussi renvoyé dans l'en-tête X-Sql-Requetes :
+ * exact si la réponse n'est pas encore envoyée en fin de requête (MockMvc, réponses sans corps),
+ * sinon arrêté au début de l'écriture du corps.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+@Slf4j
+public class SqlParRequeteFilter extends OncePerRequestFilter {
+
+    public static final String ENTETE = "X-Sql-Requetes";
+
+    private final MeterRegistry meterRegistry;
+    private final boolean entete;
+    /** Distribution de chaque (méthode, route), construite à la première requête. */
+    private final Map<Serie, DistributionSummary> distributions = new ConcurrentHashMap<>();
+
+    public SqlParRequeteFilter(MeterRegistry meterRegistry, Environment environment) {
+        this.meterRegistry = meterRegistry;
+        this.entete = environment.getProperty("app.sql.entete-reponse", Boolean.class,
+                !environment.matchesProfiles("prod"));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        CompteurSql.demarrer();
+        HttpServletResponse reponse = entete ? new ReponseAvecCompteur(response) : response;
+        try {
+            filterChain.doFilter(request, reponse);
+        } finally {
+            int nb = CompteurSql.arreter();
+            if (entete && !response.isCommitted()) {
+                response.setHeader(ENTETE, String.valueOf(nb));
+            }
+            enregistrer(request, nb);
+        }
+    }
+
+    private void enregistrer(HttpServletRequest request, int nb) {
+        // Route du contrôleur (/api/evenements/{id}) et non l'URL brute, pour borner le nombre de séries
+        Object route = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = route != null ? route.toString() : "UNKNOWN";
+        distributions.computeIfAbsent(new Serie(request.getMethod(), uri), this::distribution).record(nb);
+
+        if (request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE) instanceof HandlerMethod handler) {
+            BudgetSql budget = handler.getMethodAnnotation(BudgetSql.class);
+            if (budget != null && nb > budget.value()) {
+                meterRegistry.counter("http.server.requests.sql.depassements", "method", request.getMethod(), "uri", uri)
+                        .increment();
+                log.warn("SQL: {} requête(s) pour {} {} (budget {})", nb, request.getMethod(), uri, budget.value());
+            }
+        }
+    }
+
+    private DistributionSummary distribution(Serie serie) {
+        return DistributionSummary.builder("http.server.requests.sql")
+                .description("Requêtes SQL Hibernate par requête HTTP")
+                .baseUnit("requetes")
+                .tag("method", serie.method())
+                .tag("uri", serie.uri())
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private record Serie(String method, String uri) {
+    }
+
+    /** Pose l'en-tête X-Sql-Requetes juste avant que la réponse ne commence à partir. */
+    private static final class ReponseAvecCompteur extends HttpServletResponseWrapper {
+
+        ReponseAvecCompteur(HttpServletResponse response) {
+            super(response);
+        }
+
+        private void poserEntete() {
+            if (!isCommitted()) {
+                setHeader(ENTETE, String.valueOf(CompteurSql.courant()));
+            }
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            poserEntete();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            poserEntete();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            poserEntete();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            poserEntete();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            poserEntete();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            poserEntete();
+            super.sendRedirect(location);
+        }
+    }
+}
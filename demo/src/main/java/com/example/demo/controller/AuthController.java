@@ -1,5 +1,6 @@
 package com.example.demo.controller;
 
+import com.example.demo.config.BudgetSql;
 import com.example.demo.dto.ChangePasswordRequest;
 import com.example.demo.dto.FcmTokenRequest;
 import com.example.demo.dto.LoginRequest;
@@ -27,6 +28,7 @@ public class AuthController {
      * Exemple body : { "nom": "Dupont", "password": "123" }
      */
     @PostMapping("/login")
+    @BudgetSql(2)
     public ResponseEntity<LoginResponse> login(@Valid @RequestBody LoginRequest request) {
         return ResponseEntity.ok(authService.login(request));
     }
@@ -1,8 +1,12 @@
 package com.example.demo.controller;
 
+import com.example.demo.config.BudgetSql;
+import com.example.demo.dto.EvenementProcheDto;
 import com.example.demo.dto.EvenementRequest;
 import com.example.demo.entity.Evenement;
 import com.example.demo.service.EvenementService;
+import com.example.demo.service.RechercheGeoService;
+import com.example.demo.track.GrilleGeo;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
@@ -13,6 +17,7 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.Instant;
+import java.util.List;
 
 @RestController
 @RequestMapping("/api/evenements")
@@ -20,6 +25,7 @@ import java.time.Instant;
 public class EvenementController {
 
     private final EvenementService evenementService;
+    private final RechercheGeoService rechercheGeoService;
 
     @GetMapping
     public ResponseEntity<Page<Evenement>> findAll(Pageable pageable) {
@@ -44,6 +50,32 @@ public class EvenementController {
         return ResponseEntity.ok(evenementService.findByDateBetween(debut, fin, pageable));
     }
 
+    /** Événements dont le lieu de rencontre est à moins de rayonKm du point, du plus proche au plus lointain. */
+    @GetMapping("/proches")
+    @BudgetSql(2)
+    public ResponseEntity<List<EvenementProcheDto>> findProches(
+            @RequestParam double lat,
+            @RequestParam double lng,
+            @RequestParam(defaultValue = "10") double rayonKm,
+            @RequestParam(defaultValue = "false") boolean aVenir,
+            @RequestParam(defaultValue = "50") int limite) {
+        return ResponseEntity.ok(rechercheGeoService.evenementsProches(lat, lng, rayonKm, aVenir, limite));
+    }
+
+    /** Événements localisés dans une zone rectangulaire (carte), du plus récent au plus ancien. */
+    @GetMapping("/zone")
+    @BudgetSql(2)
+    public ResponseEntity<List<EvenementProcheDto>> findDansZone(
+            @RequestParam double latMin,
+            @RequestParam double lngMin,
+            @RequestParam double latMax,
+            @RequestParam double lngMax,
+            @RequestParam(defaultValue = "false") boolean aVenir,
+            @RequestParam(defaultValue = "100") int limite) {
+        return ResponseEntity.ok(rechercheGeoService.evenementsDansZone(
+                new GrilleGeo.Zone(latMin, lngMin, latMax, lngMax), aVenir, limite));
+    }
+
     @GetMapping("/type/{type}")
     public ResponseEntity<Page<Evenement>> findByType(@PathVariable String type, Pageable pageable) {
         return ResponseEntity.ok(evenementService.findByType(type, pageable));
@@ -51,6 +83,7 @@ public class EvenementController {
 
     @PreAuthorize("hasAnyRole('ADMIN_PRINCIPAL', 'ADMIN_COACH', 'ADMIN_GROUPE')")
     @PostMapping
+    @BudgetSql(8)
     public ResponseEntity<Evenement> create(@Valid @RequestBody EvenementRequest request) {
         return ResponseEntity.ok(evenementService.create(request));
     }
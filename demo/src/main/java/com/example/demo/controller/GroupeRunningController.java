@@ -1,6 +1,8 @@
 package com.example.demo.controller;
 
 import com.example.demo.dto.GroupeRunningRequest;
+import com.example.demo.dto.MembresGroupeRequest;
+import com.example.demo.dto.MembresGroupeResultatDto;
 import com.example.demo.entity.GroupeRunning;
 import com.example.demo.entity.User;
 import com.example.demo.repository.UserRepository;
@@ -99,6 +101,39 @@ public class GroupeRunningController {
         return ResponseEntity.ok(groupeRunningService.removeMembre(groupeId, adherentId, currentUser));
     }
 
+    /** Ajoute plusieurs adhérents au groupe (ceux déjà membres sont ignorés). */
+    @PreAuthorize("hasAnyRole('ADMIN_PRINCIPAL', 'ADMIN_GROUPE')")
+    @PostMapping("/{groupeId}/membres")
+    public ResponseEntity<MembresGroupeResultatDto> ajouterMembres(
+            @PathVariable Long groupeId,
+            @Valid @RequestBody MembresGroupeRequest request,
+            @AuthenticationPrincipal UserDetails userDetails) {
+        User currentUser = userRepository.findByNom(userDetails.getUsername()).orElseThrow();
+        return ResponseEntity.ok(groupeRunningService.ajouterMembres(groupeId, request.getAdherentIds(), currentUser));
+    }
+
+    /** Remplace la liste des membres du groupe. */
+    @PreAuthorize("hasAnyRole('ADMIN_PRINCIPAL', 'ADMIN_GROUPE')")
+    @PutMapping("/{groupeId}/membres")
+    public ResponseEntity<MembresGroupeResultatDto> remplacerMembres(
+            @PathVariable Long groupeId,
+            @Valid @RequestBody MembresGroupeRequest request,
+            @AuthenticationPrincipal UserDetails userDetails) {
+        User currentUser = userRepository.findByNom(userDetails.getUsername()).orElseThrow();
+        return ResponseEntity.ok(groupeRunningService.remplacerMembres(groupeId, request.getAdherentIds(), currentUser));
+    }
+
+    /** Retire plusieurs adhérents du groupe. */
+    @PreAuthorize("hasAnyRole('ADMIN_PRINCIPAL', 'ADMIN_GROUPE')")
+    @PostMapping("/{groupeId}/membres/retrait")
+    public ResponseEntity<MembresGroupeResultatDto> retirerMembres(
+            @PathVariable Long groupeId,
+            @Valid @RequestBody MembresGroupeRequest request,
+            @AuthenticationPrincipal UserDetails userDetails) {
+        User currentUser = userRepository.findByNom(userDetails.getUsername()).orElseThrow();
+        return ResponseEntity.ok(groupeRunningService.retirerMembres(groupeId, request.getAdherentIds(), currentUser));
+    }
+
     @PreAuthorize("hasRole('ADMIN_PRINCIPAL')")
     @PutMapping("/{groupeId}/responsable/{responsableId}")
     public ResponseEntity<GroupeRunning> setResponsable(@PathVariable Long groupeId, @PathVariable UUID responsableId) {
@@ -1,5 +1,6 @@
 package com.example.demo.controller;
 
+import com.example.demo.config.BudgetSql;
 import com.example.demo.dto.PartnerMatchDto;
 import com.example.demo.entity.User;
 import com.example.demo.repository.UserRepository;
@@ -27,6 +28,7 @@ public class MatchingController {
 
     @PreAuthorize("hasRole('ADHERENT')")
     @GetMapping("/partenaires")
+    @BudgetSql(3)
     public ResponseEntity<List<PartnerMatchDto>> findPartners(
             @AuthenticationPrincipal UserDetails userDetails) {
         User currentUser = userRepository.findByNom(userDetails.getUsername())
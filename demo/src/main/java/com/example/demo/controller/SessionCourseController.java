@@ -1,27 +1,59 @@
 package com.example.demo.controller;
 
+import com.example.demo.config.BudgetSql;
+import com.example.demo.dto.EnvoiSessionCourseDto;
+import com.example.demo.dto.EnvoiSessionCourseRequest;
+import com.example.demo.dto.FinEnvoiSessionCourseRequest;
 import com.example.demo.dto.SessionCourseRequest;
+import com.example.demo.dto.SessionCourseResumeDto;
+import com.example.demo.dto.SessionProcheDto;
 import com.example.demo.entity.SessionCourse;
+import com.example.demo.repository.SessionCourseRepository;
+import com.example.demo.security.JwtPrincipal;
+import com.example.demo.service.EnvoiSessionCourseService;
+import com.example.demo.service.RechercheGeoService;
 import com.example.demo.service.SessionCourseService;
+import com.example.demo.track.GrilleGeo;
+import com.example.demo.track.NiveauTrace;
+import com.example.demo.track.TrackCodec;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/sessions-course")
 @RequiredArgsConstructor
 public class SessionCourseController {
 
+    private static final MediaType TRACK_MEDIA_TYPE = MediaType.parseMediaType(TrackCodec.MEDIA_TYPE);
+
     private final SessionCourseService sessionCourseService;
+    private final EnvoiSessionCourseService envoiSessionCourseService;
+    private final RechercheGeoService rechercheGeoService;
 
-    /** Mes sessions (adhérent connecté). */
+    /** Mes sessions (adhérent connecté), sans tracé GPS : voir /{id}/track. */
     @GetMapping("/me")
-    public ResponseEntity<Page<SessionCourse>> getMySessions(
+    @BudgetSql(4)
+    public ResponseEntity<Page<SessionCourseResumeDto>> getMySessions(
             @AuthenticationPrincipal UserDetails user,
             Pageable pageable) {
         if (user == null) {
@@ -30,13 +62,133 @@ public class SessionCourseController {
         return ResponseEntity.ok(sessionCourseService.findMySessions(user.getUsername(), pageable));
     }
 
+    /**
+     * Parcours partant à moins de rayonKm du point, du plus proche au plus lointain (tracé : /{id}/track) ;
+     * limités aux sessions de l'utilisateur et des membres de ses groupes (toutes pour l'admin principal et les coachs).
+     */
+    @GetMapping("/proches")
+    @BudgetSql(2)
+    public ResponseEntity<List<SessionProcheDto>> findProches(
+            @AuthenticationPrincipal JwtPrincipal user,
+            @RequestParam double lat,
+            @RequestParam double lng,
+            @RequestParam(defaultValue = "2") double rayonKm,
+            @RequestParam(defaultValue = "50") int limite) {
+        if (user == null) {
+            return ResponseEntity.status(401).build();
+        }
+        return ResponseEntity.ok(rechercheGeoService.sessionsProches(lat, lng, rayonKm, limite, user));
+    }
+
+    /** Parcours partant d'une zone rectangulaire (carte), du plus récent au plus ancien ; mêmes restrictions. */
+    @GetMapping("/zone")
+    @BudgetSql(2)
+    public ResponseEntity<List<SessionProcheDto>> findDansZone(
+            @AuthenticationPrincipal JwtPrincipal user,
+            @RequestParam double latMin,
+            @RequestParam double lngMin,
+            @RequestParam double latMax,
+            @RequestParam double lngMax,
+            @RequestParam(defaultValue = "100") int limite) {
+        if (user == null) {
+            return ResponseEntity.status(401).build();
+        }
+        return ResponseEntity.ok(rechercheGeoService.sessionsDansZone(
+                new GrilleGeo.Zone(latMin, lngMin, latMax, lngMax), limite, user));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<SessionCourse> getById(@PathVariable Long id) {
         return ResponseEntity.ok(sessionCourseService.findById(id));
     }
 
+    /**
+     * Tracé GPS d'une session, écrit en flux.
+     * - niveau : APERCU (vignettes), MOYEN (cartes) ou COMPLET (par défaut) ; les niveaux simplifiés
+     *   ne portent que les coordonnées.
+     * - Accept: application/vnd.runningclub.track (ou application/octet-stream) : format compact,
+     *   avec prise en charge d'une plage Range (reprise d'un téléchargement interrompu).
+     * - Sinon : JSON [{ "lat", "lng" }], écrit point par point.
+     */
+    @GetMapping("/{id}/track")
+    public ResponseEntity<StreamingResponseBody> getTrack(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "COMPLET") NiveauTrace niveau,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String range) {
+        if (niveau != NiveauTrace.COMPLET) {
+            byte[] data = sessionCourseService.findTrackSimplifie(id, niveau);
+            return accepteBinaire(accept) ? binaire(data, range) : json(data);
+        }
+        SessionCourseRepository.TrackBrut track = sessionCourseService.findTrack(id);
+
+        if (accepteBinaire(accept)) {
+            byte[] data = track.getTrackData() != null ? track.getTrackData() : TrackCodec.fromJson(track.getTrackJson());
+            return binaire(data, range);
+        }
+
+        if (track.getTrackData() == null) {
+            String json = track.getTrackJson();
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON)
+                    .body(out -> out.write(json.getBytes(StandardCharsets.UTF_8)));
+        }
+        return json(track.getTrackData());
+    }
+
+    /** Vue JSON d'un tracé compact, écrite point par point. */
+    private static ResponseEntity<StreamingResponseBody> json(byte[] data) {
+        StreamingResponseBody body = out -> {
+            Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+            TrackCodec.writeJson(new ByteArrayInputStream(data), writer);
+            writer.flush();
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    /** Réponse binaire complète, ou partielle (206) pour une plage unique. */
+    private static ResponseEntity<StreamingResponseBody> binaire(byte[] data, String range) {
+        List<HttpRange> ranges;
+        try {
+            ranges = range != null ? HttpRange.parseRanges(range) : List.of();
+        } catch (IllegalArgumentException e) {
+            ranges = List.of(); // Range illisible : réponse complète
+        }
+        if (ranges.size() != 1) {
+            return ResponseEntity.ok()
+                    .contentType(TRACK_MEDIA_TYPE)
+                    .contentLength(data.length)
+                    .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                    .body(out -> out.write(data));
+        }
+        long debut;
+        long fin;
+        try {
+            debut = ranges.get(0).getRangeStart(data.length);
+            fin = ranges.get(0).getRangeEnd(data.length);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                    .header(HttpHeaders.CONTENT_RANGE, "bytes */" + data.length)
+                    .build();
+        }
+        int longueur = (int) (fin - debut + 1);
+        return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+                .contentType(TRACK_MEDIA_TYPE)
+                .contentLength(longueur)
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .header(HttpHeaders.CONTENT_RANGE, "bytes " + debut + "-" + fin + "/" + data.length)
+                .body(out -> out.write(data, (int) debut, longueur));
+    }
+
+    private static boolean accepteBinaire(String accept) {
+        if (accept == null) return false;
+        return MediaType.parseMediaTypes(accept).stream()
+                .anyMatch(m -> m.equalsTypeAndSubtype(TRACK_MEDIA_TYPE)
+                        || m.equalsTypeAndSubtype(MediaType.APPLICATION_OCTET_STREAM));
+    }
+
     /** Enregistrer une nouvelle session (GPS / sortie). */
     @PostMapping
+    @BudgetSql(8)
     public ResponseEntity<SessionCourse> create(
             @AuthenticationPrincipal UserDetails user,
             @Valid @RequestBody SessionCourseRequest request) {
@@ -46,6 +198,59 @@ public class SessionCourseController {
         return ResponseEntity.ok(sessionCourseService.create(user.getUsername(), request));
     }
 
+    /**
+     * Envoi par lots (connexions mobiles instables, longs tracés) : ouverture, puis
+     * PUT /envois/{envoiId}/lots/{numero} pour chaque lot de points (tableau JSON, numéros à partir de 0),
+     * puis POST /envois/{envoiId}/fin. Après une coupure, GET /envois/{envoiId} indique le prochain lot attendu.
+     */
+    @PostMapping("/envois")
+    @BudgetSql(4)
+    public ResponseEntity<EnvoiSessionCourseDto> ouvrirEnvoi(
+            @AuthenticationPrincipal UserDetails user,
+            @Valid @RequestBody EnvoiSessionCourseRequest request) {
+        if (user == null) {
+            return ResponseEntity.status(401).build();
+        }
+        return ResponseEntity.ok(envoiSessionCourseService.ouvrir(user.getUsername(), request));
+    }
+
+    @GetMapping("/envois/{envoiId}")
+    @BudgetSql(2)
+    public ResponseEntity<EnvoiSessionCourseDto> getEnvoi(
+            @AuthenticationPrincipal UserDetails user,
+            @PathVariable UUID envoiId) {
+        if (user == null) {
+            return ResponseEntity.status(401).build();
+        }
+        return ResponseEntity.ok(envoiSessionCourseService.etat(envoiId, user.getUsername()));
+    }
+
+    /** Lot de points lu en flux ; un lot déjà reçu est ignoré, un lot en avance est refusé (409, prochainLot). */
+    @PutMapping(value = "/envois/{envoiId}/lots/{numero}", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @BudgetSql(2)
+    public ResponseEntity<EnvoiSessionCourseDto> ajouterLot(
+            @AuthenticationPrincipal UserDetails user,
+            @PathVariable UUID envoiId,
+            @PathVariable int numero,
+            InputStream corps) throws IOException {
+        if (user == null) {
+            return ResponseEntity.status(401).build();
+        }
+        return ResponseEntity.ok(envoiSessionCourseService.ajouterLot(envoiId, numero, corps, user.getUsername()));
+    }
+
+    @PostMapping("/envois/{envoiId}/fin")
+    @BudgetSql(10)
+    public ResponseEntity<SessionCourse> terminerEnvoi(
+            @AuthenticationPrincipal UserDetails user,
+            @PathVariable UUID envoiId,
+            @Valid @RequestBody FinEnvoiSessionCourseRequest request) {
+        if (user == null) {
+            return ResponseEntity.status(401).build();
+        }
+        return ResponseEntity.ok(envoiSessionCourseService.terminer(envoiId, user.getUsername(), request));
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteById(@PathVariable Long id) {
         sessionCourseService.deleteById(id);
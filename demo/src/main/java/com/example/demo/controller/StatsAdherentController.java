@@ -1,5 +1,6 @@
 package com.example.demo.controller;
 
+import com.example.demo.config.BudgetSql;
 import com.example.demo.dto.StatsAdherentDto;
 import com.example.demo.service.StatsAdherentService;
 import com.example.demo.repository.UserRepository;
@@ -9,6 +10,7 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -28,6 +30,7 @@ public class StatsAdherentController {
 
     /** Mes statistiques (adhérent connecté). */
     @GetMapping("/me")
+    @BudgetSql(5)
     @PreAuthorize("hasRole('ADHERENT')")
     public ResponseEntity<StatsAdherentDto> getMyStats(@AuthenticationPrincipal UserDetails user) {
         if (user == null) {
@@ -38,4 +41,12 @@ public class StatsAdherentController {
                 .orElseThrow(() -> new IllegalArgumentException("Utilisateur non trouvé"));
         return ResponseEntity.ok(statsAdherentService.getStatsForMe(adherentId));
     }
+
+    /** Reconstruit les agrégats de tous les adhérents (normalement fait chaque nuit). */
+    @PostMapping("/reconstruire")
+    @PreAuthorize("hasRole('ADMIN_PRINCIPAL')")
+    public ResponseEntity<Void> reconstruire() {
+        statsAdherentService.reconstruireTout();
+        return ResponseEntity.ok().build();
+    }
 }
@@ -0,0 +1,51 @@
+package com.example.demo.controller;
+
+import com.example.demo.config.BudgetSql;
+import com.example.demo.dto.PositionDirectRequest;
+import com.example.demo.security.JwtPrincipal;
+import com.example.demo.service.SuiviDirectService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+
+/**
+ * Suivi en direct d'un événement : positions envoyées par les coureurs, diffusées aux spectateurs en SSE.
+ */
+@RestController
+@RequestMapping("/api/evenements/{evenementId}/direct")
+@RequiredArgsConstructor
+public class SuiviDirectController {
+
+    private final SuiviDirectService suiviDirectService;
+
+    /** Flux SSE : "instantane" à la connexion, puis "positions" (dernière position des coureurs ayant bougé). */
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @BudgetSql(3)
+    public ResponseEntity<SseEmitter> suivre(
+            @AuthenticationPrincipal JwtPrincipal user,
+            @PathVariable Long evenementId) {
+        if (user == null) {
+            return ResponseEntity.status(401).build();
+        }
+        return ResponseEntity.ok(suiviDirectService.suivre(evenementId, user));
+    }
+
+    /** Positions du coureur connecté : [{ "lat", "lng", "t" }], une ou plusieurs depuis l'envoi précédent. */
+    @PostMapping("/positions")
+    @BudgetSql(3)
+    public ResponseEntity<Void> ajouterPositions(
+            @AuthenticationPrincipal JwtPrincipal user,
+            @PathVariable Long evenementId,
+            @RequestBody List<PositionDirectRequest> positions) {
+        if (user == null) {
+            return ResponseEntity.status(401).build();
+        }
+        suiviDirectService.ajouterPositions(evenementId, user, positions);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -1,6 +1,8 @@
 package com.example.demo.controller;
 
 import com.example.demo.service.EvenementRappelService;
+import com.example.demo.service.EvenementRappelService.TypeRappel;
+import com.example.demo.service.RappelScheduler;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -16,18 +18,19 @@ import org.springframework.web.bind.annotation.*;
 public class TestRappelController {
 
     private final EvenementRappelService evenementRappelService;
+    private final RappelScheduler rappelScheduler;
 
     @PreAuthorize("hasAnyRole('ADMIN_PRINCIPAL', 'ADMIN_COACH', 'ADMIN_GROUPE')")
     @PostMapping("/rappels-1h")
     public ResponseEntity<Void> declencherRappels1h() {
-        evenementRappelService.declencherRappels1h();
+        rappelScheduler.rattraper(TypeRappel.H1);
         return ResponseEntity.ok().build();
     }
 
     @PreAuthorize("hasAnyRole('ADMIN_PRINCIPAL', 'ADMIN_COACH', 'ADMIN_GROUPE')")
     @PostMapping("/rappels-24h")
     public ResponseEntity<Void> declencherRappels24h() {
-        evenementRappelService.declencherRappels24h();
+        rappelScheduler.rattraper(TypeRappel.H24);
         return ResponseEntity.ok().build();
     }
 
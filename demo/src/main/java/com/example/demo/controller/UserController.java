@@ -2,6 +2,7 @@ package com.example.demo.controller;
 
 import com.example.demo.dto.UserCreateRequest;
 import com.example.demo.dto.UserUpdateRequest;
+import com.example.demo.entity.CompteurPush;
 import com.example.demo.entity.Role;
 import com.example.demo.entity.User;
 import com.example.demo.service.UserService;
@@ -76,6 +77,16 @@ public class UserController {
         return ResponseEntity.ok(java.util.Map.of("registered", registered));
     }
 
+    /**
+     * Compteurs de remise des notifications push de l'utilisateur (remises, échecs, tokens invalides).
+     * Rôle : ADMIN_PRINCIPAL ou ADMIN_GROUPE.
+     */
+    @PreAuthorize("hasAnyRole('ADMIN_PRINCIPAL', 'ADMIN_GROUPE')")
+    @GetMapping("/{id}/push-stats")
+    public ResponseEntity<CompteurPush> getCompteurPush(@PathVariable UUID id) {
+        return ResponseEntity.ok(userService.getCompteurPush(id));
+    }
+
     /**
      * Envoie une notification push de test à l'utilisateur (admin uniquement).
      * Pour vérifier que la chaîne FCM fonctionne à 100%.
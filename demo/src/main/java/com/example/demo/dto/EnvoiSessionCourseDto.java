@@ -0,0 +1,29 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+/**
+ * État d'un envoi par lots : le client reprend l'envoi au lot prochainLot.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EnvoiSessionCourseDto {
+
+    private UUID id;
+
+    /** Numéro du prochain lot attendu. */
+    private int prochainLot;
+
+    /** Points reçus jusqu'ici. */
+    private long nbPoints;
+
+    /** Session créée (null tant que l'envoi n'est pas terminé). */
+    private Long sessionId;
+}
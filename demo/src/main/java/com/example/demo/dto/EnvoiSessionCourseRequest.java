@@ -0,0 +1,23 @@
+package com.example.demo.dto;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Ouverture d'un envoi par lots de session : le tracé suit par lots (PUT .../envois/{id}/lots/{numero}).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EnvoiSessionCourseRequest {
+
+    @NotNull(message = "La date de début est requise")
+    private Instant startedAt;
+
+    /** Id de l'événement si la session est liée à un événement du club. */
+    private Long evenementId;
+}
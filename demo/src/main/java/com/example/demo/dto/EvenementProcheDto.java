@@ -0,0 +1,29 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Événement trouvé par une recherche géographique (GET /api/evenements/proches ou /zone).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class EvenementProcheDto {
+
+    private Long id;
+    private String titre;
+    private Instant date;
+    private String type;
+    private String lieu;
+    private Double latitude;
+    private Double longitude;
+    private Long groupeId;
+    /** Distance au point recherché en mètres (null pour une recherche par zone). */
+    private Double distanceM;
+}
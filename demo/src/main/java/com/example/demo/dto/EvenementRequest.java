@@ -1,5 +1,7 @@
 package com.example.demo.dto;
 
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
@@ -25,7 +27,12 @@ public class EvenementRequest {
     /** Lieu de rencontre / localisation (adresse ou nom du lieu). */
     private String lieu;
 
+    @DecimalMin(value = "-90", message = "La latitude doit être comprise entre -90 et 90")
+    @DecimalMax(value = "90", message = "La latitude doit être comprise entre -90 et 90")
     private Double latitude;
+
+    @DecimalMin(value = "-180", message = "La longitude doit être comprise entre -180 et 180")
+    @DecimalMax(value = "180", message = "La longitude doit être comprise entre -180 et 180")
     private Double longitude;
 
     @NotNull(message = "L'identifiant du groupe est requis")
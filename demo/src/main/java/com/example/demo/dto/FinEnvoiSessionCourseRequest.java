@@ -0,0 +1,25 @@
+package com.example.demo.dto;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Fin d'un envoi par lots : distance et durée déclarées de la session.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FinEnvoiSessionCourseRequest {
+
+    @NotNull(message = "La distance est requise")
+    @PositiveOrZero
+    private Double distanceKm;
+
+    @NotNull(message = "La durée est requise")
+    @Positive(message = "La durée doit être positive")
+    private Long durationSeconds;
+}
@@ -0,0 +1,18 @@
+package com.example.demo.dto;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MembresGroupeRequest {
+
+    @NotNull(message = "La liste des adhérents est requise")
+    private List<UUID> adherentIds;
+}
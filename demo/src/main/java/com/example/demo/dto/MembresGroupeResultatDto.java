@@ -0,0 +1,28 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Résultat d'une modification groupée des membres d'un groupe.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MembresGroupeResultatDto {
+
+    /** Adhérents ajoutés (ceux déjà membres n'y figurent pas). */
+    private List<UUID> ajoutes;
+
+    /** Adhérents retirés. */
+    private List<UUID> retires;
+
+    /** Identifiants demandés ne correspondant à aucun utilisateur. */
+    private List<UUID> introuvables;
+}
@@ -0,0 +1,19 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Position envoyée pendant une course suivie en direct (POST /api/evenements/{id}/direct/positions).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PositionDirectRequest {
+
+    private Double lat;
+    private Double lng;
+    /** Horodatage en millisecondes epoch (heure du serveur si absent). */
+    private Long t;
+}
@@ -0,0 +1,57 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Résumé d'une session de course pour les listes : sans le tracé GPS,
+ * servi séparément par GET /api/sessions-course/{id}/track.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SessionCourseResumeDto {
+
+    private Long id;
+    private Double distanceKm;
+    private Long durationSeconds;
+    private Instant startedAt;
+    /** Événement lié (null si sortie libre). */
+    private EvenementResume evenement;
+    /** true si un tracé GPS est disponible. */
+    private boolean hasTrack;
+
+    /** Constructeur utilisé par les requêtes JPQL (projection à plat). */
+    public SessionCourseResumeDto(Long id, Double distanceKm, Long durationSeconds, Instant startedAt,
+                                  Long evenementId, String evenementTitre, Instant evenementDate, String evenementType,
+                                  String evenementLieu, Double evenementLatitude, Double evenementLongitude,
+                                  boolean hasTrack) {
+        this.id = id;
+        this.distanceKm = distanceKm;
+        this.durationSeconds = durationSeconds;
+        this.startedAt = startedAt;
+        this.evenement = evenementId != null
+                ? new EvenementResume(evenementId, evenementTitre, evenementDate, evenementType,
+                evenementLieu, evenementLatitude, evenementLongitude)
+                : null;
+        this.hasTrack = hasTrack;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class EvenementResume {
+        private Long id;
+        private String titre;
+        private Instant date;
+        private String type;
+        private String lieu;
+        private Double latitude;
+        private Double longitude;
+    }
+}
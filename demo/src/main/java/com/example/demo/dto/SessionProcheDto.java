@@ -0,0 +1,35 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Session (parcours) dont le tracé part près d'un point ou dans une zone
+ * (GET /api/sessions-course/proches ou /zone) ; tracé servi par GET /api/sessions-course/{id}/track.
+ * Seules les sessions de l'utilisateur et des membres de ses groupes sont renvoyées (toutes pour l'admin
+ * principal et les coachs) : le départ est souvent le domicile du coureur.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SessionProcheDto {
+
+    private Long id;
+    private UUID adherentId;
+    /** Événement lié (null si sortie libre). */
+    private Long evenementId;
+    private Instant startedAt;
+    private Double distanceKm;
+    private Long durationSeconds;
+    private Double denivelePositifM;
+    private Double departLatitude;
+    private Double departLongitude;
+    /** Distance du départ au point recherché en mètres (null pour une recherche par zone). */
+    private Double distanceM;
+}
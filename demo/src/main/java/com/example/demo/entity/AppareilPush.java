@@ -0,0 +1,40 @@
+package com.example.demo.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Appareil enregistré pour les notifications push (un token FCM par appareil, plusieurs par utilisateur).
+ * derniere_activite est rafraîchie à chaque enregistrement du token ; au-delà de app.push.appareils.ttl-jours
+ * sans activité, l'appareil n'est plus visé puis est supprimé.
+ */
+@Entity
+@Table(name = "appareils_push", indexes = {
+        @Index(name = "idx_appareils_push_utilisateur", columnList = "utilisateur_id, derniere_activite")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AppareilPush {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, unique = true, length = 512)
+    private String token;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "utilisateur_id", nullable = false)
+    private User utilisateur;
+
+    @Column(name = "date_enregistrement", nullable = false)
+    private Instant dateEnregistrement;
+
+    @Column(name = "derniere_activite", nullable = false)
+    private Instant derniereActivite;
+}
@@ -0,0 +1,43 @@
+package com.example.demo.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Compteurs de remise des notifications push par utilisateur (une ligne par utilisateur).
+ * Incrémentés en masse par l'outbox après chaque envoi.
+ */
+@Entity
+@Table(name = "compteurs_push")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CompteurPush {
+
+    @Id
+    @Column(name = "utilisateur_id")
+    private UUID utilisateurId;
+
+    /** Notifications remises à l'appareil. */
+    @Column(name = "nb_remises", nullable = false)
+    private long nbRemises;
+
+    /** Échecs temporaires (retentés). */
+    @Column(name = "nb_echecs", nullable = false)
+    private long nbEchecs;
+
+    /** Tokens rejetés définitivement par FCM (supprimés de l'utilisateur). */
+    @Column(name = "nb_tokens_invalides", nullable = false)
+    private long nbTokensInvalides;
+
+    @Column(name = "derniere_remise")
+    private Instant derniereRemise;
+
+    @Column(name = "dernier_echec")
+    private Instant dernierEchec;
+}
@@ -0,0 +1,77 @@
+package com.example.demo.entity;
+
+import com.example.demo.track.TrackEncoder;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Envoi par lots d'une session de course (POST /api/sessions-course/envois) : le client ajoute les points du tracé
+ * par lots numérotés, puis termine l'envoi, qui crée la {@link SessionCourse}. Chaque lot est encodé à la suite des
+ * précédents (format compact, {@link TrackEncoder#reprise}) et concaténé à track_data en base, sans relire le tracé.
+ * Un lot déjà reçu est ignoré (reprise après coupure réseau). Purgé après app.sessions.envois.expiration-heures.
+ */
+@Entity
+@Table(name = "envois_session_course")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class EnvoiSessionCourse {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "adherent_id", nullable = false)
+    private User adherent;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "evenement_id")
+    private Evenement evenement;
+
+    @Column(name = "started_at", nullable = false)
+    private Instant startedAt;
+
+    /** Tracé reçu jusqu'ici, au format compact ; complété par concaténation (voir EnvoiSessionCourseRepository). */
+    @Basic(fetch = FetchType.LAZY)
+    @Column(name = "track_data", nullable = false)
+    private byte[] trackData;
+
+    /** Numéro du prochain lot attendu (le premier lot porte le numéro 0). */
+    @Column(name = "prochain_lot", nullable = false)
+    private int prochainLot;
+
+    // --- État de l'encodeur après le dernier point reçu (TrackEncoder.Etat) ; drapeaux null avant le premier point ---
+
+    private Integer drapeaux;
+
+    @Column(name = "dernier_lat", nullable = false)
+    private long dernierLat;
+
+    @Column(name = "dernier_lng", nullable = false)
+    private long dernierLng;
+
+    @Column(name = "dernier_temps", nullable = false)
+    private long dernierTemps;
+
+    @Column(name = "derniere_altitude", nullable = false)
+    private long derniereAltitude;
+
+    @Column(name = "nb_points", nullable = false)
+    private long nbPoints;
+
+    /** Session créée à la fin de l'envoi (null tant que l'envoi est ouvert). */
+    @Column(name = "session_id")
+    private Long sessionId;
+
+    @Column(name = "date_creation", nullable = false)
+    private Instant dateCreation;
+
+    @Column(name = "derniere_activite", nullable = false)
+    private Instant derniereActivite;
+}
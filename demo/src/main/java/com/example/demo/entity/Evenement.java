@@ -1,12 +1,17 @@
 package com.example.demo.entity;
 
+import com.example.demo.track.GrilleGeo;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.*;
 
 import java.time.Instant;
 
 @Entity
-@Table(name = "evenements")
+@Table(name = "evenements", indexes = {
+        @Index(name = "idx_evenements_date", columnList = "date"),
+        @Index(name = "idx_evenements_geo", columnList = "geo_cle")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -38,6 +43,11 @@ public class Evenement {
     /** Longitude (optionnel, pour affichage carte). */
     private Double longitude;
 
+    /** Clé du lieu de rencontre dans la grille {@link GrilleGeo} (recherche des événements à proximité). */
+    @Column(name = "geo_cle")
+    @JsonIgnore
+    private Long geoCle;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "groupe_id", nullable = false)
     private GroupeRunning groupe;
@@ -52,4 +62,9 @@ public class Evenement {
     /** Rappel « 24h avant » déjà envoyé (évite doublons). */
     @Column(name = "rappel_24h_envoye", nullable = false, columnDefinition = "boolean not null default false")
     private boolean rappel24hEnvoye = false;
+
+    /** Met à jour la clé de grille d'après la latitude et la longitude (null sans coordonnées). */
+    public void indexerPosition() {
+        geoCle = latitude != null && longitude != null ? GrilleGeo.cle(latitude, longitude) : null;
+    }
 }
@@ -0,0 +1,69 @@
+package com.example.demo.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Notification push en attente d'envoi (outbox transactionnelle).
+ * Écrite dans la transaction métier, envoyée ensuite en tâche de fond par {@code NotificationOutboxWorker}.
+ */
+@Entity
+@Table(name = "notifications_push", indexes = {
+        @Index(name = "idx_notifications_push_statut_essai", columnList = "statut, prochain_essai")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class NotificationPush {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String titre;
+
+    @Column(columnDefinition = "TEXT")
+    private String corps;
+
+    /** Tokens destinataires, un par ligne. */
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String tokens;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private StatutNotificationPush statut;
+
+    @Column(nullable = false)
+    private int tentatives;
+
+    @Column(name = "prochain_essai", nullable = false)
+    private Instant prochainEssai;
+
+    @Column(name = "date_reservation")
+    private Instant dateReservation;
+
+    @Column(name = "derniere_erreur", length = 500)
+    private String derniereErreur;
+
+    @Column(name = "date_creation", nullable = false)
+    private Instant dateCreation;
+
+    @Column(name = "date_envoi")
+    private Instant dateEnvoi;
+
+    public List<String> getListeTokens() {
+        return tokens == null || tokens.isEmpty() ? List.of() : Arrays.asList(tokens.split("\n"));
+    }
+
+    public void setListeTokens(Collection<String> liste) {
+        this.tokens = String.join("\n", liste);
+    }
+}
@@ -1,17 +1,28 @@
 package com.example.demo.entity;
 
+import com.example.demo.track.GrilleGeo;
+import com.example.demo.track.TrackAnalyseur;
+import com.example.demo.track.NiveauTrace;
+import com.example.demo.track.TrackCodec;
+import com.example.demo.track.TrackPoint;
+import com.example.demo.track.TrackSimplificateur;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import lombok.*;
 
 import java.time.Instant;
+import java.util.List;
 import java.util.UUID;
 
 /**
  * Session de course enregistrée (optionnellement liée à un événement).
- * Permet le suivi GPS : distance, durée, tracé (points lat/lng en JSON).
+ * Permet le suivi GPS : distance, durée, tracé (format compact {@link TrackCodec}, exposé en JSON).
  */
 @Entity
-@Table(name = "sessions_course")
+@Table(name = "sessions_course", indexes = {
+        @Index(name = "idx_sessions_course_depart_geo", columnList = "depart_geo_cle")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -42,7 +53,112 @@ public class SessionCourse {
     @Column(name = "started_at", nullable = false)
     private Instant startedAt;
 
-    /** Tracé GPS au format JSON : tableau de { "lat": number, "lng": number }. */
+    // --- Analyse du tracé (TrackAnalyseur), calculée à l'enregistrement ; null sans tracé ou sans horodatage ---
+
+    /** Distance mesurée sur le tracé, sauts GPS et dérive à l'arrêt écartés (km). */
+    @Column(name = "distance_gps_km")
+    private Double distanceGpsKm;
+
+    /** Temps en mouvement, arrêts et interruptions exclus (secondes). */
+    @Column(name = "duree_mouvement_secondes")
+    private Long dureeMouvementSecondes;
+
+    /** Pace en mouvement (min/km). */
+    @Column(name = "pace_mouvement_min_km")
+    private Double paceMouvementMinKm;
+
+    /** Vitesse maximale sur 10 s de mouvement (km/h). */
+    @Column(name = "vitesse_max_kmh")
+    private Double vitesseMaxKmh;
+
+    /** Dénivelé positif cumulé (m), si le tracé porte l'altitude. */
+    @Column(name = "denivele_positif_m")
+    private Double denivelePositifM;
+
+    /** Temps en mouvement de chaque kilomètre complet (secondes). */
+    @Column(name = "splits_secondes")
+    private int[] splitsSecondes;
+
+    /**
+     * Version de l'analyse ({@link TrackAnalyseur#VERSION}) qui a produit les valeurs dérivées du tracé ;
+     * null tant que le tracé n'a pas été traité. Marque aussi les tracés sans point ou illisibles.
+     */
+    @Column(name = "analyse_version")
+    @JsonIgnore
+    private Integer analyseVersion;
+
+    /** Point de départ du tracé (recherche des parcours à proximité). */
+    @Column(name = "depart_latitude")
+    private Double departLatitude;
+
+    @Column(name = "depart_longitude")
+    private Double departLongitude;
+
+    /** Clé du point de départ dans la grille {@link GrilleGeo}. */
+    @Column(name = "depart_geo_cle")
+    @JsonIgnore
+    private Long departGeoCle;
+
+    /**
+     * Tracé GPS au format compact (voir {@link TrackCodec}), bytea.
+     * Chargé à la demande uniquement (enhancement Hibernate) : jamais lu par les listes de sessions.
+     */
+    @Basic(fetch = FetchType.LAZY)
+    @Column(name = "track_data")
+    @JsonIgnore
+    private byte[] trackData;
+
+    /**
+     * Ancien tracé JSON (colonne TEXT). Vidé par TrackMigrationService une fois converti dans track_data ;
+     * ne reste renseigné que pour les lignes non converties.
+     */
+    @Basic(fetch = FetchType.LAZY)
     @Column(name = "track", columnDefinition = "TEXT")
-    private String track;
+    @JsonIgnore
+    private String trackJson;
+
+    /** Tracé simplifié pour les vignettes ({@link NiveauTrace#APERCU}), coordonnées seules. */
+    @Basic(fetch = FetchType.LAZY)
+    @Column(name = "track_apercu")
+    @JsonIgnore
+    private byte[] trackApercu;
+
+    /** Tracé simplifié pour les cartes ({@link NiveauTrace#MOYEN}), coordonnées seules. */
+    @Basic(fetch = FetchType.LAZY)
+    @Column(name = "track_moyen")
+    @JsonIgnore
+    private byte[] trackMoyen;
+
+    /** Précalcule les niveaux simplifiés du tracé compact (décodé une seule fois). */
+    public void simplifierTrack() {
+        if (trackData == null) {
+            trackApercu = null;
+            trackMoyen = null;
+            return;
+        }
+        List<TrackPoint> points = TrackCodec.decode(trackData);
+        trackApercu = TrackCodec.encode(TrackSimplificateur.simplifier(points, NiveauTrace.APERCU.getToleranceM()));
+        trackMoyen = TrackCodec.encode(TrackSimplificateur.simplifier(points, NiveauTrace.MOYEN.getToleranceM()));
+    }
+
+    /** Enregistre les valeurs dérivées de l'analyse du tracé. */
+    public void appliquerAnalyse(TrackAnalyseur.Resultat analyse) {
+        distanceGpsKm = analyse.distanceKm();
+        dureeMouvementSecondes = analyse.dureeMouvementSecondes();
+        paceMouvementMinKm = analyse.paceMinParKm();
+        vitesseMaxKmh = analyse.vitesseMaxKmh();
+        denivelePositifM = analyse.denivelePositifM();
+        splitsSecondes = analyse.splitsSecondes();
+        TrackPoint depart = analyse.depart();
+        departLatitude = depart != null ? depart.lat() : null;
+        departLongitude = depart != null ? depart.lng() : null;
+        departGeoCle = depart != null ? GrilleGeo.cle(depart.lat(), depart.lng()) : null;
+        analyseVersion = TrackAnalyseur.VERSION;
+    }
+
+    /** Vue JSON du tracé pour les clients : tableau de { "lat": number, "lng": number }. */
+    @JsonProperty("track")
+    public String getTrack() {
+        return trackData != null ? TrackCodec.toJson(trackData) : trackJson;
+    }
 }
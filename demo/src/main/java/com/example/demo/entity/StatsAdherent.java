@@ -0,0 +1,67 @@
+package com.example.demo.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.util.UUID;
+
+/**
+ * Agrégat courant des sessions d'un adhérent (une ligne par adhérent).
+ * Mis à jour dans la même transaction que la création / suppression d'une SessionCourse.
+ */
+@Entity
+@Table(name = "stats_adherents")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StatsAdherent {
+
+    @Id
+    @Column(name = "adherent_id")
+    private UUID adherentId;
+
+    @Column(name = "nb_sorties", nullable = false)
+    private long nbSorties;
+
+    @Column(name = "total_distance_km", nullable = false)
+    private double totalDistanceKm;
+
+    @Column(name = "total_duration_seconds", nullable = false)
+    private long totalDurationSeconds;
+
+    /** Temps en mouvement cumulé (durée déclarée pour les sessions sans tracé horodaté) : base du pace moyen. */
+    @Column(name = "total_duree_mouvement_secondes", nullable = false, columnDefinition = "bigint not null default 0")
+    private long totalDureeMouvementSecondes;
+
+    /** Plus longue sortie en km (0 si aucune). */
+    @Column(name = "plus_longue_sortie_km", nullable = false)
+    private double plusLongueSortieKm;
+
+    /** Meilleur pace en min/km (null si aucune sortie avec distance et durée > 0). */
+    @Column(name = "meilleur_pace_min_per_km")
+    private Double meilleurPaceMinPerKm;
+
+    /** Ajoute une session sans analyse de tracé à l'agrégat. */
+    public void ajouterSession(Double distanceKm, Long durationSeconds) {
+        ajouterSession(distanceKm, durationSeconds, null, null);
+    }
+
+    /** Ajoute une session à l'agrégat ; temps et pace en mouvement issus de l'analyse du tracé s'ils sont connus. */
+    public void ajouterSession(Double distanceKm, Long durationSeconds, Long dureeMouvementSecondes, Double paceMouvementMinKm) {
+        double d = distanceKm != null ? distanceKm : 0;
+        long dur = durationSeconds != null ? durationSeconds : 0;
+        nbSorties++;
+        totalDistanceKm += d;
+        totalDurationSeconds += dur;
+        totalDureeMouvementSecondes += dureeMouvementSecondes != null ? dureeMouvementSecondes : dur;
+        if (d > plusLongueSortieKm) {
+            plusLongueSortieKm = d;
+        }
+        Double pace = paceMouvementMinKm != null ? paceMouvementMinKm : (d > 0 && dur > 0 ? (dur / 60.0) / d : null);
+        if (pace != null && (meilleurPaceMinPerKm == null || pace < meilleurPaceMinPerKm)) {
+            meilleurPaceMinPerKm = pace;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.demo.entity;
+
+/**
+ * États d'une notification push dans l'outbox :
+ * - EN_ATTENTE : à envoyer (dès que prochain_essai est atteint)
+ * - EN_COURS : réservée par un worker
+ * - ENVOYEE : remise à tous les tokens
+ * - ECHEC : abandonnée après le nombre maximal de tentatives (dead-letter)
+ */
+public enum StatutNotificationPush {
+    EN_ATTENTE,
+    EN_COURS,
+    ENVOYEE,
+    ECHEC
+}
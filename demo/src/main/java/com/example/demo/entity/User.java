@@ -43,10 +43,6 @@ public class User {
     @Column(nullable = false)
     private Role role;
 
-    /** Token FCM pour les notifications push (un par appareil, le dernier utilisé). */
-    @Column(name = "fcm_token", length = 512)
-    private String fcmToken;
-
     /** Premier login : l'utilisateur doit changer son mot de passe (créé par admin avec CIN). */
     @Column(name = "password_change_required")
     private Boolean passwordChangeRequired;
@@ -0,0 +1,34 @@
+package com.example.demo.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Bail d'exécution d'une tâche planifiée, partagé entre les instances du backend :
+ * seule l'instance propriétaire d'un bail non expiré exécute la tâche.
+ */
+@Entity
+@Table(name = "verrous_taches")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class VerrouTache {
+
+    @Id
+    @Column(length = 100)
+    private String nom;
+
+    /** Instance qui détient le bail (app.cluster.instance). */
+    @Column(nullable = false)
+    private String proprietaire;
+
+    @Column(name = "expire_le", nullable = false)
+    private Instant expireLe;
+
+    @Column(name = "date_acquisition", nullable = false)
+    private Instant dateAcquisition;
+}
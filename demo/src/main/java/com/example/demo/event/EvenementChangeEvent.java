@@ -0,0 +1,7 @@
+package com.example.demo.event;
+
+/**
+ * Publié lorsqu'un événement est créé, modifié ou supprimé (replanification des rappels, suivi en direct).
+ */
+public record EvenementChangeEvent(Long evenementId) {
+}
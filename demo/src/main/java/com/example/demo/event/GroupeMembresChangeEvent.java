@@ -0,0 +1,7 @@
+package com.example.demo.event;
+
+/**
+ * Publié lorsque la composition d'un groupe (table groupe_adherents) ou le groupe lui-même change.
+ */
+public record GroupeMembresChangeEvent(Long groupeId) {
+}
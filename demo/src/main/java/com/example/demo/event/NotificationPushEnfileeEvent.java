@@ -0,0 +1,7 @@
+package com.example.demo.event;
+
+/**
+ * Publié lorsque des notifications push sont écrites dans l'outbox (réveille les workers après commit).
+ */
+public record NotificationPushEnfileeEvent(int nbNotifications) {
+}
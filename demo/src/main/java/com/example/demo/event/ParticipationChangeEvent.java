@@ -0,0 +1,9 @@
+package com.example.demo.event;
+
+import java.util.UUID;
+
+/**
+ * Publié lorsque les participations d'un adhérent changent (inscription, annulation, date d'événement modifiée).
+ */
+public record ParticipationChangeEvent(UUID adherentId) {
+}
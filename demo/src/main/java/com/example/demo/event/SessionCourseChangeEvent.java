@@ -0,0 +1,9 @@
+package com.example.demo.event;
+
+import java.util.UUID;
+
+/**
+ * Publié lorsqu'une session de course d'un adhérent est créée ou supprimée.
+ */
+public record SessionCourseChangeEvent(UUID adherentId) {
+}
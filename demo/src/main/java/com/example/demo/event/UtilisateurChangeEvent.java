@@ -0,0 +1,9 @@
+package com.example.demo.event;
+
+import java.util.UUID;
+
+/**
+ * Publié lorsqu'un utilisateur est modifié (nom, rôle...) ou supprimé.
+ */
+public record UtilisateurChangeEvent(UUID userId) {
+}
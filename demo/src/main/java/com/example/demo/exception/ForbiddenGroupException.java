@@ -1,7 +1,8 @@
 package com.example.demo.exception;
 
 /**
- * Lancée lorsqu'un ADMIN_GROUPE tente d'effectuer une action sur un groupe dont il n'est pas le responsable.
+ * Lancée lorsqu'un ADMIN_GROUPE tente d'effectuer une action sur un groupe dont il n'est pas le responsable,
+ * ou qu'un utilisateur hors du groupe d'un événement tente d'en suivre ou d'en partager le direct.
  */
 public class ForbiddenGroupException extends RuntimeException {
 
@@ -60,4 +60,12 @@ public class GlobalExceptionHandler {
                 .contentType(MediaType.APPLICATION_JSON)
                 .body(Map.of("error", e.getMessage()));
     }
+
+    @ExceptionHandler(value = LotHorsSequenceException.class, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Map<String, Object>> handleLotHorsSequence(LotHorsSequenceException e) {
+        return ResponseEntity
+                .status(HttpStatus.CONFLICT)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Map.of("error", e.getMessage(), "prochainLot", e.getProchainLot()));
+    }
 }
@@ -0,0 +1,18 @@
+package com.example.demo.exception;
+
+import lombok.Getter;
+
+/**
+ * Lancée lorsqu'un lot d'un envoi par lots arrive hors séquence (lots manquants avant lui) ou après la fin de l'envoi :
+ * le client reprend au lot indiqué.
+ */
+@Getter
+public class LotHorsSequenceException extends RuntimeException {
+
+    private final int prochainLot;
+
+    public LotHorsSequenceException(String message, int prochainLot) {
+        super(message);
+        this.prochainLot = prochainLot;
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.demo.track;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tampon circulaire des dernières positions d'un coureur (suivi en direct) : capacité fixe, la plus ancienne position
+ * est écrasée. Coordonnées et horodatages en tableaux primitifs, sans allocation par position.
+ * Non synchronisé : l'appelant détient le verrou du participant.
+ */
+public class AnneauPositions {
+
+    private final double[] lat;
+    private final double[] lng;
+    private final long[] temps;
+    /** Index de la prochaine écriture. */
+    private int suivant;
+    private int taille;
+
+    public AnneauPositions(int capacite) {
+        lat = new double[capacite];
+        lng = new double[capacite];
+        temps = new long[capacite];
+    }
+
+    /** Ajoute une position ; ignorée si elle n'est pas plus récente que la dernière (renvoi, désordre). */
+    public boolean ajouter(double latitude, double longitude, long t) {
+        if (taille > 0 && t <= derniereDate()) {
+            return false;
+        }
+        lat[suivant] = latitude;
+        lng[suivant] = longitude;
+        temps[suivant] = t;
+        suivant = (suivant + 1) % temps.length;
+        if (taille < temps.length) {
+            taille++;
+        }
+        return true;
+    }
+
+    public boolean isEmpty() {
+        return taille == 0;
+    }
+
+    /** Horodatage de la dernière position (ms epoch) ; 0 si vide. */
+    public long derniereDate() {
+        return taille == 0 ? 0 : temps[indexDernier()];
+    }
+
+    /** Dernière position, null si vide. */
+    public TrackPoint derniere() {
+        if (taille == 0) {
+            return null;
+        }
+        int i = indexDernier();
+        return new TrackPoint(lat[i], lng[i], temps[i], null);
+    }
+
+    /** Positions du tampon, de la plus ancienne à la plus récente. */
+    public List<TrackPoint> positions() {
+        List<TrackPoint> resultat = new ArrayList<>(taille);
+        int debut = (suivant - taille + temps.length) % temps.length;
+        for (int k = 0; k < taille; k++) {
+            int i = (debut + k) % temps.length;
+            resultat.add(new TrackPoint(lat[i], lng[i], temps[i], null));
+        }
+        return resultat;
+    }
+
+    private int indexDernier() {
+        return (suivant - 1 + temps.length) % temps.length;
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.demo.track;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Index spatial sur une grille en ordre Z (geohash binaire) : latitude et longitude sont quantifiées sur 26 bits
+ * chacune et entrelacées en une clé de 52 bits, indexée par un B-tree ordinaire. Deux points proches partagent
+ * un long préfixe de clé : une zone est couverte par quelques cellules de la grille, chacune étant une plage
+ * contiguë de clés. Les requêtes lisent ces plages puis filtrent exactement sur les coordonnées.
+ */
+public final class GrilleGeo {
+
+    /** Bits par axe : cellule la plus fine d'environ 0,3 m × 0,6 m à l'équateur. */
+    static final int BITS = 26;
+    private static final long TAILLE = 1L << BITS;
+    /** Cellules au plus par zone couverte (avant fusion des plages contiguës). */
+    static final int MAX_CELLULES = 16;
+
+    private GrilleGeo() {
+    }
+
+    /** Plage [debut, fin] de clés d'une ou plusieurs cellules contiguës. */
+    public record Plage(long debut, long fin) {
+    }
+
+    /**
+     * Rectangle de coordonnées ; lngMin > lngMax pour une zone qui traverse l'antiméridien.
+     */
+    public record Zone(double latMin, double lngMin, double latMax, double lngMax) {
+
+        public Zone {
+            if (!(latMin >= -90 && latMax <= 90 && latMin <= latMax)) {
+                throw new IllegalArgumentException("Latitudes de la zone invalides");
+            }
+            if (!(lngMin >= -180 && lngMin <= 180 && lngMax >= -180 && lngMax <= 180)) {
+                throw new IllegalArgumentException("Longitudes de la zone invalides");
+            }
+        }
+
+        /** Rectangle englobant le cercle de rayon {@code rayonM} autour d'un point. */
+        public static Zone autour(double lat, double lng, double rayonM) {
+            verifierPoint(lat, lng);
+            double dLat = Math.toDegrees(rayonM / TrackAnalyseur.RAYON_TERRE_M);
+            double latMin = lat - dLat;
+            double latMax = lat + dLat;
+            if (latMin <= -90 || latMax >= 90) {
+                return new Zone(Math.max(latMin, -90), -180, Math.min(latMax, 90), 180); // pôle : toutes longitudes
+            }
+            double dLng = dLat / Math.cos(Math.toRadians(Math.max(Math.abs(latMin), Math.abs(latMax))));
+            if (dLng >= 180) {
+                return new Zone(latMin, -180, latMax, 180);
+            }
+            return new Zone(latMin, normaliser(lng - dLng), latMax, normaliser(lng + dLng));
+        }
+
+        public boolean traverseAntimeridien() {
+            return lngMin > lngMax;
+        }
+
+        /** Plus grande dimension approximative de la zone, en mètres. */
+        public double etendueM() {
+            double largeurLng = traverseAntimeridien() ? 360 - lngMin + lngMax : lngMax - lngMin;
+            double cosLat = Math.cos(Math.toRadians(Math.min(Math.abs(latMin), Math.abs(latMax))));
+            if (latMin <= 0 && latMax >= 0) cosLat = 1;
+            double metresParDegre = Math.toRadians(TrackAnalyseur.RAYON_TERRE_M);
+            return Math.max(latMax - latMin, largeurLng * cosLat) * metresParDegre;
+        }
+    }
+
+    public static void verifierPoint(double lat, double lng) {
+        if (!(lat >= -90 && lat <= 90) || !(lng >= -180 && lng <= 180)) {
+            throw new IllegalArgumentException("Coordonnées invalides : latitude entre -90 et 90, longitude entre -180 et 180");
+        }
+    }
+
+    /** Clé de la cellule la plus fine contenant le point. */
+    public static long cle(double lat, double lng) {
+        return entrelacer(quantifier(lng + 180, 360), quantifier(lat + 90, 180));
+    }
+
+    /** Plages de clés couvrant la zone, triées et disjointes (au plus 2 × {@link #MAX_CELLULES}). */
+    public static List<Plage> plages(Zone zone) {
+        List<Plage> plages = new ArrayList<>();
+        if (zone.traverseAntimeridien()) {
+            couvrir(zone.latMin(), zone.lngMin(), zone.latMax(), 180, plages);
+            couvrir(zone.latMin(), -180, zone.latMax(), zone.lngMax(), plages);
+        } else {
+            couvrir(zone.latMin(), zone.lngMin(), zone.latMax(), zone.lngMax(), plages);
+        }
+        plages.sort(Comparator.comparingLong(Plage::debut));
+        List<Plage> fusionnees = new ArrayList<>(plages.size());
+        for (Plage p : plages) {
+            Plage derniere = fusionnees.isEmpty() ? null : fusionnees.get(fusionnees.size() - 1);
+            if (derniere != null && p.debut() <= derniere.fin() + 1) {
+                fusionnees.set(fusionnees.size() - 1, new Plage(derniere.debut(), Math.max(derniere.fin(), p.fin())));
+            } else {
+                fusionnees.add(p);
+            }
+        }
+        return fusionnees;
+    }
+
+    /** Débuts des plages, dans l'ordre (paramètre tableau des requêtes). */
+    public static long[] debuts(List<Plage> plages) {
+        return plages.stream().mapToLong(Plage::debut).toArray();
+    }
+
+    public static long[] fins(List<Plage> plages) {
+        return plages.stream().mapToLong(Plage::fin).toArray();
+    }
+
+    /**
+     * Cellules du niveau le plus fin où le rectangle tient dans {@link #MAX_CELLULES} cellules ;
+     * chaque cellule de niveau {@code decalage} est la plage des clés qui partagent son préfixe.
+     */
+    private static void couvrir(double latMin, double lngMin, double latMax, double lngMax, List<Plage> plages) {
+        long x0 = quantifier(lngMin + 180, 360);
+        long x1 = quantifier(lngMax + 180, 360);
+        long y0 = quantifier(latMin + 90, 180);
+        long y1 = quantifier(latMax + 90, 180);
+        int decalage = 0;
+        while (((x1 >> decalage) - (x0 >> decalage) + 1) * ((y1 >> decalage) - (y0 >> decalage) + 1) > MAX_CELLULES) {
+            decalage++;
+        }
+        for (long y = y0 >> decalage; y <= y1 >> decalage; y++) {
+            for (long x = x0 >> decalage; x <= x1 >> decalage; x++) {
+                long debut = entrelacer(x, y) << (2 * decalage);
+                plages.add(new Plage(debut, debut + (1L << (2 * decalage)) - 1));
+            }
+        }
+    }
+
+    private static long quantifier(double valeur, double etendue) {
+        long q = (long) Math.floor(valeur / etendue * TAILLE);
+        return Math.max(0, Math.min(TAILLE - 1, q));
+    }
+
+    /** Entrelace les bits : longitude sur les bits pairs, latitude sur les bits impairs. */
+    private static long entrelacer(long x, long y) {
+        return etaler(x) | (etaler(y) << 1);
+    }
+
+    private static long etaler(long v) {
+        v &= 0xFFFFFFFFL;
+        v = (v | (v << 16)) & 0x0000FFFF0000FFFFL;
+        v = (v | (v << 8)) & 0x00FF00FF00FF00FFL;
+        v = (v | (v << 4)) & 0x0F0F0F0F0F0F0F0FL;
+        v = (v | (v << 2)) & 0x3333333333333333L;
+        v = (v | (v << 1)) & 0x5555555555555555L;
+        return v;
+    }
+
+    private static double normaliser(double lng) {
+        if (lng < -180) return lng + 360;
+        if (lng > 180) return lng - 360;
+        return lng;
+    }
+}
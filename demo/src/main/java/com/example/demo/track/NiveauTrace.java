@@ -0,0 +1,25 @@
+package com.example.demo.track;
+
+/**
+ * Niveaux de résolution d'un tracé servi aux clients (GET /api/sessions-course/{id}/track?niveau=...).
+ * Les niveaux simplifiés sont précalculés par {@link TrackSimplificateur} et stockés avec la session.
+ */
+public enum NiveauTrace {
+
+    /** Vignettes et listes : écart maximal de 15 m avec le tracé complet. */
+    APERCU(15),
+    /** Carte d'un événement ou d'une session : écart maximal de 4 m. */
+    MOYEN(4),
+    /** Tracé tel qu'enregistré, avec horodatage et altitude. */
+    COMPLET(0);
+
+    private final double toleranceM;
+
+    NiveauTrace(double toleranceM) {
+        this.toleranceM = toleranceM;
+    }
+
+    public double getToleranceM() {
+        return toleranceM;
+    }
+}
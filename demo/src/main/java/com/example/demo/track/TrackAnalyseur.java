@@ -0,0 +1,178 @@
+package com.example.demo.track;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Analyse en flux d'un tracé GPS, point par point (branché sur le décodage JSON ou {@link TrackDecoder}) :
+ * distance (haversine), temps en mouvement, temps par kilomètre, vitesse maximale, dénivelé positif et pace
+ * en mouvement. Les sauts GPS (vitesse irréaliste depuis le point précédent) sont écartés ; les arrêts ne comptent
+ * ni en temps ni en distance (dérive du GPS sur place), les interruptions d'enregistrement en distance seulement.
+ * Sans horodatage, seuls la distance et le dénivelé sont calculés. Le premier point est retenu comme point de départ.
+ */
+public class TrackAnalyseur implements Consumer<TrackPoint> {
+
+    /**
+     * Version des valeurs dérivées (analyse, niveaux simplifiés, point de départ), enregistrée avec chaque session :
+     * à incrémenter quand elles changent, pour que TrackMigrationService reprenne les tracés déjà traités.
+     */
+    public static final int VERSION = 1;
+
+    static final double RAYON_TERRE_M = 6_371_008.8;
+    /** Au-delà (45 km/h), le point est considéré comme un saut GPS et ignoré. */
+    static final double VITESSE_MAX_MS = 12.5;
+    /** En dessous (~21 min/km), le coureur est considéré à l'arrêt. */
+    static final double VITESSE_ARRET_MS = 0.8;
+    /** Écart entre deux points au-delà duquel l'enregistrement est considéré interrompu. */
+    static final long ECART_MAX_MS = 30_000;
+    /** Durée minimale en mouvement d'une fenêtre de mesure de la vitesse maximale (lisse le bruit GPS). */
+    static final long FENETRE_VITESSE_MS = 10_000;
+    /** Variation d'altitude ignorée (bruit), en mètres. */
+    static final double SEUIL_DENIVELE_M = 2;
+    /** Distance minimale pour calculer un pace, en mètres. */
+    static final double DISTANCE_MIN_PACE_M = 500;
+
+    private TrackPoint depart;
+    private TrackPoint precedent;
+    private double distanceM;
+    /** Distance parcourue en mouvement (hors interruptions d'enregistrement) : base du pace. */
+    private double distanceMouvementM;
+    private long mouvementMs;
+    private boolean avecTemps = true;
+
+    private double altitudeReference = Double.NaN;
+    private double denivelePositifM;
+
+    private double fenetreM;
+    private long fenetreMs;
+    private double vitesseMaxMs;
+
+    private int[] splits = new int[16];
+    private int nbSplits;
+    private long mouvementDernierSplitMs;
+
+    /** Résultat de l'analyse ; champs temporels null si le tracé n'est pas horodaté, départ null sans point. */
+    public record Resultat(double distanceKm, Long dureeMouvementSecondes, Double paceMinParKm,
+                           Double vitesseMaxKmh, Double denivelePositifM, int[] splitsSecondes, TrackPoint depart) {
+    }
+
+    /** Analyse d'un tracé compact. */
+    public static Resultat analyser(byte[] data) {
+        TrackAnalyseur analyseur = new TrackAnalyseur();
+        try (TrackDecoder decoder = new TrackDecoder(new ByteArrayInputStream(data))) {
+            decoder.forEachRemaining(analyseur);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return analyseur.resultat();
+    }
+
+    @Override
+    public void accept(TrackPoint p) {
+        suivreAltitude(p.ele());
+        if (precedent == null) {
+            avecTemps = p.time() != null;
+            depart = p;
+            precedent = p;
+            return;
+        }
+        double d = haversine(precedent, p);
+        if (!avecTemps || p.time() == null || precedent.time() == null) {
+            avecTemps = false;
+            distanceM += d;
+            precedent = p;
+            return;
+        }
+        long dt = p.time() - precedent.time();
+        if (dt <= 0) {
+            return; // point dupliqué ou hors ordre
+        }
+        double vitesse = d / (dt / 1000.0);
+        if (vitesse > VITESSE_MAX_MS) {
+            return; // saut GPS : on garde le point précédent comme référence
+        }
+        if (dt > ECART_MAX_MS) {
+            parcourir(d, 0); // enregistrement interrompu : la distance compte, pas le temps
+        } else if (vitesse >= VITESSE_ARRET_MS) {
+            parcourir(d, dt);
+        }
+        // sinon arrêt : ni temps ni distance (dérive du GPS sur place)
+        precedent = p;
+    }
+
+    /** Ajoute un segment : distance, temps en mouvement, fenêtre de vitesse et passages au kilomètre. */
+    private void parcourir(double d, long dt) {
+        double avant = distanceM;
+        distanceM += d;
+        mouvementMs += dt;
+        if (dt > 0) {
+            distanceMouvementM += d;
+            fenetreM += d;
+            fenetreMs += dt;
+            if (fenetreMs >= FENETRE_VITESSE_MS) {
+                vitesseMaxMs = Math.max(vitesseMaxMs, fenetreM / (fenetreMs / 1000.0));
+                fenetreM = 0;
+                fenetreMs = 0;
+            }
+        }
+        // Passage(s) de kilomètre dans le segment : instant interpolé linéairement
+        for (long km = (long) (avant / 1000) + 1; km * 1000 <= distanceM; km++) {
+            long passageMs = mouvementMs - dt + Math.round(dt * (km * 1000 - avant) / d);
+            ajouterSplit((int) Math.round((passageMs - mouvementDernierSplitMs) / 1000.0));
+            mouvementDernierSplitMs = passageMs;
+        }
+    }
+
+    private void suivreAltitude(Double ele) {
+        if (ele == null) return;
+        if (Double.isNaN(altitudeReference)) {
+            altitudeReference = ele;
+        } else if (ele - altitudeReference >= SEUIL_DENIVELE_M) {
+            denivelePositifM += ele - altitudeReference;
+            altitudeReference = ele;
+        } else if (altitudeReference - ele >= SEUIL_DENIVELE_M) {
+            altitudeReference = ele;
+        }
+    }
+
+    private void ajouterSplit(int secondes) {
+        if (nbSplits == splits.length) {
+            splits = Arrays.copyOf(splits, nbSplits * 2);
+        }
+        splits[nbSplits++] = secondes;
+    }
+
+    public Resultat resultat() {
+        double distanceKm = distanceM / 1000;
+        Double denivele = Double.isNaN(altitudeReference) ? null : arrondir(denivelePositifM, 1);
+        if (!avecTemps || precedent == null) {
+            return new Resultat(arrondir(distanceKm, 3), null, null, null, denivele, null, depart);
+        }
+        if (fenetreMs > 0 && mouvementMs < FENETRE_VITESSE_MS) {
+            vitesseMaxMs = fenetreM / (fenetreMs / 1000.0); // sortie plus courte qu'une fenêtre
+        }
+        Double pace = distanceMouvementM >= DISTANCE_MIN_PACE_M && mouvementMs > 0
+                ? arrondir((mouvementMs / 60_000.0) / (distanceMouvementM / 1000), 3)
+                : null;
+        return new Resultat(arrondir(distanceKm, 3), Math.round(mouvementMs / 1000.0), pace,
+                arrondir(vitesseMaxMs * 3.6, 2), denivele, Arrays.copyOf(splits, nbSplits), depart);
+    }
+
+    static double haversine(TrackPoint a, TrackPoint b) {
+        double lat1 = Math.toRadians(a.lat());
+        double lat2 = Math.toRadians(b.lat());
+        double dLat = lat2 - lat1;
+        double dLng = Math.toRadians(b.lng() - a.lng());
+        double h = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(lat1) * Math.cos(lat2) * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * RAYON_TERRE_M * Math.asin(Math.min(1, Math.sqrt(h)));
+    }
+
+    private static double arrondir(double valeur, int decimales) {
+        double facteur = Math.pow(10, decimales);
+        return Math.round(valeur * facteur) / facteur;
+    }
+}
@@ -0,0 +1,217 @@
+package com.example.demo.track;
+
+import tools.jackson.core.JacksonException;
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.core.JsonParser;
+import tools.jackson.core.JsonToken;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Format compact des tracés GPS (colonne sessions_course.track_data).
+ * <pre>
+ * en-tête : 'T' | version (1) | drapeaux (bit 0 : horodatage, bit 1 : altitude)
+ * point   : Δlat | Δlng [| Δtemps ms] [| Δaltitude dm]
+ * </pre>
+ * Coordonnées en virgule fixe 1e-6 degré (~11 cm). Chaque valeur est le delta avec le point
+ * précédent, en varint zigzag : 2 à 4 octets par coordonnée au lieu de ~40 octets par point en JSON.
+ * La vue JSON ({@code [{"lat":..,"lng":..}]}, avec "t" et "ele" si présents) reste fournie aux clients.
+ */
+public final class TrackCodec {
+
+    /** Type MIME du format compact (GET /api/sessions-course/{id}/track). */
+    public static final String MEDIA_TYPE = "application/vnd.runningclub.track";
+
+    static final int MAGIC = 'T';
+    static final int VERSION = 1;
+    static final int FLAG_TEMPS = 1;
+    static final int FLAG_ALTITUDE = 2;
+
+    static final double ECHELLE_COORD = 1e6;
+    static final double ECHELLE_ALTITUDE = 10;
+
+    private TrackCodec() {
+    }
+
+    public static byte[] encode(Iterable<TrackPoint> points) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (TrackEncoder encoder = new TrackEncoder(out)) {
+            for (TrackPoint p : points) {
+                encoder.write(p);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    public static List<TrackPoint> decode(byte[] data) {
+        List<TrackPoint> points = new ArrayList<>();
+        try (TrackDecoder decoder = new TrackDecoder(new ByteArrayInputStream(data))) {
+            decoder.forEachRemaining(points::add);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return points;
+    }
+
+    /**
+     * Convertit un tracé JSON ({@code [{"lat":..,"lng":..,"t":..,"ele":..}]}) en format compact,
+     * en flux (le JSON n'est pas matérialisé en objets). Retourne null pour un tracé null ou vide.
+     *
+     * @throws IllegalArgumentException si le JSON n'est pas un tableau de points valides
+     */
+    public static byte[] fromJson(String json) {
+        return fromJson(json, p -> {
+        });
+    }
+
+    /**
+     * Comme {@link #fromJson(String)}, en transmettant aussi chaque point lu à {@code observateur}
+     * (analyse du tracé sans second parcours du JSON).
+     */
+    public static byte[] fromJson(String json, Consumer<TrackPoint> observateur) {
+        if (json == null || json.isBlank()) {
+            return null;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(16, json.length() / 8));
+        try (JsonParser parser = JsonMapper.shared().createParser(json);
+             TrackEncoder encoder = new TrackEncoder(out)) {
+            copierJson(parser, encoder, observateur);
+        } catch (JacksonException e) {
+            throw new IllegalArgumentException("Tracé GPS invalide : " + e.getOriginalMessage());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /** Lit un tableau JSON de points et les écrit dans l'encodeur, point par point. */
+    public static void copierJson(JsonParser parser, TrackEncoder encoder) throws IOException {
+        copierJson(parser, encoder, p -> {
+        });
+    }
+
+    /** Idem, chaque point écrit étant aussi transmis à {@code observateur}. */
+    public static void copierJson(JsonParser parser, TrackEncoder encoder, Consumer<TrackPoint> observateur)
+            throws IOException {
+        if (parser.nextToken() != JsonToken.START_ARRAY) {
+            throw new IllegalArgumentException("Tracé GPS invalide : tableau JSON attendu");
+        }
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            TrackPoint point = lirePoint(parser);
+            encoder.write(point);
+            observateur.accept(point);
+        }
+        if (parser.currentToken() != JsonToken.END_ARRAY) {
+            throw new IllegalArgumentException("Tracé GPS invalide : objet { lat, lng } attendu");
+        }
+    }
+
+    private static TrackPoint lirePoint(JsonParser parser) {
+        Double lat = null;
+        Double lng = null;
+        Long temps = null;
+        Double altitude = null;
+        while (parser.nextToken() == JsonToken.PROPERTY_NAME) {
+            String nom = parser.currentName();
+            JsonToken valeur = parser.nextToken();
+            if (valeur == JsonToken.VALUE_NULL) {
+                continue;
+            }
+            if (!valeur.isNumeric()) {
+                parser.skipChildren();
+                continue;
+            }
+            switch (nom) {
+                case "lat", "latitude" -> lat = parser.getDoubleValue();
+                case "lng", "lon", "longitude" -> lng = parser.getDoubleValue();
+                case "t", "time", "timestamp" -> temps = parser.getLongValue();
+                case "ele", "alt", "altitude" -> altitude = parser.getDoubleValue();
+                default -> {
+                }
+            }
+        }
+        if (lat == null || lng == null) {
+            throw new IllegalArgumentException("Tracé GPS invalide : lat et lng sont requis pour chaque point");
+        }
+        return new TrackPoint(lat, lng, temps, altitude);
+    }
+
+    /** Vue JSON d'un tracé compact (null si pas de tracé). */
+    public static String toJson(byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        StringWriter writer = new StringWriter(data.length * 8);
+        writeJson(new ByteArrayInputStream(data), writer);
+        return writer.toString();
+    }
+
+    /** Écrit la vue JSON d'un tracé compact en flux, point par point. */
+    public static void writeJson(InputStream data, Writer writer) {
+        try (TrackDecoder decoder = new TrackDecoder(data);
+             JsonGenerator gen = JsonMapper.shared().createGenerator(writer)) {
+            gen.writeStartArray();
+            while (decoder.hasNext()) {
+                TrackPoint p = decoder.next();
+                gen.writeStartObject();
+                gen.writeNumberProperty("lat", p.lat());
+                gen.writeNumberProperty("lng", p.lng());
+                if (p.time() != null) gen.writeNumberProperty("t", p.time());
+                if (p.ele() != null) gen.writeNumberProperty("ele", p.ele());
+                gen.writeEndObject();
+            }
+            gen.writeEndArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // --- Virgule fixe et varints ---
+
+    static long versFixe(double degres) {
+        return Math.round(degres * ECHELLE_COORD);
+    }
+
+    static double depuisFixe(long fixe) {
+        return fixe / ECHELLE_COORD;
+    }
+
+    static void ecrireVarSigne(OutputStream out, long valeur) throws IOException {
+        long v = (valeur << 1) ^ (valeur >> 63); // zigzag
+        while ((v & ~0x7FL) != 0) {
+            out.write((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.write((int) v);
+    }
+
+    /** Lit un varint zigzag dont le premier octet a déjà été lu. */
+    static long lireVarSigne(InputStream in, int premierOctet) throws IOException {
+        long v = premierOctet & 0x7F;
+        int decalage = 7;
+        int b = premierOctet;
+        while ((b & 0x80) != 0) {
+            b = in.read();
+            if (b < 0) {
+                throw new EOFException("Tracé tronqué");
+            }
+            v |= (long) (b & 0x7F) << decalage;
+            decalage += 7;
+        }
+        return (v >>> 1) ^ -(v & 1);
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.demo.track;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Décodeur en flux du format compact de tracé (voir {@link TrackCodec}).
+ * Lit un point à la fois : un tracé de plusieurs heures se parcourt sans être chargé en mémoire.
+ */
+public class TrackDecoder implements Iterator<TrackPoint>, Closeable {
+
+    private final InputStream in;
+    private final int drapeaux;
+
+    private long lat;
+    private long lng;
+    private long temps;
+    private long altitude;
+    private TrackPoint suivant;
+
+    public TrackDecoder(InputStream in) throws IOException {
+        this.in = in;
+        int magic = in.read();
+        int version = in.read();
+        int flags = in.read();
+        if (magic != TrackCodec.MAGIC || version != TrackCodec.VERSION || flags < 0) {
+            throw new IOException("Format de tracé inconnu");
+        }
+        this.drapeaux = flags;
+    }
+
+    public boolean hasTime() {
+        return (drapeaux & TrackCodec.FLAG_TEMPS) != 0;
+    }
+
+    public boolean hasElevation() {
+        return (drapeaux & TrackCodec.FLAG_ALTITUDE) != 0;
+    }
+
+    public int getDrapeaux() {
+        return drapeaux;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (suivant == null) {
+            try {
+                suivant = lire();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return suivant != null;
+    }
+
+    @Override
+    public TrackPoint next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        TrackPoint p = suivant;
+        suivant = null;
+        return p;
+    }
+
+    private TrackPoint lire() throws IOException {
+        int premier = in.read();
+        if (premier < 0) {
+            return null;
+        }
+        lat += TrackCodec.lireVarSigne(in, premier);
+        lng += TrackCodec.lireVarSigne(in, lireOctet());
+        if (hasTime()) {
+            temps += TrackCodec.lireVarSigne(in, lireOctet());
+        }
+        if (hasElevation()) {
+            altitude += TrackCodec.lireVarSigne(in, lireOctet());
+        }
+        return new TrackPoint(
+                TrackCodec.depuisFixe(lat),
+                TrackCodec.depuisFixe(lng),
+                hasTime() ? temps : null,
+                hasElevation() ? altitude / TrackCodec.ECHELLE_ALTITUDE : null);
+    }
+
+    private int lireOctet() throws IOException {
+        int b = in.read();
+        if (b < 0) {
+            throw new EOFException("Tracé tronqué");
+        }
+        return b;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
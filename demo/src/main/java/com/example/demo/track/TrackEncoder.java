@@ -0,0 +1,119 @@
+package com.example.demo.track;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Encodeur en flux du format compact de tracé (voir {@link TrackCodec}).
+ * Les points sont écrits au fur et à mesure, sans garder le tracé en mémoire.
+ * Les drapeaux (horodatage, altitude) sont déterminés par le premier point ; un point suivant
+ * sans horodatage ou altitude reprend la valeur précédente.
+ */
+public class TrackEncoder implements Closeable {
+
+    private final OutputStream out;
+    private boolean enteteEcrit;
+    private boolean avecTemps;
+    private boolean avecAltitude;
+
+    private long dernierLat;
+    private long dernierLng;
+    private long dernierTemps;
+    private long derniereAltitude;
+    private long nbPoints;
+
+    /**
+     * État de l'encodeur après le dernier point écrit (drapeaux de l'en-tête, dernières valeurs en virgule fixe) :
+     * suffit pour reprendre l'encodage à la suite d'un tracé déjà écrit, sans le relire.
+     */
+    public record Etat(int drapeaux, long lat, long lng, long temps, long altitude, long nbPoints) {
+    }
+
+    public TrackEncoder(OutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Encodeur qui écrit dans {@code out} la suite d'un tracé dont l'encodage s'est arrêté à {@code etat}
+     * (pas de nouvel en-tête) : les octets produits se concatènent aux précédents. Sans état (aucun point écrit),
+     * encodeur neuf.
+     */
+    public static TrackEncoder reprise(OutputStream out, Etat etat) {
+        TrackEncoder encoder = new TrackEncoder(out);
+        if (etat != null) {
+            encoder.enteteEcrit = true;
+            encoder.avecTemps = (etat.drapeaux() & TrackCodec.FLAG_TEMPS) != 0;
+            encoder.avecAltitude = (etat.drapeaux() & TrackCodec.FLAG_ALTITUDE) != 0;
+            encoder.dernierLat = etat.lat();
+            encoder.dernierLng = etat.lng();
+            encoder.dernierTemps = etat.temps();
+            encoder.derniereAltitude = etat.altitude();
+            encoder.nbPoints = etat.nbPoints();
+        }
+        return encoder;
+    }
+
+    /** État courant, à conserver pour une {@link #reprise} ; null tant que l'en-tête n'est pas écrit. */
+    public Etat getEtat() {
+        if (!enteteEcrit) {
+            return null;
+        }
+        int drapeaux = (avecTemps ? TrackCodec.FLAG_TEMPS : 0) | (avecAltitude ? TrackCodec.FLAG_ALTITUDE : 0);
+        return new Etat(drapeaux, dernierLat, dernierLng, dernierTemps, derniereAltitude, nbPoints);
+    }
+
+    public void write(TrackPoint p) throws IOException {
+        if (!Double.isFinite(p.lat()) || !Double.isFinite(p.lng())
+                || Math.abs(p.lat()) > 90 || Math.abs(p.lng()) > 180) {
+            throw new IllegalArgumentException("Point GPS invalide : " + p.lat() + ", " + p.lng());
+        }
+        if (!enteteEcrit) {
+            avecTemps = p.time() != null;
+            avecAltitude = p.ele() != null;
+            ecrireEntete();
+        }
+        long lat = TrackCodec.versFixe(p.lat());
+        long lng = TrackCodec.versFixe(p.lng());
+        TrackCodec.ecrireVarSigne(out, lat - dernierLat);
+        TrackCodec.ecrireVarSigne(out, lng - dernierLng);
+        dernierLat = lat;
+        dernierLng = lng;
+        if (avecTemps) {
+            long t = p.time() != null ? p.time() : dernierTemps;
+            TrackCodec.ecrireVarSigne(out, t - dernierTemps);
+            dernierTemps = t;
+        }
+        if (avecAltitude) {
+            long alt = p.ele() != null ? Math.round(p.ele() * TrackCodec.ECHELLE_ALTITUDE) : derniereAltitude;
+            TrackCodec.ecrireVarSigne(out, alt - derniereAltitude);
+            derniereAltitude = alt;
+        }
+        nbPoints++;
+    }
+
+    public long getNbPoints() {
+        return nbPoints;
+    }
+
+    private void ecrireEntete() throws IOException {
+        out.write(TrackCodec.MAGIC);
+        out.write(TrackCodec.VERSION);
+        out.write((avecTemps ? TrackCodec.FLAG_TEMPS : 0) | (avecAltitude ? TrackCodec.FLAG_ALTITUDE : 0));
+        enteteEcrit = true;
+    }
+
+    /** Termine le tracé (écrit l'en-tête si aucun point) sans fermer le flux sous-jacent. */
+    public void finish() throws IOException {
+        if (!enteteEcrit) {
+            ecrireEntete();
+        }
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        finish();
+        out.close();
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.demo.track;
+
+/**
+ * Point d'un tracé GPS.
+ *
+ * @param lat  latitude en degrés
+ * @param lng  longitude en degrés
+ * @param time horodatage en millisecondes epoch (null si absent)
+ * @param ele  altitude en mètres (null si absente)
+ */
+public record TrackPoint(double lat, double lng, Long time, Double ele) {
+
+    public TrackPoint(double lat, double lng) {
+        this(lat, lng, null, null);
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.demo.track;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Simplification de tracé par l'algorithme de Douglas-Peucker : ne garde que les points qui s'écartent de plus
+ * de la tolérance de la corde entre deux points conservés (premier et dernier points toujours gardés).
+ * Les distances sont calculées en mètres dans une projection équirectangulaire locale, suffisante à l'échelle
+ * d'une sortie. Parcours itératif (pile explicite) : pas de récursion profonde sur les longs tracés.
+ * Les tracés simplifiés ne portent que les coordonnées (affichage sur carte).
+ */
+public final class TrackSimplificateur {
+
+    private static final double METRES_PAR_DEGRE = Math.toRadians(TrackAnalyseur.RAYON_TERRE_M);
+
+    private TrackSimplificateur() {
+    }
+
+    /** Tracé compact simplifié au niveau demandé (null si pas de tracé). */
+    public static byte[] simplifier(byte[] data, NiveauTrace niveau) {
+        if (data == null || niveau == NiveauTrace.COMPLET) {
+            return data;
+        }
+        return TrackCodec.encode(simplifier(TrackCodec.decode(data), niveau.getToleranceM()));
+    }
+
+    public static List<TrackPoint> simplifier(List<TrackPoint> points, double toleranceM) {
+        int n = points.size();
+        if (n <= 2) {
+            return coordonnees(points, null);
+        }
+        double cosLat = Math.cos(Math.toRadians(points.get(0).lat()));
+        double[] x = new double[n];
+        double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = points.get(i).lng() * METRES_PAR_DEGRE * cosLat;
+            y[i] = points.get(i).lat() * METRES_PAR_DEGRE;
+        }
+
+        boolean[] garde = new boolean[n];
+        garde[0] = true;
+        garde[n - 1] = true;
+        double tolerance2 = toleranceM * toleranceM;
+        int[] pile = new int[64];
+        int sommet = 0;
+        pile[sommet++] = 0;
+        pile[sommet++] = n - 1;
+        while (sommet > 0) {
+            int fin = pile[--sommet];
+            int debut = pile[--sommet];
+            int plusLoin = -1;
+            double max2 = tolerance2;
+            for (int i = debut + 1; i < fin; i++) {
+                double d2 = distance2(x[i], y[i], x[debut], y[debut], x[fin], y[fin]);
+                if (d2 > max2) {
+                    max2 = d2;
+                    plusLoin = i;
+                }
+            }
+            if (plusLoin < 0) {
+                continue;
+            }
+            garde[plusLoin] = true;
+            if (sommet + 4 > pile.length) {
+                pile = Arrays.copyOf(pile, pile.length * 2);
+            }
+            pile[sommet++] = debut;
+            pile[sommet++] = plusLoin;
+            pile[sommet++] = plusLoin;
+            pile[sommet++] = fin;
+        }
+        return coordonnees(points, garde);
+    }
+
+    /** Carré de la distance du point p au segment [a, b]. */
+    private static double distance2(double px, double py, double ax, double ay, double bx, double by) {
+        double dx = bx - ax;
+        double dy = by - ay;
+        double longueur2 = dx * dx + dy * dy;
+        double t = longueur2 > 0 ? ((px - ax) * dx + (py - ay) * dy) / longueur2 : 0;
+        t = Math.max(0, Math.min(1, t));
+        double ex = px - (ax + t * dx);
+        double ey = py - (ay + t * dy);
+        return ex * ex + ey * ey;
+    }
+
+    private static List<TrackPoint> coordonnees(List<TrackPoint> points, boolean[] garde) {
+        List<TrackPoint> resultat = new ArrayList<>();
+        for (int i = 0; i < points.size(); i++) {
+            if (garde == null || garde[i]) {
+                TrackPoint p = points.get(i);
+                resultat.add(new TrackPoint(p.lat(), p.lng()));
+            }
+        }
+        return resultat;
+    }
+}
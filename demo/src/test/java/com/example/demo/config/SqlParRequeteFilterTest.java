@@ -0,0 +1,66 @@
+package com.example.demo.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class SqlParRequeteFilterTest {
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final CompteurSql inspector = new CompteurSql();
+
+	static class Controleur {
+		@BudgetSql(2)
+		public void lister() {
+		}
+	}
+
+	@Test
+	void compteLesRequetesEtLesRenvoieDansLEntete() throws Exception {
+		MockHttpServletResponse response = executer(new MockEnvironment(), 3);
+
+		assertEquals("3", response.getHeader(SqlParRequeteFilter.ENTETE));
+		assertEquals(3.0, registry.get("http.server.requests.sql").tag("uri", "/api/test").summary().totalAmount());
+		assertEquals(1.0, registry.get("http.server.requests.sql.depassements").counter().count());
+	}
+
+	@Test
+	void respecteLeBudget() throws Exception {
+		executer(new MockEnvironment(), 2);
+
+		assertNull(registry.find("http.server.requests.sql.depassements").counter());
+	}
+
+	@Test
+	void pasDEnteteEnProduction() throws Exception {
+		MockEnvironment environment = new MockEnvironment();
+		environment.setActiveProfiles("prod");
+
+		MockHttpServletResponse response = executer(environment, 1);
+
+		assertNull(response.getHeader(SqlParRequeteFilter.ENTETE));
+		assertEquals(1, registry.get("http.server.requests.sql").summary().count());
+	}
+
+	private MockHttpServletResponse executer(MockEnvironment environment, int nbRequetes) throws Exception {
+		SqlParRequeteFilter filter = new SqlParRequeteFilter(registry, environment);
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/test");
+		request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/test");
+		request.setAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE,
+				new HandlerMethod(new Controleur(), Controleur.class.getMethod("lister")));
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		filter.doFilter(request, response, (req, res) -> {
+			for (int i = 0; i < nbRequetes; i++) {
+				inspector.inspect("select 1");
+			}
+		});
+		return response;
+	}
+}
@@ -0,0 +1,136 @@
+package com.example.demo.track;
+
+import com.example.demo.track.GrilleGeo.Plage;
+import com.example.demo.track.GrilleGeo.Zone;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+class GrilleGeoTest {
+
+	private final Random random = new Random(42);
+
+	@Test
+	void zoneOrdinaire() {
+		verifierCouverture(new Zone(36.78, 10.14, 36.85, 10.25));
+		verifierCouverture(new Zone(-33.95, 18.35, -33.85, 18.50));
+	}
+
+	@Test
+	void zoneReduiteAUnPoint() {
+		verifierCouverture(new Zone(48.8566, 2.3522, 48.8566, 2.3522));
+	}
+
+	@Test
+	void zoneAutourDUnPoint() {
+		verifierCouverture(Zone.autour(36.8, 10.18, 50_000));
+		verifierCouverture(Zone.autour(0, 0, 10));
+	}
+
+	@Test
+	void zoneTraversantLAntimeridien() {
+		Zone zone = new Zone(-18.3, 177.5, -16.0, -179.2);
+		assertTrue(zone.traverseAntimeridien());
+		verifierCouverture(zone);
+	}
+
+	@Test
+	void zoneAutourDUnPointProcheDeLAntimeridien() {
+		Zone zone = Zone.autour(65.5, 179.99, 20_000);
+		assertTrue(zone.traverseAntimeridien());
+		verifierCouverture(zone);
+		verifierCouverture(Zone.autour(-16.5, -179.99, 20_000));
+	}
+
+	@Test
+	void zoneBordeeParLAntimeridien() {
+		verifierCouverture(new Zone(10, 170, 12, 180));
+		verifierCouverture(new Zone(10, -180, 12, -170));
+	}
+
+	@Test
+	void zonesPolaires() {
+		Zone nord = Zone.autour(89.99, 45, 5_000);
+		Zone sud = Zone.autour(-89.95, -120, 20_000);
+		assertTrue(nord.latMax() == 90 && nord.lngMin() == -180 && nord.lngMax() == 180);
+		assertTrue(sud.latMin() == -90 && sud.lngMin() == -180 && sud.lngMax() == 180);
+		verifierCouverture(nord);
+		verifierCouverture(sud);
+	}
+
+	@Test
+	void zonesAuxBornesDeLaGrille() {
+		verifierCouverture(new Zone(-90, -180, 90, 180));
+		verifierCouverture(new Zone(89, 179, 90, 180));
+		verifierCouverture(new Zone(-90, -180, -89, -179));
+	}
+
+	@Test
+	void zonesAleatoires() {
+		for (int i = 0; i < 200; i++) {
+			double latMin = -90 + random.nextDouble() * 179;
+			double latMax = Math.min(90, latMin + random.nextDouble() * 2);
+			double lngMin = -180 + random.nextDouble() * 360;
+			double lngMax = lngMin + random.nextDouble() * 3;
+			verifierCouverture(new Zone(latMin, lngMin, latMax, lngMax > 180 ? lngMax - 360 : lngMax));
+		}
+	}
+
+	@Test
+	void pointEtZoneHorsBornesRefuses() {
+		assertThrows(IllegalArgumentException.class, () -> Zone.autour(91, 0, 100));
+		assertThrows(IllegalArgumentException.class, () -> Zone.autour(0, 180.5, 100));
+		assertThrows(IllegalArgumentException.class, () -> new Zone(10, 0, 5, 1));
+		assertThrows(IllegalArgumentException.class, () -> new Zone(-91, 0, 5, 1));
+	}
+
+	/**
+	 * Les plages sont triées et disjointes, en nombre borné, et tout point de la zone (coins, bords,
+	 * points tirés au hasard, de part et d'autre de l'antiméridien) a sa clé dans l'une d'elles.
+	 */
+	private void verifierCouverture(Zone zone) {
+		List<Plage> plages = GrilleGeo.plages(zone);
+		assertFalse(plages.isEmpty());
+		assertTrue(plages.size() <= 2 * GrilleGeo.MAX_CELLULES, "Trop de plages : " + plages.size());
+		for (int i = 0; i < plages.size(); i++) {
+			assertTrue(plages.get(i).debut() <= plages.get(i).fin());
+			if (i > 0) {
+				assertTrue(plages.get(i - 1).fin() + 1 < plages.get(i).debut(), "Plages non fusionnées ou non triées");
+			}
+		}
+
+		double largeur = zone.traverseAntimeridien() ? 360 - zone.lngMin() + zone.lngMax() : zone.lngMax() - zone.lngMin();
+		double[] lats = {zone.latMin(), zone.latMax(), (zone.latMin() + zone.latMax()) / 2};
+		double[] fractions = {0, 1, 0.5};
+		for (double lat : lats) {
+			for (double f : fractions) {
+				verifierPoint(plages, zone, lat, longitude(zone, f * largeur));
+			}
+		}
+		for (int i = 0; i < 2_000; i++) {
+			double lat = zone.latMin() + random.nextDouble() * (zone.latMax() - zone.latMin());
+			verifierPoint(plages, zone, lat, longitude(zone, random.nextDouble() * largeur));
+		}
+	}
+
+	private static double longitude(Zone zone, double decalage) {
+		double lng = zone.lngMin() + decalage;
+		return lng > 180 ? lng - 360 : lng;
+	}
+
+	private static void verifierPoint(List<Plage> plages, Zone zone, double lat, double lng) {
+		long cle = GrilleGeo.cle(lat, lng);
+		for (Plage p : plages) {
+			if (cle >= p.debut() && cle <= p.fin()) {
+				return;
+			}
+		}
+		fail("Point (" + lat + ", " + lng + ") de la zone " + zone + " hors des plages (clé " + cle + ")");
+	}
+}
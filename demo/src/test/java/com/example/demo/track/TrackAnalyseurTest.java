@@ -0,0 +1,200 @@
+package com.example.demo.track;
+
+import com.example.demo.track.TrackAnalyseur.Resultat;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class TrackAnalyseurTest {
+
+	/** Mètres par degré de latitude sur la sphère de l'analyseur. */
+	private static final double METRES_PAR_DEGRE = Math.toRadians(TrackAnalyseur.RAYON_TERRE_M);
+
+	@Test
+	void allureReguliere() {
+		Trace trace = new Trace(true, false).courir(3_000, 3.0);
+
+		Resultat r = TrackAnalyseur.analyser(TrackCodec.encode(trace.points));
+
+		assertEquals(3.0, r.distanceKm(), 0.005);
+		assertEquals(1_000, r.dureeMouvementSecondes(), 2);
+		assertEquals(1000 / 3.0 / 60, r.paceMinParKm(), 0.01);
+		assertEquals(10.8, r.vitesseMaxKmh(), 0.05);
+		assertSplits(new int[]{333, 333, 333}, r.splitsSecondes(), 1);
+		assertEquals(trace.points.get(0), r.depart());
+		assertNull(r.denivelePositifM());
+	}
+
+	@Test
+	void pauseSurPlaceNiTempsNiDistance() {
+		Trace trace = new Trace(true, false).courir(1_000, 4.0).attendre(120).courir(1_000, 4.0);
+
+		Resultat r = analyser(trace);
+
+		assertEquals(2.0, r.distanceKm(), 0.005);
+		assertEquals(500, r.dureeMouvementSecondes(), 2);
+		assertEquals(250 / 60.0, r.paceMinParKm(), 0.01);
+		assertSplits(new int[]{250, 250}, r.splitsSecondes(), 1);
+	}
+
+	@Test
+	void interruptionDEnregistrementCompteEnDistanceSeulement() {
+		Trace trace = new Trace(true, false).courir(1_000, 4.0).sauter(200, 120).courir(1_000, 4.0);
+
+		Resultat r = analyser(trace);
+
+		assertEquals(2.2, r.distanceKm(), 0.005);
+		assertEquals(500, r.dureeMouvementSecondes(), 2);
+		// Pace sur la distance parcourue en mouvement uniquement
+		assertEquals(250 / 60.0, r.paceMinParKm(), 0.01);
+	}
+
+	@Test
+	void sautGpsIgnore() {
+		Trace trace = new Trace(true, false).courir(500, 4.0);
+		trace.points.add(new TrackPoint(trace.lat + 0.05, trace.lng, trace.temps + 1_000, null));
+		trace.courir(500, 4.0);
+
+		Resultat r = analyser(trace);
+
+		assertEquals(1.0, r.distanceKm(), 0.005);
+		assertEquals(14.4, r.vitesseMaxKmh(), 0.05);
+	}
+
+	@Test
+	void sansHorodatageDistanceEtDeniveleSeulement() {
+		Trace trace = new Trace(false, true).courir(2_500, 3.0);
+
+		Resultat r = analyser(trace);
+
+		assertEquals(2.5, r.distanceKm(), 0.005);
+		assertNull(r.dureeMouvementSecondes());
+		assertNull(r.paceMinParKm());
+		assertNull(r.vitesseMaxKmh());
+		assertNull(r.splitsSecondes());
+		assertEquals(25.0, r.denivelePositifM(), 1.0);
+	}
+
+	@Test
+	void sansAltitude() {
+		Resultat r = analyser(new Trace(true, false).courir(1_500, 3.0));
+
+		assertNull(r.denivelePositifM());
+		assertNotNull(r.dureeMouvementSecondes());
+		assertEquals(1, r.splitsSecondes().length);
+	}
+
+	@Test
+	void deniveleIgnoreLeBruit() {
+		List<TrackPoint> points = new ArrayList<>();
+		double[] altitudes = {100, 101, 99.5, 100.8, 99.2, 104, 103, 108, 101, 102.5, 106};
+		for (int i = 0; i < altitudes.length; i++) {
+			points.add(new TrackPoint(36.8 + i * 1e-4, 10.18, i * 3_000L, altitudes[i]));
+		}
+
+		Resultat r = TrackAnalyseur.analyser(TrackCodec.encode(points));
+
+		// 100 -> 104 -> 108 (+8), redescente à 101, puis 101 -> 106 (+5) ; les oscillations de 1 m ne comptent pas
+		assertEquals(13.0, r.denivelePositifM(), 0.01);
+	}
+
+	@Test
+	void sortieDeMoinsDUnKilometre() {
+		Resultat r = analyser(new Trace(true, true).courir(400, 2.5));
+
+		assertEquals(0.4, r.distanceKm(), 0.005);
+		assertEquals(160, r.dureeMouvementSecondes(), 2);
+		assertNull(r.paceMinParKm()); // moins de DISTANCE_MIN_PACE_M
+		assertEquals(0, r.splitsSecondes().length);
+		assertEquals(9.0, r.vitesseMaxKmh(), 0.05);
+	}
+
+	@Test
+	void sortieTropCourtePourUneFenetreDeVitesse() {
+		Resultat r = analyser(new Trace(true, false).courir(20, 4.0));
+
+		assertEquals(14.4, r.vitesseMaxKmh(), 0.05);
+	}
+
+	@Test
+	void traceVideOuReduitAUnPoint() {
+		Resultat vide = TrackAnalyseur.analyser(TrackCodec.encode(List.of()));
+		TrackPoint seul = new TrackPoint(36.8, 10.18, 0L, 5.0);
+		Resultat unPoint = TrackAnalyseur.analyser(TrackCodec.encode(List.of(seul)));
+
+		assertEquals(0.0, vide.distanceKm());
+		assertNull(vide.depart());
+		assertNull(vide.dureeMouvementSecondes());
+		assertEquals(0.0, unPoint.distanceKm());
+		assertEquals(seul, unPoint.depart());
+		assertEquals(0L, unPoint.dureeMouvementSecondes());
+		assertNull(unPoint.paceMinParKm());
+	}
+
+	private static Resultat analyser(Trace trace) {
+		TrackAnalyseur analyseur = new TrackAnalyseur();
+		trace.points.forEach(analyseur);
+		return analyseur.resultat();
+	}
+
+	private static void assertSplits(int[] attendu, int[] reel, int tolerance) {
+		assertEquals(attendu.length, reel.length, "Nombre de splits");
+		for (int i = 0; i < attendu.length; i++) {
+			assertEquals(attendu[i], reel[i], tolerance, "Split " + i);
+		}
+	}
+
+	/** Tracé synthétique vers le nord, un point par seconde ; l'altitude monte de 1 m tous les 100 m. */
+	private static final class Trace {
+
+		private final boolean avecTemps;
+		private final boolean avecAltitude;
+		private final List<TrackPoint> points = new ArrayList<>();
+		private double lat = 36.8;
+		private final double lng = 10.18;
+		private long temps = 1_700_000_000_000L;
+		private double distanceM;
+
+		Trace(boolean avecTemps, boolean avecAltitude) {
+			this.avecTemps = avecTemps;
+			this.avecAltitude = avecAltitude;
+			ajouter();
+		}
+
+		Trace courir(double metres, double vitesseMs) {
+			for (double fait = 0; fait < metres - 1e-9; fait += vitesseMs) {
+				avancer(Math.min(vitesseMs, metres - fait), 1_000);
+			}
+			return this;
+		}
+
+		Trace attendre(int secondes) {
+			for (int i = 0; i < secondes; i++) {
+				avancer(0.1, 1_000); // dérive du GPS sur place
+			}
+			return this;
+		}
+
+		/** Un seul point, {@code metres} plus loin après {@code secondes} sans enregistrement. */
+		Trace sauter(double metres, int secondes) {
+			avancer(metres, secondes * 1_000L);
+			return this;
+		}
+
+		private void avancer(double metres, long ms) {
+			lat += metres / METRES_PAR_DEGRE;
+			temps += ms;
+			distanceM += metres;
+			ajouter();
+		}
+
+		private void ajouter() {
+			points.add(new TrackPoint(lat, lng, avecTemps ? temps : null, avecAltitude ? 50 + distanceM / 100 : null));
+		}
+	}
+}
@@ -0,0 +1,229 @@
+package com.example.demo.track;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TrackCodecTest {
+
+	private final Random random = new Random(7);
+
+	@Test
+	void allerRetourAvecTempsEtAltitude() throws IOException {
+		List<TrackPoint> points = parcours(500, true, true);
+		byte[] data = TrackCodec.encode(points);
+
+		assertEquals(points, TrackCodec.decode(data));
+		try (TrackDecoder decoder = new TrackDecoder(new ByteArrayInputStream(data))) {
+			assertTrue(decoder.hasTime());
+			assertTrue(decoder.hasElevation());
+		}
+	}
+
+	@Test
+	void allerRetourSansTempsNiAltitude() throws IOException {
+		List<TrackPoint> points = parcours(500, false, false);
+		byte[] data = TrackCodec.encode(points);
+
+		List<TrackPoint> decodes = TrackCodec.decode(data);
+		assertEquals(points, decodes);
+		assertTrue(decodes.stream().allMatch(p -> p.time() == null && p.ele() == null));
+		try (TrackDecoder decoder = new TrackDecoder(new ByteArrayInputStream(data))) {
+			assertFalse(decoder.hasTime());
+			assertFalse(decoder.hasElevation());
+		}
+	}
+
+	@Test
+	void allerRetourAvecTempsSeulOuAltitudeSeule() {
+		List<TrackPoint> avecTemps = parcours(100, true, false);
+		List<TrackPoint> avecAltitude = parcours(100, false, true);
+
+		assertEquals(avecTemps, TrackCodec.decode(TrackCodec.encode(avecTemps)));
+		assertEquals(avecAltitude, TrackCodec.decode(TrackCodec.encode(avecAltitude)));
+	}
+
+	@Test
+	void pointSansTempsNiAltitudeReprendLesValeursPrecedentes() {
+		List<TrackPoint> points = List.of(
+				new TrackPoint(36.8, 10.18, 1_000L, 12.5),
+				new TrackPoint(36.801, 10.181, null, null),
+				new TrackPoint(36.802, 10.182, 9_000L, 14.0));
+
+		List<TrackPoint> decodes = TrackCodec.decode(TrackCodec.encode(points));
+
+		assertEquals(new TrackPoint(36.801, 10.181, 1_000L, 12.5), decodes.get(1));
+		assertEquals(points.get(2), decodes.get(2));
+	}
+
+	@Test
+	void premierPointSansTempsNiAltitudeLesOmetPourToutLeTrace() {
+		List<TrackPoint> points = List.of(new TrackPoint(36.8, 10.18), new TrackPoint(36.801, 10.181, 5_000L, 20.0));
+
+		List<TrackPoint> decodes = TrackCodec.decode(TrackCodec.encode(points));
+
+		assertEquals(List.of(new TrackPoint(36.8, 10.18), new TrackPoint(36.801, 10.181)), decodes);
+	}
+
+	@Test
+	void traceVide() {
+		byte[] data = TrackCodec.encode(List.of());
+
+		assertEquals(3, data.length);
+		assertTrue(TrackCodec.decode(data).isEmpty());
+		assertEquals("[]", TrackCodec.toJson(data));
+	}
+
+	@Test
+	void coordonneesHorsBornesRefusees() {
+		for (TrackPoint p : List.of(
+				new TrackPoint(90.000001, 0),
+				new TrackPoint(-90.5, 0),
+				new TrackPoint(0, 180.000001),
+				new TrackPoint(0, -181),
+				new TrackPoint(Double.NaN, 0),
+				new TrackPoint(0, Double.POSITIVE_INFINITY))) {
+			assertThrows(IllegalArgumentException.class, () -> TrackCodec.encode(List.of(new TrackPoint(1, 1), p)), p::toString);
+		}
+	}
+
+	@Test
+	void coordonneesAuxBornesEtGrandsEcarts() {
+		List<TrackPoint> points = List.of(
+				new TrackPoint(90, 180, 0L, -430.0),
+				new TrackPoint(-90, -180, Long.MAX_VALUE / 4, 8_848.9),
+				new TrackPoint(0, 0, 0L, 0.0),
+				new TrackPoint(-89.999999, 179.999999, -1L, -0.1));
+
+		assertEquals(points, TrackCodec.decode(TrackCodec.encode(points)));
+	}
+
+	@Test
+	void repriseProduitLesOctetsDUnEncodageEnUnePasse() throws IOException {
+		for (boolean avecTemps : new boolean[]{true, false}) {
+			for (boolean avecAltitude : new boolean[]{true, false}) {
+				List<TrackPoint> points = parcours(200, avecTemps, avecAltitude);
+				byte[] attendu = TrackCodec.encode(points);
+				for (int coupure : new int[]{0, 1, 2, 37, 199, 200}) {
+					assertArrayEquals(attendu, encoderEnDeuxFois(points, coupure),
+							"coupure " + coupure + ", temps " + avecTemps + ", altitude " + avecAltitude);
+				}
+			}
+		}
+	}
+
+	@Test
+	void repriseEnPlusieursLots() throws IOException {
+		List<TrackPoint> points = parcours(300, true, true);
+		ByteArrayOutputStream tout = new ByteArrayOutputStream();
+		TrackEncoder.Etat etat = null;
+		for (int debut = 0; debut < points.size(); debut += 25) {
+			ByteArrayOutputStream lot = new ByteArrayOutputStream();
+			TrackEncoder encoder = TrackEncoder.reprise(lot, etat);
+			for (TrackPoint p : points.subList(debut, Math.min(points.size(), debut + 25))) {
+				encoder.write(p);
+			}
+			encoder.finish();
+			etat = encoder.getEtat();
+			tout.write(lot.toByteArray());
+		}
+
+		assertEquals(300, etat.nbPoints());
+		assertArrayEquals(TrackCodec.encode(points), tout.toByteArray());
+	}
+
+	@Test
+	void etatNulAvantLePremierPoint() {
+		assertNull(new TrackEncoder(new ByteArrayOutputStream()).getEtat());
+	}
+
+	@Test
+	void allerRetourJson() {
+		List<TrackPoint> points = parcours(50, true, true);
+		byte[] data = TrackCodec.encode(points);
+
+		assertArrayEquals(data, TrackCodec.fromJson(TrackCodec.toJson(data)));
+	}
+
+	@Test
+	void jsonAvecNomsAlternatifs() {
+		byte[] data = TrackCodec.fromJson("[{\"latitude\":36.8,\"lon\":10.18,\"timestamp\":1000,\"alt\":5,\"x\":\"?\"}]");
+
+		assertEquals(List.of(new TrackPoint(36.8, 10.18, 1_000L, 5.0)), TrackCodec.decode(data));
+	}
+
+	@Test
+	void jsonInvalideRefuse() {
+		assertNull(TrackCodec.fromJson(" "));
+		assertThrows(IllegalArgumentException.class, () -> TrackCodec.fromJson("{\"lat\":1}"));
+		assertThrows(IllegalArgumentException.class, () -> TrackCodec.fromJson("[{\"lat\":1}]"));
+		assertThrows(IllegalArgumentException.class, () -> TrackCodec.fromJson("[{\"lat\":1,\"lng\":2},3]"));
+		assertThrows(IllegalArgumentException.class, () -> TrackCodec.fromJson("[{\"lat\":1,\"lng\":2}"));
+		assertThrows(IllegalArgumentException.class, () -> TrackCodec.fromJson("[{\"lat\":95,\"lng\":2}]"));
+	}
+
+	@Test
+	void traceTronqueOuInconnuRefuse() {
+		byte[] data = TrackCodec.encode(parcours(10, true, true));
+
+		assertThrows(UncheckedIOException.class, () -> TrackCodec.decode(Arrays.copyOf(data, data.length - 1)));
+		assertThrows(UncheckedIOException.class, () -> TrackCodec.decode(new byte[]{'X', 1, 0}));
+		assertThrows(UncheckedIOException.class, () -> TrackCodec.decode(new byte[]{'T'}));
+	}
+
+	private static byte[] encoderEnDeuxFois(List<TrackPoint> points, int coupure) throws IOException {
+		ByteArrayOutputStream debut = new ByteArrayOutputStream();
+		TrackEncoder premier = new TrackEncoder(debut);
+		for (TrackPoint p : points.subList(0, coupure)) {
+			premier.write(p);
+		}
+		TrackEncoder.Etat etat = premier.getEtat();
+		if (etat == null) {
+			debut.reset(); // aucun point : la reprise écrit l'en-tête elle-même
+		}
+		ByteArrayOutputStream suite = new ByteArrayOutputStream();
+		TrackEncoder second = TrackEncoder.reprise(suite, etat);
+		for (TrackPoint p : points.subList(coupure, points.size())) {
+			second.write(p);
+		}
+		second.finish();
+		assertEquals(points.size(), second.getNbPoints());
+		debut.write(suite.toByteArray());
+		return debut.toByteArray();
+	}
+
+	/** Marche aléatoire déjà arrondie à la précision du format (1e-6 degré, 0,1 m) : l'aller-retour est exact. */
+	private List<TrackPoint> parcours(int n, boolean avecTemps, boolean avecAltitude) {
+		List<TrackPoint> points = new ArrayList<>(n);
+		double lat = 36.8;
+		double lng = 10.18;
+		long temps = 1_700_000_000_000L;
+		double altitude = 20;
+		for (int i = 0; i < n; i++) {
+			lat += (random.nextDouble() - 0.5) * 1e-3;
+			lng += (random.nextDouble() - 0.5) * 1e-3;
+			temps += 1_000 + random.nextInt(2_000);
+			altitude += (random.nextDouble() - 0.5) * 4;
+			points.add(new TrackPoint(
+					Math.round(lat * 1e6) / 1e6,
+					Math.round(lng * 1e6) / 1e6,
+					avecTemps ? temps : null,
+					avecAltitude ? Math.round(altitude * 10) / 10.0 : null));
+		}
+		return points;
+	}
+}
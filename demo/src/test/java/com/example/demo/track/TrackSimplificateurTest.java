@@ -0,0 +1,146 @@
+package com.example.demo.track;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TrackSimplificateurTest {
+
+	private static final double METRES_PAR_DEGRE = Math.toRadians(TrackAnalyseur.RAYON_TERRE_M);
+
+	private final Random random = new Random(3);
+
+	@Test
+	void tracesDeZeroUnEtDeuxPoints() {
+		TrackPoint a = new TrackPoint(36.8, 10.18, 1_000L, 12.0);
+		TrackPoint b = new TrackPoint(36.81, 10.19, 2_000L, 15.0);
+
+		assertTrue(TrackSimplificateur.simplifier(List.of(), 15).isEmpty());
+		assertEquals(List.of(new TrackPoint(36.8, 10.18)), TrackSimplificateur.simplifier(List.of(a), 15));
+		assertEquals(List.of(new TrackPoint(36.8, 10.18), new TrackPoint(36.81, 10.19)),
+				TrackSimplificateur.simplifier(List.of(a, b), 15));
+	}
+
+	@Test
+	void ligneDroiteReduiteASesExtremites() {
+		List<TrackPoint> points = new ArrayList<>();
+		for (int i = 0; i <= 100; i++) {
+			points.add(new TrackPoint(36.8 + i * 1e-4, 10.18 + i * 1e-4));
+		}
+
+		assertEquals(List.of(points.get(0), points.get(100)), TrackSimplificateur.simplifier(points, 1));
+	}
+
+	@Test
+	void extremitesConserveesEtEcartBorneParLaTolerance() {
+		for (double tolerance : new double[]{1, NiveauTrace.MOYEN.getToleranceM(), NiveauTrace.APERCU.getToleranceM(), 100}) {
+			for (int essai = 0; essai < 20; essai++) {
+				List<TrackPoint> points = parcours(50 + random.nextInt(2_000));
+				List<TrackPoint> simplifie = TrackSimplificateur.simplifier(points, tolerance);
+
+				assertEquals(coordonnees(points.get(0)), simplifie.get(0));
+				assertEquals(coordonnees(points.get(points.size() - 1)), simplifie.get(simplifie.size() - 1));
+				assertTrue(simplifie.size() < points.size());
+				verifierEcart(points, simplifie, tolerance);
+			}
+		}
+	}
+
+	@Test
+	void boucleFermeeConserveSonTrace() {
+		List<TrackPoint> points = new ArrayList<>();
+		for (int i = 0; i <= 360; i++) {
+			double angle = Math.toRadians(i);
+			points.add(new TrackPoint(36.8 + 0.01 * Math.sin(angle), 10.18 + 0.01 * Math.cos(angle), (long) i, null));
+		}
+
+		List<TrackPoint> simplifie = TrackSimplificateur.simplifier(points, 4);
+
+		assertTrue(simplifie.size() > 4 && simplifie.size() < points.size());
+		verifierEcart(points, simplifie, 4);
+	}
+
+	@Test
+	void toleranceNulleGardeLesPointsNonAlignes() {
+		List<TrackPoint> points = parcours(200);
+
+		assertEquals(points.stream().map(TrackSimplificateurTest::coordonnees).toList(),
+				TrackSimplificateur.simplifier(points, 0));
+	}
+
+	@Test
+	void niveauxDuFormatCompact() {
+		List<TrackPoint> points = parcours(1_000);
+		byte[] data = TrackCodec.encode(points);
+
+		assertNull(TrackSimplificateur.simplifier(null, NiveauTrace.APERCU));
+		assertSame(data, TrackSimplificateur.simplifier(data, NiveauTrace.COMPLET));
+		List<TrackPoint> apercu = TrackCodec.decode(TrackSimplificateur.simplifier(data, NiveauTrace.APERCU));
+		List<TrackPoint> moyen = TrackCodec.decode(TrackSimplificateur.simplifier(data, NiveauTrace.MOYEN));
+		assertTrue(apercu.size() < moyen.size() && moyen.size() < points.size());
+		assertTrue(apercu.stream().allMatch(p -> p.time() == null && p.ele() == null));
+		verifierEcart(points, apercu, NiveauTrace.APERCU.getToleranceM());
+	}
+
+	/**
+	 * Les points conservés sont une sous-suite du tracé, et chaque point retiré est à moins de la tolérance
+	 * du segment qui le remplace (mesure dans la projection locale du simplificateur).
+	 */
+	private static void verifierEcart(List<TrackPoint> points, List<TrackPoint> simplifie, double tolerance) {
+		double cosLat = Math.cos(Math.toRadians(points.get(0).lat()));
+		int j = 0;
+		int indexPrecedent = -1;
+		for (int i = 0; i < points.size(); i++) {
+			if (j < simplifie.size() && coordonnees(points.get(i)).equals(simplifie.get(j))) {
+				indexPrecedent = i;
+				j++;
+				continue;
+			}
+			assertTrue(indexPrecedent >= 0 && j < simplifie.size(), "Point " + i + " hors de la suite simplifiée");
+			double ecart = distance(points.get(i), simplifie.get(j - 1), simplifie.get(j), cosLat);
+			assertTrue(ecart <= tolerance + 1e-6, "Point " + i + " à " + ecart + " m du tracé simplifié");
+		}
+		assertEquals(simplifie.size(), j, "Points simplifiés absents du tracé d'origine ou dans le désordre");
+	}
+
+	private static double distance(TrackPoint p, TrackPoint a, TrackPoint b, double cosLat) {
+		double px = p.lng() * METRES_PAR_DEGRE * cosLat;
+		double py = p.lat() * METRES_PAR_DEGRE;
+		double ax = a.lng() * METRES_PAR_DEGRE * cosLat;
+		double ay = a.lat() * METRES_PAR_DEGRE;
+		double dx = b.lng() * METRES_PAR_DEGRE * cosLat - ax;
+		double dy = b.lat() * METRES_PAR_DEGRE - ay;
+		double longueur2 = dx * dx + dy * dy;
+		double t = longueur2 > 0 ? Math.max(0, Math.min(1, ((px - ax) * dx + (py - ay) * dy) / longueur2)) : 0;
+		return Math.hypot(px - ax - t * dx, py - ay - t * dy);
+	}
+
+	private static TrackPoint coordonnees(TrackPoint p) {
+		return new TrackPoint(p.lat(), p.lng());
+	}
+
+	/** Marche aléatoire d'un coureur : cap qui dérive, pas de 2 à 5 m, bruit GPS de quelques mètres. */
+	private List<TrackPoint> parcours(int n) {
+		List<TrackPoint> points = new ArrayList<>(n);
+		double x = 0;
+		double y = 0;
+		double cap = random.nextDouble() * 2 * Math.PI;
+		for (int i = 0; i < n; i++) {
+			cap += (random.nextDouble() - 0.5) * 0.3;
+			double pas = 2 + random.nextDouble() * 3;
+			x += pas * Math.cos(cap);
+			y += pas * Math.sin(cap);
+			double lat = 36.8 + (y + random.nextGaussian() * 2) / METRES_PAR_DEGRE;
+			double lng = 10.18 + (x + random.nextGaussian() * 2) / (METRES_PAR_DEGRE * Math.cos(Math.toRadians(36.8)));
+			points.add(new TrackPoint(Math.round(lat * 1e6) / 1e6, Math.round(lng * 1e6) / 1e6, i * 1_000L, 10.0));
+		}
+		return points;
+	}
+}
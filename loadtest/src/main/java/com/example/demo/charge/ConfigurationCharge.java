@@ -0,0 +1,19 @@
+package com.example.demo.charge;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Beans propres au test de charge, ajoutés à l'application lancée par {@link LoadTestHarness}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.push.sender", havingValue = "simule")
+public class ConfigurationCharge {
+
+    @Bean
+    public PushSenderSimule pushSenderSimule(@Value("${app.charge.latence-push-ms:50}") long latenceMs) {
+        return new PushSenderSimule(latenceMs);
+    }
+}
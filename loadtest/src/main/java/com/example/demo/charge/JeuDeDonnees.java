@@ -0,0 +1,252 @@
+package com.example.demo.charge;
+
+import com.example.demo.entity.Evenement;
+import com.example.demo.entity.GroupeRunning;
+import com.example.demo.entity.Role;
+import com.example.demo.entity.User;
+import com.example.demo.repository.EvenementRepository;
+import com.example.demo.repository.GroupeRunningRepository;
+import com.example.demo.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Peuplement de la base avant le test de charge : adhérents, groupes, événements, participations,
+ * sessions de course et appareils push. Le volume (sessions, participations, appareils) passe par
+ * des insertions JDBC par lots ; les entités avec relations passent par les dépôts JPA.
+ */
+@Slf4j
+public class JeuDeDonnees {
+
+    /** Mot de passe commun à tous les comptes générés (un seul hash BCrypt pour tout le peuplement). */
+    public static final String MOT_DE_PASSE = "charge";
+    public static final String NOM_ADMIN = "charge-admin";
+
+    private static final int TAILLE_LOT = 1000;
+
+    /** Adhérent généré et ses groupes, pour les utilisateurs virtuels. */
+    public record Adherent(UUID id, String nom, List<Long> groupeIds) {
+    }
+
+    private final ParametresCharge parametres;
+    private final Random random;
+    private final UserRepository userRepository;
+    private final GroupeRunningRepository groupeRunningRepository;
+    private final EvenementRepository evenementRepository;
+    private final PasswordEncoder passwordEncoder;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private final List<Adherent> adherents = new ArrayList<>();
+    private final List<Long> groupeIds = new ArrayList<>();
+
+    public JeuDeDonnees(ParametresCharge parametres, ConfigurableApplicationContext context) {
+        this.parametres = parametres;
+        this.random = new Random(parametres.graine());
+        this.userRepository = context.getBean(UserRepository.class);
+        this.groupeRunningRepository = context.getBean(GroupeRunningRepository.class);
+        this.evenementRepository = context.getBean(EvenementRepository.class);
+        this.passwordEncoder = context.getBean(PasswordEncoder.class);
+        this.jdbcTemplate = context.getBean(JdbcTemplate.class);
+        this.transactionTemplate = context.getBean(TransactionTemplate.class);
+    }
+
+    public List<Adherent> getAdherents() {
+        return adherents;
+    }
+
+    public List<Long> getGroupeIds() {
+        return groupeIds;
+    }
+
+    public void peupler() {
+        long debut = System.currentTimeMillis();
+        String hash = passwordEncoder.encode(MOT_DE_PASSE);
+        List<User> users = creerUtilisateurs(hash);
+        List<List<User>> membresParGroupe = creerGroupes(users);
+        List<Long> evenementIds = creerEvenements();
+        long nbParticipations = creerParticipations(membresParGroupe, evenementIds);
+        long nbSessions = creerSessions();
+        long nbAppareils = creerAppareils();
+        log.info("Charge: {} adhérent(s), {} groupe(s), {} événement(s), {} participation(s), {} session(s), "
+                        + "{} appareil(s) créés en {} ms", adherents.size(), groupeIds.size(), evenementIds.size(),
+                nbParticipations, nbSessions, nbAppareils, System.currentTimeMillis() - debut);
+    }
+
+    private List<User> creerUtilisateurs(String hash) {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < parametres.adherents(); i++) {
+            users.add(User.builder()
+                    .nom("charge-" + i)
+                    .prenom("Adherent " + i)
+                    .email("charge-" + i + "@charge.local")
+                    .cin(10_000_000 + i)
+                    .password(hash)
+                    .role(Role.ADHERENT)
+                    .passwordChangeRequired(false)
+                    .build());
+        }
+        List<User> sauves = new ArrayList<>();
+        for (int debut = 0; debut < users.size(); debut += TAILLE_LOT) {
+            List<User> lot = users.subList(debut, Math.min(debut + TAILLE_LOT, users.size()));
+            sauves.addAll(transactionTemplate.execute(status -> userRepository.saveAll(lot)));
+        }
+        userRepository.save(User.builder()
+                .nom(NOM_ADMIN)
+                .prenom("Admin")
+                .email(NOM_ADMIN + "@charge.local")
+                .cin(9_999_999)
+                .password(hash)
+                .role(Role.ADMIN_PRINCIPAL)
+                .passwordChangeRequired(false)
+                .build());
+        return sauves;
+    }
+
+    /** Chaque adhérent rejoint un groupe, et un sur quatre un second groupe. */
+    private List<List<User>> creerGroupes(List<User> users) {
+        List<List<User>> membresParGroupe = new ArrayList<>();
+        List<List<Long>> groupesParAdherent = new ArrayList<>();
+        for (int g = 0; g < parametres.groupes(); g++) {
+            membresParGroupe.add(new ArrayList<>());
+        }
+        for (User user : users) {
+            List<Long> groupes = new ArrayList<>();
+            int premier = random.nextInt(parametres.groupes());
+            membresParGroupe.get(premier).add(user);
+            groupes.add((long) premier);
+            if (parametres.groupes() > 1 && random.nextInt(4) == 0) {
+                int second = (premier + 1 + random.nextInt(parametres.groupes() - 1)) % parametres.groupes();
+                membresParGroupe.get(second).add(user);
+                groupes.add((long) second);
+            }
+            groupesParAdherent.add(groupes);
+        }
+        String[] niveaux = {"debutant", "intermediaire", "confirme"};
+        for (int g = 0; g < parametres.groupes(); g++) {
+            List<User> membres = membresParGroupe.get(g);
+            GroupeRunning groupe = transactionTemplate.execute(status -> groupeRunningRepository.save(GroupeRunning.builder()
+                    .nom("Groupe charge " + groupeIds.size())
+                    .niveau(niveaux[groupeIds.size() % niveaux.length])
+                    .membres(new ArrayList<>(membres))
+                    .build()));
+            groupeIds.add(groupe.getId());
+        }
+        for (int i = 0; i < users.size(); i++) {
+            List<Long> ids = groupesParAdherent.get(i).stream().map(index -> groupeIds.get(index.intValue())).toList();
+            adherents.add(new Adherent(users.get(i).getId(), users.get(i).getNom(), ids));
+        }
+        return membresParGroupe;
+    }
+
+    /** Événements répartis sur les 30 derniers et les 30 prochains jours. */
+    private List<Long> creerEvenements() {
+        Instant maintenant = Instant.now();
+        List<GroupeRunning> groupes = groupeRunningRepository.findAllById(groupeIds);
+        List<Evenement> evenements = new ArrayList<>();
+        for (int i = 0; i < parametres.evenements(); i++) {
+            evenements.add(Evenement.builder()
+                    .titre("Sortie charge " + i)
+                    .description("Événement généré pour le test de charge")
+                    .date(maintenant.plus(Duration.ofMinutes(random.nextInt(60 * 24 * 60) - 60 * 24 * 30)))
+                    .type(random.nextBoolean() ? "course" : "entrainement")
+                    .lieu("Lac de Tunis")
+                    .latitude(36.83 + random.nextDouble() * 0.05)
+                    .longitude(10.22 + random.nextDouble() * 0.05)
+                    .groupe(groupes.get(i % groupes.size()))
+                    .build());
+        }
+        List<Long> ids = new ArrayList<>();
+        transactionTemplate.executeWithoutResult(status ->
+                evenementRepository.saveAll(evenements).forEach(e -> ids.add(e.getId())));
+        return ids;
+    }
+
+    private long creerParticipations(List<List<User>> membresParGroupe, List<Long> evenementIds) {
+        if (evenementIds.isEmpty()) {
+            return 0;
+        }
+        // Événements de chaque groupe (même répartition que creerEvenements)
+        List<List<Long>> evenementsParGroupe = new ArrayList<>();
+        for (int g = 0; g < groupeIds.size(); g++) {
+            evenementsParGroupe.add(new ArrayList<>());
+        }
+        for (int i = 0; i < evenementIds.size(); i++) {
+            evenementsParGroupe.get(i % groupeIds.size()).add(evenementIds.get(i));
+        }
+        List<Object[]> lignes = new ArrayList<>();
+        Instant maintenant = Instant.now();
+        for (int g = 0; g < membresParGroupe.size(); g++) {
+            List<Long> candidats = evenementsParGroupe.get(g);
+            if (candidats.isEmpty()) {
+                continue;
+            }
+            for (User membre : membresParGroupe.get(g)) {
+                for (int p = 0; p < parametres.participationsParAdherent(); p++) {
+                    lignes.add(new Object[]{Timestamp.from(maintenant), membre.getId(),
+                            candidats.get(random.nextInt(candidats.size()))});
+                }
+            }
+        }
+        return inserer("INSERT INTO participations (statut, date_inscription, adherent_id, evenement_id) "
+                + "VALUES ('INSCRIT', ?, ?, ?) ON CONFLICT DO NOTHING", lignes);
+    }
+
+    /** Sessions des 180 derniers jours : 3 à 21 km, pace entre 4 et 8 min/km. */
+    private long creerSessions() {
+        Instant maintenant = Instant.now();
+        List<Object[]> lignes = new ArrayList<>();
+        long total = 0;
+        for (Adherent adherent : adherents) {
+            for (int s = 0; s < parametres.sessionsParAdherent(); s++) {
+                double distanceKm = 3 + random.nextDouble() * 18;
+                long durationSeconds = Math.round(distanceKm * (240 + random.nextDouble() * 240));
+                Instant startedAt = maintenant.minus(Duration.ofMinutes(random.nextInt(60 * 24 * 180)));
+                lignes.add(new Object[]{adherent.id(), distanceKm, durationSeconds, Timestamp.from(startedAt)});
+            }
+            if (lignes.size() >= TAILLE_LOT * 10) {
+                total += insererSessions(lignes);
+                lignes.clear();
+            }
+        }
+        return total + insererSessions(lignes);
+    }
+
+    private long insererSessions(List<Object[]> lignes) {
+        return inserer("INSERT INTO sessions_course (adherent_id, distance_km, duration_seconds, started_at) "
+                + "VALUES (?, ?, ?, ?)", lignes);
+    }
+
+    private long creerAppareils() {
+        Timestamp maintenant = Timestamp.from(Instant.now());
+        List<Object[]> lignes = new ArrayList<>();
+        for (Adherent adherent : adherents) {
+            if (random.nextDouble() < parametres.partAvecAppareil()) {
+                lignes.add(new Object[]{"charge-token-" + adherent.id(), adherent.id(), maintenant, maintenant});
+            }
+        }
+        return inserer("INSERT INTO appareils_push (token, utilisateur_id, date_enregistrement, derniere_activite) "
+                + "VALUES (?, ?, ?, ?)", lignes);
+    }
+
+    private long inserer(String sql, List<Object[]> lignes) {
+        long total = 0;
+        for (int debut = 0; debut < lignes.size(); debut += TAILLE_LOT) {
+            for (int n : jdbcTemplate.batchUpdate(sql, lignes.subList(debut, Math.min(debut + TAILLE_LOT, lignes.size())))) {
+                total += Math.max(n, 0);
+            }
+        }
+        return total;
+    }
+}
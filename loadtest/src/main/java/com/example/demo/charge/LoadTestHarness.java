@@ -0,0 +1,98 @@
+package com.example.demo.charge;
+
+import com.example.demo.BackendApplication;
+import com.example.demo.service.MatchingIndex;
+import com.example.demo.service.StatsAdherentService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Test de charge du backend, sans service extérieur : démarre un PostgreSQL embarqué (ou utilise --jdbc-url),
+ * lance l'application sur un port libre avec un expéditeur push simulé, peuple la base
+ * ({@link JeuDeDonnees}) puis rejoue une charge mixte ({@link ScenarioMixte}) et affiche, par endpoint,
+ * débit, erreurs et latences p50 / p95 / p99 / max, ainsi que le nombre de requêtes SQL par route.
+ * <p>
+ * Exemple : {@code java -jar target/loadtest.jar --adherents=5000 --utilisateurs-virtuels=64 --duree=120}
+ */
+@Slf4j
+public class LoadTestHarness {
+
+    public static void main(String[] args) throws Exception {
+        ParametresCharge parametres = ParametresCharge.lire(args);
+        EmbeddedPostgres postgres = parametres.jdbcUrl() == null ? EmbeddedPostgres.builder().start() : null;
+        try {
+            String jdbcUrl = postgres != null ? postgres.getJdbcUrl("postgres", "postgres") : parametres.jdbcUrl();
+            try (ConfigurableApplicationContext context = demarrer(parametres, jdbcUrl)) {
+                JeuDeDonnees donnees = new JeuDeDonnees(parametres, context);
+                donnees.peupler();
+                // Agrégats et index mémoire construits au démarrage, sur une base encore vide
+                context.getBean(StatsAdherentService.class).reconstruireTout();
+                context.getBean(MatchingIndex.class).chargerTout();
+
+                String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+                log.info("Charge: {} utilisateur(s) virtuel(s), échauffement {} s, mesure {} s sur {}",
+                        parametres.utilisateursVirtuels(), parametres.echauffementSecondes(),
+                        parametres.dureeSecondes(), baseUrl);
+                Mesures mesures = new ScenarioMixte(baseUrl, parametres, donnees).executer();
+
+                PushSenderSimule push = context.getBean(PushSenderSimule.class);
+                System.out.println();
+                System.out.print(mesures.rapport(parametres.dureeSecondes()));
+                System.out.printf("Push simulés (échauffement compris) : %d lot(s), %d token(s)%n",
+                        push.getNbLots(), push.getNbTokens());
+                System.out.println();
+                System.out.print(rapportSql(context.getBean(MeterRegistry.class)));
+            }
+        } finally {
+            if (postgres != null) {
+                postgres.close();
+            }
+        }
+    }
+
+    /** Requêtes SQL par route (échauffement compris), lues dans http.server.requests.sql. */
+    private static String rapportSql(MeterRegistry registry) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT, "%-45s %9s %12s %8s%n", "Route (SQL par requête)", "Requêtes", "Moyenne", "Max"));
+        registry.find("http.server.requests.sql").summaries().stream()
+                .sorted(Comparator.comparing(s -> s.getId().getTag("uri") + " " + s.getId().getTag("method")))
+                .forEach(s -> sb.append(String.format(Locale.ROOT, "%-45s %9d %12.2f %8.0f%n",
+                        s.getId().getTag("method") + " " + s.getId().getTag("uri"), s.count(), s.mean(), s.max())));
+        return sb.toString();
+    }
+
+    private static ConfigurableApplicationContext demarrer(ParametresCharge parametres, String jdbcUrl) {
+        Map<String, Object> proprietes = new HashMap<>();
+        proprietes.put("server.port", 0);
+        proprietes.put("management.server.port", 0);
+        proprietes.put("spring.datasource.url", jdbcUrl);
+        proprietes.put("spring.datasource.username", parametres.jdbcUtilisateur());
+        proprietes.put("spring.datasource.password", parametres.jdbcMotDePasse());
+        proprietes.put("spring.datasource.hikari.maximum-pool-size", 20);
+        proprietes.put("spring.jpa.show-sql", false);
+        proprietes.put("spring.jpa.properties.hibernate.jdbc.batch_size", 500);
+        proprietes.put("spring.jpa.properties.hibernate.order_inserts", true);
+        proprietes.put("app.push.sender", "simule");
+        proprietes.put("app.charge.latence-push-ms", parametres.latencePushMs());
+        // Tâches planifiées hors charge mesurée
+        proprietes.put("app.rappels.activer", false);
+        proprietes.put("app.rappels.recap-quotidien", false);
+        proprietes.put("app.rappels.recap-hebdomadaire", false);
+        proprietes.put("app.tracks.migration-activer", false);
+        proprietes.put("logging.level.root", "WARN");
+        proprietes.put("logging.level.com.example.demo.charge", "INFO");
+        // Passées comme arguments de ligne de commande pour primer sur application.properties
+        String[] arguments = proprietes.entrySet().stream()
+                .map(e -> "--" + e.getKey() + "=" + e.getValue())
+                .toArray(String[]::new);
+        return new SpringApplicationBuilder(BackendApplication.class, ConfigurationCharge.class).run(arguments);
+    }
+}
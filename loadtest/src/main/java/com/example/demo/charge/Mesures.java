@@ -0,0 +1,82 @@
+package com.example.demo.charge;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Latences et erreurs par opération. Chaque utilisateur virtuel a ses propres mesures (pas de contention) ;
+ * elles sont fusionnées en fin de test pour le rapport.
+ */
+public class Mesures {
+
+    private static final class Serie {
+        private long[] latencesNanos = new long[1024];
+        private int nb;
+        private long erreurs;
+
+        void ajouter(long latenceNanos) {
+            if (nb == latencesNanos.length) {
+                latencesNanos = Arrays.copyOf(latencesNanos, nb * 2);
+            }
+            latencesNanos[nb++] = latenceNanos;
+        }
+
+        void fusionner(Serie autre) {
+            for (int i = 0; i < autre.nb; i++) {
+                ajouter(autre.latencesNanos[i]);
+            }
+            erreurs += autre.erreurs;
+        }
+    }
+
+    private final Map<ScenarioMixte.Operation, Serie> series = new EnumMap<>(ScenarioMixte.Operation.class);
+
+    public void enregistrer(ScenarioMixte.Operation operation, long latenceNanos, boolean succes) {
+        Serie serie = series.computeIfAbsent(operation, o -> new Serie());
+        serie.ajouter(latenceNanos);
+        if (!succes) {
+            serie.erreurs++;
+        }
+    }
+
+    public void fusionner(Mesures autres) {
+        autres.series.forEach((operation, serie) -> series.computeIfAbsent(operation, o -> new Serie()).fusionner(serie));
+    }
+
+    /** Tableau par opération : requêtes, erreurs, débit et latences (ms) p50 / p95 / p99 / max. */
+    public String rapport(double dureeSecondes) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT, "%-36s %9s %8s %9s %9s %9s %9s %9s%n",
+                "Opération", "Requêtes", "Erreurs", "Req/s", "p50 ms", "p95 ms", "p99 ms", "max ms"));
+        long totalRequetes = 0;
+        long totalErreurs = 0;
+        for (Map.Entry<ScenarioMixte.Operation, Serie> entree : series.entrySet()) {
+            Serie serie = entree.getValue();
+            long[] triees = Arrays.copyOf(serie.latencesNanos, serie.nb);
+            Arrays.sort(triees);
+            sb.append(String.format(Locale.ROOT, "%-36s %9d %8d %9.1f %9.2f %9.2f %9.2f %9.2f%n",
+                    entree.getKey().getLibelle(), serie.nb, serie.erreurs, serie.nb / dureeSecondes,
+                    millis(percentile(triees, 0.50)), millis(percentile(triees, 0.95)),
+                    millis(percentile(triees, 0.99)), millis(triees.length > 0 ? triees[triees.length - 1] : 0)));
+            totalRequetes += serie.nb;
+            totalErreurs += serie.erreurs;
+        }
+        sb.append(String.format(Locale.ROOT, "%-36s %9d %8d %9.1f%n", "Total", totalRequetes, totalErreurs,
+                totalRequetes / dureeSecondes));
+        return sb.toString();
+    }
+
+    private static long percentile(long[] triees, double p) {
+        if (triees.length == 0) {
+            return 0;
+        }
+        int rang = (int) Math.ceil(p * triees.length) - 1;
+        return triees[Math.max(0, Math.min(rang, triees.length - 1))];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.demo.charge;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Paramètres du test de charge, lus sur la ligne de commande sous la forme --cle=valeur.
+ * Sans --jdbc-url, un PostgreSQL embarqué (base vide) est démarré pour la durée du test.
+ */
+public record ParametresCharge(
+        int adherents,
+        int groupes,
+        int evenements,
+        int sessionsParAdherent,
+        int participationsParAdherent,
+        double partAvecAppareil,
+        int utilisateursVirtuels,
+        int echauffementSecondes,
+        int dureeSecondes,
+        long latencePushMs,
+        long graine,
+        String jdbcUrl,
+        String jdbcUtilisateur,
+        String jdbcMotDePasse) {
+
+    public static ParametresCharge lire(String[] args) {
+        Map<String, String> valeurs = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Argument attendu sous la forme --cle=valeur : " + arg);
+            }
+            int egal = arg.indexOf('=');
+            valeurs.put(arg.substring(2, egal), arg.substring(egal + 1));
+        }
+        ParametresCharge parametres = new ParametresCharge(
+                entier(valeurs, "adherents", 2000),
+                entier(valeurs, "groupes", 20),
+                entier(valeurs, "evenements", 400),
+                entier(valeurs, "sessions-par-adherent", 30),
+                entier(valeurs, "participations-par-adherent", 8),
+                Double.parseDouble(valeurs.getOrDefault("part-avec-appareil", "0.5")),
+                entier(valeurs, "utilisateurs-virtuels", 32),
+                entier(valeurs, "echauffement", 10),
+                entier(valeurs, "duree", 60),
+                Long.parseLong(valeurs.getOrDefault("latence-push-ms", "50")),
+                Long.parseLong(valeurs.getOrDefault("graine", "42")),
+                valeurs.get("jdbc-url"),
+                valeurs.getOrDefault("jdbc-utilisateur", "postgres"),
+                valeurs.getOrDefault("jdbc-mot-de-passe", "postgres"));
+        if (parametres.adherents() < 1 || parametres.groupes() < 1 || parametres.utilisateursVirtuels() < 1) {
+            throw new IllegalArgumentException("adherents, groupes et utilisateurs-virtuels doivent être >= 1");
+        }
+        return parametres;
+    }
+
+    private static int entier(Map<String, String> valeurs, String cle, int defaut) {
+        String valeur = valeurs.get(cle);
+        return valeur != null ? Integer.parseInt(valeur) : defaut;
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.demo.charge;
+
+import com.example.demo.service.PushSender;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Expéditeur push du test de charge (app.push.sender=simule) : remplace Firebase par une attente
+ * de latence fixe par lot, et compte les envois pour le rapport final.
+ */
+public class PushSenderSimule implements PushSender {
+
+    private final long latenceMs;
+    private final AtomicLong nbLots = new AtomicLong();
+    private final AtomicLong nbTokens = new AtomicLong();
+
+    public PushSenderSimule(long latenceMs) {
+        this.latenceMs = latenceMs;
+    }
+
+    @Override
+    public boolean isDisponible() {
+        return true;
+    }
+
+    @Override
+    public ResultatEnvoi envoyer(Collection<String> tokens, String titre, String corps) {
+        if (latenceMs > 0) {
+            try {
+                Thread.sleep(latenceMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return ResultatEnvoi.echecTotal(tokens, "Interrompu");
+            }
+        }
+        nbLots.incrementAndGet();
+        nbTokens.addAndGet(tokens.size());
+        return ResultatEnvoi.succesTotal(tokens);
+    }
+
+    public long getNbLots() {
+        return nbLots.get();
+    }
+
+    public long getNbTokens() {
+        return nbTokens.get();
+    }
+}
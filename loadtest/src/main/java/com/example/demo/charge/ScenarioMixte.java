@@ -0,0 +1,232 @@
+package com.example.demo.charge;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Charge mixte rejouée par des utilisateurs virtuels, chacun connecté avec un adhérent généré :
+ * consultation (sessions, stats, matching, événements), enregistrement de sessions avec leur tracé GPS,
+ * connexions et création d'événements par l'admin (qui déclenche les notifications push du groupe).
+ */
+public class ScenarioMixte {
+
+    /** Opérations de la charge et leur poids relatif dans le tirage. */
+    public enum Operation {
+        CONNEXION("POST /api/auth/login", 5),
+        MES_SESSIONS("GET /api/sessions-course/me", 25),
+        MES_STATS("GET /api/stats-adherent/me", 20),
+        PARTENAIRES("GET /api/matching/partenaires", 15),
+        CREER_SESSION("POST /api/sessions-course", 20),
+        EVENEMENTS_GROUPE("GET /api/evenements/groupe/{id}", 10),
+        CREER_EVENEMENT("POST /api/evenements (admin)", 5);
+
+        private final String libelle;
+        private final int poids;
+
+        Operation(String libelle, int poids) {
+            this.libelle = libelle;
+            this.poids = poids;
+        }
+
+        public String getLibelle() {
+            return libelle;
+        }
+    }
+
+    private static final Pattern TOKEN = Pattern.compile("\"token\"\\s*:\\s*\"([^\"]+)\"");
+    private static final double METRES_PAR_DEGRE = 111_195;
+    private static final int POIDS_TOTAL = Arrays.stream(Operation.values()).mapToInt(o -> o.poids).sum();
+
+    private final String baseUrl;
+    private final ParametresCharge parametres;
+    private final JeuDeDonnees donnees;
+    private final HttpClient client;
+
+    public ScenarioMixte(String baseUrl, ParametresCharge parametres, JeuDeDonnees donnees) {
+        this.baseUrl = baseUrl;
+        this.parametres = parametres;
+        this.donnees = donnees;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+    }
+
+    /** Lance les utilisateurs virtuels (échauffement puis mesure) et renvoie les mesures fusionnées. */
+    public Mesures executer() throws Exception {
+        String tokenAdmin = connecter(JeuDeDonnees.NOM_ADMIN);
+        long debutMesure = System.nanoTime() + Duration.ofSeconds(parametres.echauffementSecondes()).toNanos();
+        long fin = debutMesure + Duration.ofSeconds(parametres.dureeSecondes()).toNanos();
+
+        ExecutorService executor = Executors.newFixedThreadPool(parametres.utilisateursVirtuels());
+        try {
+            List<Future<Mesures>> resultats = new ArrayList<>();
+            for (int i = 0; i < parametres.utilisateursVirtuels(); i++) {
+                JeuDeDonnees.Adherent adherent = donnees.getAdherents().get(i % donnees.getAdherents().size());
+                Random random = new Random(parametres.graine() + i);
+                resultats.add(executor.submit(() -> boucle(adherent, tokenAdmin, random, debutMesure, fin)));
+            }
+            Mesures mesures = new Mesures();
+            for (Future<Mesures> resultat : resultats) {
+                mesures.fusionner(resultat.get());
+            }
+            return mesures;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Mesures boucle(JeuDeDonnees.Adherent adherent, String tokenAdmin, Random random,
+                           long debutMesure, long fin) throws IOException, InterruptedException {
+        Mesures mesures = new Mesures();
+        String token = connecter(adherent.nom());
+        while (System.nanoTime() < fin) {
+            Operation operation = tirer(random);
+            HttpRequest requete = requete(operation, adherent, token, tokenAdmin, random);
+            long debut = System.nanoTime();
+            boolean succes;
+            String corps = null;
+            try {
+                HttpResponse<String> reponse = client.send(requete, HttpResponse.BodyHandlers.ofString());
+                succes = reponse.statusCode() < 400;
+                corps = reponse.body();
+            } catch (IOException e) {
+                succes = false;
+            }
+            long latence = System.nanoTime() - debut;
+            if (debut >= debutMesure) {
+                mesures.enregistrer(operation, latence, succes);
+            }
+            if (operation == Operation.CONNEXION && succes) {
+                token = extraireToken(corps);
+            }
+        }
+        return mesures;
+    }
+
+    private static Operation tirer(Random random) {
+        int tirage = random.nextInt(POIDS_TOTAL);
+        for (Operation operation : Operation.values()) {
+            tirage -= operation.poids;
+            if (tirage < 0) {
+                return operation;
+            }
+        }
+        return Operation.MES_SESSIONS;
+    }
+
+    private HttpRequest requete(Operation operation, JeuDeDonnees.Adherent adherent, String token,
+                                String tokenAdmin, Random random) {
+        Long groupeId = adherent.groupeIds().get(random.nextInt(adherent.groupeIds().size()));
+        return switch (operation) {
+            case CONNEXION -> post("/api/auth/login", null, corpsConnexion(adherent.nom()));
+            case MES_SESSIONS -> get("/api/sessions-course/me?page=0&size=20", token);
+            case MES_STATS -> get("/api/stats-adherent/me", token);
+            case PARTENAIRES -> get("/api/matching/partenaires", token);
+            case EVENEMENTS_GROUPE -> get("/api/evenements/groupe/" + groupeId + "?page=0&size=20", token);
+            case CREER_SESSION -> {
+                double distanceKm = 3 + random.nextDouble() * 18;
+                long duree = Math.round(distanceKm * (240 + random.nextDouble() * 240));
+                Instant debut = Instant.now().minus(Duration.ofSeconds(duree)).minus(Duration.ofMinutes(10));
+                yield post("/api/sessions-course", token, String.format(Locale.ROOT,
+                        "{\"distanceKm\":%.3f,\"durationSeconds\":%d,\"startedAt\":\"%s\",\"track\":\"%s\"}",
+                        distanceKm, duree, debut, traceGps(distanceKm, duree, debut, random).replace("\"", "\\\"")));
+            }
+            case CREER_EVENEMENT -> post("/api/evenements", tokenAdmin, String.format(Locale.ROOT,
+                    "{\"titre\":\"Sortie charge\",\"description\":\"Créée pendant le test de charge\","
+                            + "\"date\":\"%s\",\"type\":\"course\",\"lieu\":\"Lac de Tunis\","
+                            + "\"latitude\":36.84,\"longitude\":10.24,\"groupeId\":%d}",
+                    Instant.now().plus(Duration.ofDays(3)), groupeId));
+        };
+    }
+
+    private String connecter(String nom) throws IOException, InterruptedException {
+        HttpResponse<String> reponse = client.send(post("/api/auth/login", null, corpsConnexion(nom)),
+                HttpResponse.BodyHandlers.ofString());
+        if (reponse.statusCode() != 200) {
+            throw new IllegalStateException("Connexion impossible pour " + nom + " : HTTP " + reponse.statusCode());
+        }
+        return extraireToken(reponse.body());
+    }
+
+    /**
+     * Tracé JSON d'une sortie de distanceKm en duree secondes, un point par seconde comme une montre GPS :
+     * départ autour du Lac de Tunis, cap qui dérive, erreur GPS de quelques mètres qui évolue lentement d'un point
+     * à l'autre (comme sur un vrai récepteur : la distance mesurée reste proche de la distance parcourue),
+     * altitude qui varie lentement.
+     */
+    private static String traceGps(double distanceKm, long duree, Instant debut, Random random) {
+        double vitesse = distanceKm * 1000 / duree;
+        double lat = 36.83 + random.nextDouble() * 0.05;
+        double lng = 10.22 + random.nextDouble() * 0.05;
+        double metresParDegreLng = METRES_PAR_DEGRE * Math.cos(Math.toRadians(lat));
+        double cap = random.nextDouble() * 2 * Math.PI;
+        double altitude = 5 + random.nextDouble() * 20;
+        double erreurNord = 0;
+        double erreurEst = 0;
+        StringBuilder json = new StringBuilder((int) duree * 64).append('[');
+        for (long seconde = 0; seconde <= duree; seconde++) {
+            if (seconde > 0) {
+                json.append(',');
+                cap += (random.nextDouble() - 0.5) * 0.2;
+                double pas = vitesse * (0.9 + random.nextDouble() * 0.2);
+                lat += pas * Math.cos(cap) / METRES_PAR_DEGRE;
+                lng += pas * Math.sin(cap) / metresParDegreLng;
+                altitude = Math.max(0, altitude + (random.nextDouble() - 0.5) * 0.6);
+            }
+            erreurNord = 0.95 * erreurNord + random.nextGaussian() * 0.5;
+            erreurEst = 0.95 * erreurEst + random.nextGaussian() * 0.5;
+            json.append(String.format(Locale.ROOT, "{\"lat\":%.6f,\"lng\":%.6f,\"t\":%d,\"ele\":%.1f}",
+                    lat + erreurNord / METRES_PAR_DEGRE,
+                    lng + erreurEst / metresParDegreLng,
+                    debut.toEpochMilli() + seconde * 1000, altitude));
+        }
+        return json.append(']').toString();
+    }
+
+    private static String corpsConnexion(String nom) {
+        return "{\"nom\":\"" + nom + "\",\"password\":\"" + JeuDeDonnees.MOT_DE_PASSE + "\"}";
+    }
+
+    private static String extraireToken(String corps) {
+        Matcher matcher = TOKEN.matcher(corps);
+        if (!matcher.find()) {
+            throw new IllegalStateException("Réponse de connexion sans token : " + corps);
+        }
+        return matcher.group(1);
+    }
+
+    private HttpRequest get(String chemin, String token) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + chemin))
+                .timeout(Duration.ofSeconds(30))
+                .header("Authorization", "Bearer " + token)
+                .GET()
+                .build();
+    }
+
+    private HttpRequest post(String chemin, String token, String json) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + chemin))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json));
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return builder.build();
+    }
+}